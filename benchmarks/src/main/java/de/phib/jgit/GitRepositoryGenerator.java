@@ -0,0 +1,107 @@
+package de.phib.jgit;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.StoredConfig;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates a git repository with a linear history of commits mentioning synthetic issue keys, and a bare "origin"
+ * repository next to it, so that {@link GitTools} can fetch without network access.
+ */
+final class GitRepositoryGenerator {
+
+    static final String FIRST_TAG = "bench-1.0";
+    static final String LAST_TAG = "bench-2.0";
+
+    /**
+     * Number of releases between {@link #FIRST_TAG} and {@link #LAST_TAG}, tagged {@code bench-1.1} to
+     * {@code bench-1.9}, so that {@link #RELEASES} + 1 releases divide the history evenly.
+     */
+    static final int RELEASES = 9;
+
+    /**
+     * Number of distinct issue keys mentioned in the commits of each project.
+     */
+    private static final int ISSUES_PER_PROJECT = 2000;
+
+    private GitRepositoryGenerator() {
+        // static utility class without constructor
+    }
+
+    /**
+     * Generates the repositories.
+     *
+     * @param directory   an empty directory
+     * @param commitCount the number of commits, at least {@link #RELEASES} + 1; {@link #FIRST_TAG} marks the first and
+     *                    {@link #LAST_TAG} the last one
+     * @return the path of the working repository
+     */
+    static Path generate(Path directory, int commitCount) throws IOException, GitAPIException {
+        Path originPath = directory.resolve("origin.git");
+        Path work = directory.resolve("work");
+
+        try (Git origin = Git.init().setBare(true).setDirectory(originPath.toFile()).call();
+             Git git = Git.init().setDirectory(work.toFile()).call()) {
+            StoredConfig config = git.getRepository().getConfig();
+            config.setString("remote", "origin", "url", originPath.toUri().toString());
+            config.setString("remote", "origin", "fetch", "+refs/heads/*:refs/remotes/origin/*");
+            config.save();
+
+            PersonIdent author = new PersonIdent("Benchmark", "benchmark@example.com");
+            int releaseInterval = commitCount / (RELEASES + 1);
+            for (int i = 0; i < commitCount; i++) {
+                git.commit()
+                        .setAllowEmpty(true)
+                        .setAuthor(author)
+                        .setCommitter(author)
+                        .setMessage(message(i))
+                        .call();
+                if (i == 0) {
+                    git.tag().setName(FIRST_TAG).setMessage(FIRST_TAG).call();
+                } else if (i % releaseInterval == 0 && i / releaseInterval <= RELEASES) {
+                    String tag = "bench-1." + i / releaseInterval;
+                    git.tag().setName(tag).setMessage(tag).call();
+                }
+            }
+            git.tag().setName(LAST_TAG).setMessage(LAST_TAG).call();
+
+            git.push().setRemote("origin").setPushAll().setPushTags().call();
+
+            // pack the objects like in a real repository, otherwise the fetch starts an automatic gc in the background
+            git.gc().call();
+            origin.gc().call();
+        }
+        return work;
+    }
+
+    /**
+     * @return the names of all release tags, oldest first
+     */
+    static List<String> getReleaseTags() {
+        List<String> tags = new ArrayList<>();
+        tags.add(FIRST_TAG);
+        for (int release = 1; release <= RELEASES; release++) {
+            tags.add("bench-1." + release);
+        }
+        tags.add(LAST_TAG);
+        return tags;
+    }
+
+    private static String message(int i) {
+        if (i % 10 == 9) {
+            return "Merge branch 'feature-" + i + "'\n\nNo issue key in this commit.";
+        }
+        String key = "BPA-" + (i % ISSUES_PER_PROJECT + 1);
+        if (i % 5 == 0) {
+            key += ", BREGNEU-" + (i * 7 % ISSUES_PER_PROJECT + 1);
+        }
+        return key + ": change number " + i + "\n\nA longer description of the change, wrapping the commit message body "
+                + "over a few lines like real commits do.\nSigned-off-by: Benchmark <benchmark@example.com>";
+    }
+}
@@ -0,0 +1,74 @@
+package de.phib.jgit;
+
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.util.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link GitTools#getEffectedIssues(String, String)} on a generated repository, including the fetch from
+ * the local origin, and the effected issues of all releases of the repository, by pairs of tags and in one batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class GitToolsBenchmark {
+
+    @Param({"1000", "10000"})
+    public int commitCount;
+
+    private Path directory;
+    private GitTools gitTools;
+
+    @Setup
+    public void setUp() throws IOException, GitAPIException {
+        directory = Files.createTempDirectory("git-tools-benchmark");
+        gitTools = new GitTools(GitRepositoryGenerator.generate(directory, commitCount).toString());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.delete(directory.toFile(), FileUtils.RECURSIVE | FileUtils.RETRY);
+    }
+
+    @Benchmark
+    public IssueCommitMap getEffectedIssues() {
+        return gitTools.getEffectedIssues(GitRepositoryGenerator.FIRST_TAG, GitRepositoryGenerator.LAST_TAG);
+    }
+
+    @Benchmark
+    public List<IssueCommitMap> getEffectedIssuesPerReleasePair() {
+        List<String> tags = GitRepositoryGenerator.getReleaseTags();
+        List<IssueCommitMap> releases = new ArrayList<>();
+        for (int i = 1; i < tags.size(); i++) {
+            releases.add(gitTools.getEffectedIssues(tags.get(i - 1), tags.get(i)));
+        }
+        return releases;
+    }
+
+    @Benchmark
+    public Map<String, IssueCommitMap> getEffectedIssuesByRelease() {
+        return gitTools.getEffectedIssuesByRelease(GitRepositoryGenerator.getReleaseTags());
+    }
+}
@@ -0,0 +1,104 @@
+package de.phib.jiratools;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the JIRA searches of {@link JiraApiConnector} and {@link JiraTools} against the {@link JiraSimulator}.
+ * <p>
+ * The request rate limit is lifted, so that the benchmarks measure the client and not the scheduler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class JiraToolsBenchmark {
+
+    private static final List<String> VERSIONS = Arrays.asList("2019.2");
+    private static final List<String> STATUSES = Arrays.asList("QA Stage", "Ready To Deploy", "Done");
+
+    /**
+     * Number of keys resolved by {@link #findAliases()}.
+     */
+    private static final int ALIAS_COUNT = 500;
+
+    @Param({"1000", "10000"})
+    public int issueCount;
+
+    @Param({"0", "20"})
+    public long latencyMillis;
+
+    private JiraSimulator simulator;
+    private JiraTools jiraTools;
+    private Set<String> keys;
+
+    @Setup
+    public void setUp() throws IOException {
+        simulator = new JiraSimulator(issueCount);
+        simulator.setLatencyMillis(latencyMillis);
+
+        jiraTools = new JiraTools(simulator.getUri().toString(), "benchmark", "benchmark");
+        jiraTools.getJiraApiConnector().setRequestScheduler(new RequestScheduler(
+                JiraApiConnector.DEFAULT_PARALLELISM, 1_000_000, 0));
+
+        keys = new TreeSet<>();
+        int step = Math.max(1, issueCount / ALIAS_COUNT);
+        for (int i = 0; i < issueCount && keys.size() < ALIAS_COUNT; i += step) {
+            keys.add(JiraSimulator.getKey(i));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        simulator.close();
+    }
+
+    /**
+     * Fetches all issues, measuring the pagination.
+     */
+    @Benchmark
+    public Iterable<Issue> searchIssues() {
+        return jiraTools.getJiraApiConnector().searchIssues("project IN (BPA, BREGNEU) ORDER BY key");
+    }
+
+    @Benchmark
+    public List<String> searchKeys() {
+        return jiraTools.getJiraApiConnector().searchKeys("project IN (BPA, BREGNEU) ORDER BY key");
+    }
+
+    @Benchmark
+    public int countIssues() {
+        return jiraTools.getJiraApiConnector().countIssues("project IN (BPA, BREGNEU)");
+    }
+
+    @Benchmark
+    public Map<String, String> findAliases() {
+        return jiraTools.findAliases(keys);
+    }
+
+    @Benchmark
+    public Map<String, Issue> getIssuesForVersion() {
+        return jiraTools.getIssuesForVersion(VERSIONS, JiraSimulator.PROJECTS, STATUSES);
+    }
+}
@@ -0,0 +1,71 @@
+package de.phib.jiratools.tools;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.google.common.io.ByteStreams;
+import de.phib.jiratools.JiraApiConnector;
+import de.phib.jiratools.JiraSimulator;
+import de.phib.jiratools.tools.EstimateAggregator.Dimension;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the tools on issues fetched once from the {@link JiraSimulator}, measuring the processing without any
+ * requests.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class ToolsBenchmark {
+
+    @Param({"1000", "10000"})
+    public int issueCount;
+
+    private List<Issue> issues;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (JiraSimulator simulator = new JiraSimulator(issueCount)) {
+            JiraApiConnector connector = new JiraApiConnector(simulator.getUri().toString(), "benchmark", "benchmark");
+            issues = new ArrayList<>();
+            connector.searchIssues("project IN (BPA, BREGNEU)").forEach(issues::add);
+        }
+    }
+
+    @Benchmark
+    public long getRemainingEstimates() {
+        return CalculateRemainingEstimates.getRemainingEstimates(issues);
+    }
+
+    @Benchmark
+    public SortedMap<List<String>, EstimateAggregator.Estimates> aggregateEstimates() {
+        return EstimateAggregator.groupBy(Dimension.PROJECT, Dimension.FIX_VERSION, Dimension.STATUS).aggregate(issues);
+    }
+
+    @Benchmark
+    public String getReleaseNotes() {
+        return GenerateReleaseNotes.getReleaseNotes(issues);
+    }
+
+    @Benchmark
+    public void writeReleaseNotes() throws IOException {
+        GenerateReleaseNotes.writeReleaseNotes(issues, ReleaseNotesFormat.MARKDOWN, ByteStreams.nullOutputStream());
+    }
+}
@@ -0,0 +1,479 @@
+package de.phib.jgit;
+
+import com.google.common.io.CountingInputStream;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefDatabase;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Persistent index of the issue keys mentioned in the commits of a repository, stored in
+ * {@code <git dir>/jira-tools/commit-index}.
+ * <p>
+ * Commits get ordinals in topological order (parents before children), so the commits reachable from a commit are
+ * found with a single sweep over the parent ordinals, without reading any git objects. The file is an append-only log
+ * of key and commit records: {@link #update(Repository, Collection)} only parses the commits not yet in the index and
+ * appends them. A torn record at the end of the file (e.g. after a crash) is dropped on load, an unreadable file is
+ * rebuilt. The index isn't meant to be shared by several processes at the same time.
+ */
+final class CommitIndex {
+    private static final Logger LOG = LoggerFactory.getLogger(CommitIndex.class);
+
+    private static final int MAGIC = 0x4a544349;
+    private static final int VERSION = 1;
+    private static final byte KEY_RECORD = 'K';
+    private static final byte COMMIT_RECORD = 'C';
+    private static final int[] NONE = new int[0];
+
+    private final Path file;
+    private boolean persistent = true;
+
+    private final Map<ObjectId, Integer> ordinals = new HashMap<>();
+    private final List<ObjectId> commits = new ArrayList<>();
+    private final List<int[]> parents = new ArrayList<>();
+    private final List<int[]> commitKeys = new ArrayList<>();
+
+    private final Map<String, Integer> keyIds = new HashMap<>();
+    private final List<String> keys = new ArrayList<>();
+    private final List<List<Integer>> keyCommits = new ArrayList<>();
+
+    private CommitIndex(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Loads the index of a repository, or creates an empty one if the repository hasn't been indexed yet.
+     *
+     * @param repository the repository
+     * @return the index
+     */
+    static CommitIndex open(Repository repository) {
+        CommitIndex index = new CommitIndex(repository.getDirectory().toPath().resolve("jira-tools").resolve("commit-index"));
+        index.load();
+        return index;
+    }
+
+    /**
+     * @return the number of indexed commits
+     */
+    synchronized int size() {
+        return commits.size();
+    }
+
+    /**
+     * @param commit a commit id
+     * @return whether the commit is indexed
+     */
+    synchronized boolean contains(ObjectId commit) {
+        return ordinals.containsKey(commit);
+    }
+
+    /**
+     * Indexes the commits reachable from the branches, remote branches and tags of the repository, and from the given
+     * additional commits, which aren't indexed yet.
+     *
+     * @param repository the repository
+     * @param tips       additional commits (or tags) to index, e.g. the ends of a range about to be queried
+     * @return the number of newly indexed commits
+     * @throws IOException if the repository can't be read
+     */
+    synchronized int update(Repository repository, Collection<? extends ObjectId> tips) throws IOException {
+        Set<ObjectId> starts = new LinkedHashSet<>();
+        RefDatabase refDatabase = repository.getRefDatabase();
+        List<Ref> refs = new ArrayList<>();
+        refs.addAll(refDatabase.getRefsByPrefix(Constants.R_HEADS));
+        refs.addAll(refDatabase.getRefsByPrefix(Constants.R_REMOTES));
+        refs.addAll(refDatabase.getRefsByPrefix(Constants.R_TAGS));
+        for (Ref ref : refs) {
+            ObjectId id = ref.getObjectId();
+            if (id == null || ordinals.containsKey(id)) {
+                continue;
+            }
+            ObjectId peeled = refDatabase.peel(ref).getPeeledObjectId();
+            if (peeled == null || !ordinals.containsKey(peeled)) {
+                starts.add(id);
+            }
+        }
+        for (ObjectId tip : tips) {
+            if (!ordinals.containsKey(tip)) {
+                starts.add(tip);
+            }
+        }
+        if (starts.isEmpty()) {
+            return 0;
+        }
+
+        int firstKey = keys.size();
+        int firstCommit = commits.size();
+        try (RevWalk walk = new RevWalk(repository)) {
+            // only the commit being indexed needs its message, the others can do with their parents
+            walk.setRetainBody(false);
+            indexNewCommits(walk, starts);
+        } finally {
+            // the commits indexed before a failure are complete, keep them
+            append(firstKey, firstCommit);
+        }
+        int newCommits = commits.size() - firstCommit;
+        LOG.debug("Indexed {} new commits of {}", newCommits, repository.getDirectory());
+        return newCommits;
+    }
+
+    /**
+     * Returns the commits reachable from {@code to} but not from {@code from}, like {@code git log from..to}.
+     *
+     * @param from the excluded commit, must be indexed
+     * @param to   the included commit, must be indexed
+     * @return the ordinals of the commits
+     */
+    synchronized BitSet range(ObjectId from, ObjectId to) {
+        BitSet range = reachable(ordinal(to));
+        range.andNot(reachable(ordinal(from)));
+        return range;
+    }
+
+    /**
+     * Assigns each commit to the first of several releases containing it, with a single sweep over the commits.
+     *
+     * @param releases the commits of the releases, oldest first, must be indexed
+     * @return the ordinals of the commits per release: those reachable from the release, but from none of the
+     * releases before it
+     */
+    synchronized List<BitSet> releases(List<? extends ObjectId> releases) {
+        int[] tips = new int[releases.size()];
+        int newest = -1;
+        for (int i = 0; i < tips.length; i++) {
+            tips[i] = ordinal(releases.get(i));
+            newest = Math.max(newest, tips[i]);
+        }
+
+        // the index of the first release containing each commit, propagated from children to parents
+        int[] release = new int[newest + 1];
+        Arrays.fill(release, Integer.MAX_VALUE);
+        for (int i = 0; i < tips.length; i++) {
+            release[tips[i]] = Math.min(release[tips[i]], i);
+        }
+        for (int commit = newest; commit >= 0; commit--) {
+            if (release[commit] != Integer.MAX_VALUE) {
+                for (int parent : parents.get(commit)) {
+                    release[parent] = Math.min(release[parent], release[commit]);
+                }
+            }
+        }
+
+        List<BitSet> commits = new ArrayList<>(tips.length);
+        for (int i = 0; i < tips.length; i++) {
+            commits.add(new BitSet());
+        }
+        for (int commit = 0; commit <= newest; commit++) {
+            if (release[commit] != Integer.MAX_VALUE) {
+                commits.get(release[commit]).set(commit);
+            }
+        }
+        return commits;
+    }
+
+    /**
+     * Returns the issue keys mentioned in a set of commits.
+     *
+     * @param range      the ordinals of the commits, see {@link #range(ObjectId, ObjectId)}
+     * @param repository the path of the repository, to parse the commits on demand
+     * @return the issue keys mapped to the commits mentioning them
+     */
+    synchronized IssueCommitMap getIssues(BitSet range, String repository) {
+        int[] counts = new int[keys.size()];
+        int commitCount = 0;
+        for (int commit = range.nextSetBit(0); commit >= 0; commit = range.nextSetBit(commit + 1)) {
+            int[] keyOrdinals = commitKeys.get(commit);
+            if (keyOrdinals.length > 0) {
+                commitCount++;
+                for (int key : keyOrdinals) {
+                    counts[key]++;
+                }
+            }
+        }
+
+        int[] usedKeys = IntStream.range(0, counts.length)
+                .filter(key -> counts[key] > 0)
+                .boxed()
+                .sorted(Comparator.comparing(keys::get))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        String[] sortedKeys = new String[usedKeys.length];
+        int[][] commitsByKey = new int[usedKeys.length][];
+        int[] positions = new int[keys.size()];
+        for (int position = 0; position < usedKeys.length; position++) {
+            sortedKeys[position] = keys.get(usedKeys[position]);
+            commitsByKey[position] = new int[counts[usedKeys[position]]];
+            positions[usedKeys[position]] = position;
+        }
+
+        // number the commits mentioning any key in the order of their ordinals, so the numbers of each key are sorted
+        ObjectId[] commitIds = new ObjectId[commitCount];
+        int[] filled = new int[usedKeys.length];
+        int number = 0;
+        for (int commit = range.nextSetBit(0); commit >= 0; commit = range.nextSetBit(commit + 1)) {
+            int[] keyOrdinals = commitKeys.get(commit);
+            if (keyOrdinals.length > 0) {
+                commitIds[number] = commits.get(commit);
+                for (int key : keyOrdinals) {
+                    int position = positions[key];
+                    commitsByKey[position][filled[position]++] = number;
+                }
+                number++;
+            }
+        }
+        return IssueCommitMap.of(repository, sortedKeys, commitsByKey, commitIds);
+    }
+
+    /**
+     * Returns the commits mentioning an issue key.
+     *
+     * @param issueKey the issue key
+     * @param walk     creates the (unparsed) commit objects returned
+     * @return the commits, empty if the key isn't mentioned anywhere
+     */
+    synchronized Set<RevCommit> getCommits(String issueKey, RevWalk walk) {
+        Integer key = keyIds.get(issueKey);
+        if (key == null) {
+            return Collections.emptySet();
+        }
+        Set<RevCommit> result = new HashSet<>();
+        for (int commit : keyCommits.get(key)) {
+            result.add(walk.lookupCommit(commits.get(commit)));
+        }
+        return result;
+    }
+
+    private int ordinal(ObjectId commit) {
+        Integer ordinal = ordinals.get(commit);
+        if (ordinal == null) {
+            throw new IllegalArgumentException("Commit " + commit.name() + " isn't indexed");
+        }
+        return ordinal;
+    }
+
+    private BitSet reachable(int tip) {
+        BitSet reachable = new BitSet(tip + 1);
+        reachable.set(tip);
+        // parents have smaller ordinals than their children, so going down once visits every reachable commit
+        for (int commit = tip; commit >= 0; commit = reachable.previousSetBit(commit - 1)) {
+            for (int parent : parents.get(commit)) {
+                reachable.set(parent);
+            }
+        }
+        return reachable;
+    }
+
+    /**
+     * Indexes the commits reachable from the starts which aren't indexed yet, parents first. The message of each
+     * commit is read and scanned for issue keys only when it's indexed, and dropped right after.
+     */
+    private void indexNewCommits(RevWalk walk, Collection<ObjectId> starts) throws IOException {
+        RevFlag expanded = walk.newFlag("expanded");
+        Deque<RevCommit> stack = new ArrayDeque<>();
+        for (ObjectId start : starts) {
+            try {
+                stack.push(walk.parseCommit(start));
+            } catch (IncorrectObjectTypeException e) {
+                LOG.debug("Not indexing {}, it isn't a commit", start.name());
+            } catch (MissingObjectException e) {
+                LOG.warn("Not indexing missing commit {}", start.name());
+            }
+        }
+
+        while (!stack.isEmpty()) {
+            RevCommit commit = stack.peek();
+            if (ordinals.containsKey(commit)) {
+                stack.pop();
+            } else if (!commit.has(expanded)) {
+                commit.add(expanded);
+                walk.parseHeaders(commit);
+                for (RevCommit parent : commit.getParents()) {
+                    if (!parent.has(expanded) && !ordinals.containsKey(parent)) {
+                        stack.push(parent);
+                    }
+                }
+            } else {
+                // all parents are indexed
+                stack.pop();
+                int[] parentOrdinals = new int[commit.getParentCount()];
+                for (int p = 0; p < parentOrdinals.length; p++) {
+                    parentOrdinals[p] = ordinals.get(commit.getParent(p));
+                }
+                walk.parseBody(commit);
+                Set<String> found = new LinkedHashSet<>();
+                IssueKeyScanner.scanCommitMessage(commit.getRawBuffer(), (buffer, start, end) ->
+                        found.add(IssueKeyScanner.toKey(buffer, start, end)));
+                commit.disposeBody();
+                add(commit.copy(), parentOrdinals, found.stream().mapToInt(this::internKey).toArray());
+            }
+        }
+    }
+
+    private int internKey(String key) {
+        Integer id = keyIds.get(key);
+        if (id == null) {
+            id = keys.size();
+            keyIds.put(key, id);
+            keys.add(key);
+            keyCommits.add(new ArrayList<>());
+        }
+        return id;
+    }
+
+    private void add(ObjectId commit, int[] parentOrdinals, int[] keyOrdinals) {
+        int ordinal = commits.size();
+        ordinals.put(commit, ordinal);
+        commits.add(commit);
+        parents.add(parentOrdinals.length == 0 ? NONE : parentOrdinals);
+        commitKeys.add(keyOrdinals.length == 0 ? NONE : keyOrdinals);
+        for (int key : keyOrdinals) {
+            keyCommits.get(key).add(ordinal);
+        }
+    }
+
+    private void clear() {
+        ordinals.clear();
+        commits.clear();
+        parents.clear();
+        commitKeys.clear();
+        keyIds.clear();
+        keys.clear();
+        keyCommits.clear();
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        long validLength = 0;
+        try (CountingInputStream counting = new CountingInputStream(new BufferedInputStream(Files.newInputStream(file)));
+             DataInputStream in = new DataInputStream(counting)) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unknown format");
+            }
+            validLength = counting.getCount();
+            byte[] id = new byte[Constants.OBJECT_ID_LENGTH];
+            int type;
+            while ((type = in.read()) != -1) {
+                if (type == KEY_RECORD) {
+                    internKey(in.readUTF());
+                } else if (type == COMMIT_RECORD) {
+                    in.readFully(id);
+                    int[] parentOrdinals = readOrdinals(in, commits.size());
+                    int[] keyOrdinals = readOrdinals(in, keys.size());
+                    add(ObjectId.fromRaw(id), parentOrdinals, keyOrdinals);
+                } else {
+                    throw new IOException("Unknown record type " + type);
+                }
+                validLength = counting.getCount();
+            }
+            LOG.debug("Loaded {} commits from {}", commits.size(), file);
+            return;
+        } catch (EOFException e) {
+            LOG.warn("Dropping incomplete record at the end of {}", file);
+        } catch (IOException e) {
+            LOG.warn("Couldn't read {}, rebuilding it", file, e);
+            clear();
+            validLength = 0;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(validLength);
+        } catch (IOException e) {
+            LOG.warn("Couldn't repair {}, keeping the index in memory", file, e);
+            persistent = false;
+        }
+    }
+
+    private static int[] readOrdinals(DataInputStream in, int bound) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > bound) {
+            throw new IOException("Invalid count " + count);
+        }
+        int[] ordinals = new int[count];
+        for (int i = 0; i < count; i++) {
+            ordinals[i] = in.readInt();
+            if (ordinals[i] < 0 || ordinals[i] >= bound) {
+                throw new IOException("Invalid ordinal " + ordinals[i]);
+            }
+        }
+        return ordinals;
+    }
+
+    /**
+     * Appends the keys and commits added since the given positions to the file; keys first, as commits refer to them.
+     */
+    private void append(int firstKey, int firstCommit) {
+        if (!persistent) {
+            return;
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            boolean empty = !Files.exists(file) || Files.size(file) == 0;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)))) {
+                if (empty) {
+                    out.writeInt(MAGIC);
+                    out.writeInt(VERSION);
+                }
+                for (int key = firstKey; key < keys.size(); key++) {
+                    out.writeByte(KEY_RECORD);
+                    out.writeUTF(keys.get(key));
+                }
+                byte[] id = new byte[Constants.OBJECT_ID_LENGTH];
+                for (int commit = firstCommit; commit < commits.size(); commit++) {
+                    out.writeByte(COMMIT_RECORD);
+                    commits.get(commit).copyRawTo(id, 0);
+                    out.write(id);
+                    writeOrdinals(out, parents.get(commit));
+                    writeOrdinals(out, commitKeys.get(commit));
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Couldn't write {}, keeping the index in memory", file, e);
+            persistent = false;
+        }
+    }
+
+    private static void writeOrdinals(DataOutputStream out, int[] ordinals) throws IOException {
+        out.writeInt(ordinals.length);
+        for (int ordinal : ordinals) {
+            out.writeInt(ordinal);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package de.phib.jgit;
+
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Decides whether {@link GitTools} fetches a repository before analyzing it.
+ * <p>
+ * The time of the last fetch is the newer of the modification times of {@code FETCH_HEAD} (written by git) and of the
+ * marker {@code <git dir>/jira-tools/last-fetch} (touched by {@link GitTools} after each successful fetch).
+ */
+public final class FetchPolicy {
+
+    private static final FetchPolicy ALWAYS = new FetchPolicy(null);
+    private static final FetchPolicy NEVER = new FetchPolicy(Duration.ZERO);
+
+    /**
+     * Maximum age of the last fetch, {@code null} to always fetch, zero to never fetch.
+     */
+    private final Duration maxAge;
+
+    private FetchPolicy(Duration maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * @return a policy fetching before every analysis, the default
+     */
+    public static FetchPolicy always() {
+        return ALWAYS;
+    }
+
+    /**
+     * @return a policy never fetching, e.g. for offline runs or repositories updated by other means
+     */
+    public static FetchPolicy never() {
+        return NEVER;
+    }
+
+    /**
+     * @param maxAge the maximum age of the last fetch
+     * @return a policy fetching only if the last fetch is older than the given duration, or unknown
+     */
+    public static FetchPolicy ifOlderThan(Duration maxAge) {
+        if (maxAge.isNegative() || maxAge.isZero()) {
+            throw new IllegalArgumentException("maxAge must be positive: " + maxAge);
+        }
+        return new FetchPolicy(maxAge);
+    }
+
+    /**
+     * @param repository the repository about to be analyzed
+     * @return whether the repository should be fetched first
+     */
+    public boolean shouldFetch(Repository repository) {
+        if (maxAge == null) {
+            return true;
+        }
+        if (maxAge.isZero()) {
+            return false;
+        }
+        long lastFetch = Math.max(lastModified(repository.getDirectory().toPath().resolve("FETCH_HEAD")),
+                lastModified(getFetchMarker(repository)));
+        return System.currentTimeMillis() - lastFetch > maxAge.toMillis();
+    }
+
+    /**
+     * @return the marker file touched after each successful fetch
+     */
+    static Path getFetchMarker(Repository repository) {
+        return repository.getDirectory().toPath().resolve("jira-tools").resolve("last-fetch");
+    }
+
+    private static long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (maxAge == null) {
+            return "always";
+        }
+        return maxAge.isZero() ? "never" : "ifOlderThan(" + maxAge + ")";
+    }
+}
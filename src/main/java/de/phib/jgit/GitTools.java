@@ -1,17 +1,19 @@
 package de.phib.jgit;
 
-import com.google.common.collect.Maps;
 import com.jcraft.jsch.Session;
 import com.jcraft.jsch.UserInfo;
+import de.phib.metrics.Metrics;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import org.apache.commons.lang3.StringUtils;
 import org.eclipse.jgit.api.FetchCommand;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.transport.JschConfigSessionFactory;
 import org.eclipse.jgit.transport.OpenSshConfig;
 import org.eclipse.jgit.transport.SshSessionFactory;
@@ -21,18 +23,30 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
 
 import static de.phib.ToolDataConstants.GIT_SSH_PASSWORD;
 
 public class GitTools {
-    private static final String ISSUE_REGEX = "([A-Z]+-[0-9]+)";
     private static final Logger LOG = LoggerFactory.getLogger(GitTools.class);
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "git-tools");
+        thread.setDaemon(true);
+        return thread;
+    });
     private final String path;
+    private final Object fetchLock = new Object();
+    private CommitIndex commitIndex;
+    private TagIndex tagIndex;
+
+    private Metrics metrics = Metrics.noop();
+    private FetchPolicy fetchPolicy = FetchPolicy.always();
 
     SshSessionFactory sshSessionFactory = new JschConfigSessionFactory() {
         @Override
@@ -75,6 +89,38 @@ public class GitTools {
         this.path = path;
     }
 
+    /**
+     * Sets the metrics recording the git operations: {@code git.fetch.time}, {@code git.index.update.time} and
+     * {@code git.index.commits} (indexing new commits), {@code git.walk.time} (collecting the issues of the commits
+     * between two tags from the index), {@code git.walk.commits} and {@code git.walk.issues}.
+     *
+     * @param metrics the metrics
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics != null ? metrics : Metrics.noop();
+    }
+
+    /**
+     * Sets when the repository is fetched before computing the effected issues, see {@link FetchPolicy}. Defaults to
+     * {@link FetchPolicy#always()}.
+     *
+     * @param fetchPolicy the fetch policy
+     */
+    public void setFetchPolicy(FetchPolicy fetchPolicy) {
+        this.fetchPolicy = fetchPolicy != null ? fetchPolicy : FetchPolicy.always();
+    }
+
+    public FetchPolicy getFetchPolicy() {
+        return fetchPolicy;
+    }
+
+    /**
+     * @return the path of the repository
+     */
+    public String getPath() {
+        return path;
+    }
+
     /**
      * Returns an abbreviated list of commit hashes
      *
@@ -89,93 +135,269 @@ public class GitTools {
     }
 
     /***
-     * Computes all effected JIRA issues between two Git Tags by trying to extract the issuekey from the commit message
-     * @param lastReleaseTag name of the last release tag
-     * @param currentReleaseTag name of the current release tag
-     * @return Map where the key is the issueKey and the value is a set of commits that include the issueKey.
+     * Computes all effected JIRA issues between two Git Tags by trying to extract the issuekey from the commit message.
+     * The repository is fetched first, depending on the {@link #setFetchPolicy(FetchPolicy) fetch policy}. The issue
+     * keys of the commits are kept in a persistent index next to the repository, see {@link CommitIndex}; only commits
+     * added since the last call are parsed.
+     * @param lastReleaseTag name of the last release tag, or a unique prefix of it
+     * @param currentReleaseTag name of the current release tag, or a unique prefix of it
+     * @return the issueKeys mapped to the commits that include them, empty if a tag can't be found
      */
-    public Map<String, Set<RevCommit>> getEffectedIssues(String lastReleaseTag, String currentReleaseTag) {
+    public IssueCommitMap getEffectedIssues(String lastReleaseTag, String currentReleaseTag) {
+        TagRange range = new TagRange(lastReleaseTag, currentReleaseTag);
+        return getEffectedIssues(Collections.singletonList(range)).get(range);
+    }
 
-        File gitDir = new File(path);
+    /**
+     * Computes all effected JIRA issues of several tag ranges, e.g. of all releases of a year, with a single fetch and
+     * tag lookup. See {@link #getEffectedIssues(String, String)}.
+     *
+     * @param ranges the tag ranges
+     * @return Map where the key is the tag range and the value is the map of its effected issues, in the order of the
+     * given ranges. The issues of a range are empty if one of its tags can't be found.
+     */
+    public Map<TagRange, IssueCommitMap> getEffectedIssues(List<TagRange> ranges) {
+        Map<TagRange, IssueCommitMap> result = new LinkedHashMap<>();
+        ranges.forEach(range -> result.put(range, IssueCommitMap.empty()));
 
-        try (Git gitRepo = Git.open(gitDir)) {
-            FetchCommand fetch = gitRepo.fetch();
-            if (StringUtils.isNotEmpty(GIT_SSH_PASSWORD)) {
-                fetch = fetch.setTransportConfigCallback(transport -> {
-                    SshTransport sshTransport = (SshTransport) transport;
-                    sshTransport.setSshSessionFactory(sshSessionFactory);
+        try (Git gitRepo = Git.open(new File(path))) {
+            fetch(gitRepo);
 
-                });
-            }
-            fetch.call();
+            Repository repository = gitRepo.getRepository();
+            List<String> tags = new ArrayList<>();
+            ranges.forEach(range -> tags.addAll(Arrays.asList(range.getLastReleaseTag(), range.getCurrentReleaseTag())));
+            Map<String, ObjectId> tagCommits = resolveTags(repository, tags);
+            CommitIndex index = updateCommitIndex(repository, tagCommits.values());
 
-            List<Ref> tags = gitRepo.tagList().call();
-            Optional<Ref> lastReleaseTagRef = tags.stream().filter(ref -> ref.getName().contains(lastReleaseTag)).findFirst();
-            Optional<Ref> currentReleaseTagRef = tags.stream().filter(ref -> ref.getName().contains(currentReleaseTag)).findFirst();
+            for (TagRange range : ranges) {
+                ObjectId lastReleaseCommit = tagCommits.get(range.getLastReleaseTag());
+                ObjectId currentReleaseCommit = tagCommits.get(range.getCurrentReleaseTag());
+                if (!isIndexed(index, range.getLastReleaseTag(), lastReleaseCommit)
+                        || !isIndexed(index, range.getCurrentReleaseTag(), currentReleaseCommit)) {
+                    continue;
+                }
 
-            if (!lastReleaseTagRef.isPresent()) {
-                LOG.error("Couldn't find lastReleaseTag {}", lastReleaseTag);
-                return Maps.newHashMap();
+                long walkStart = System.nanoTime();
+                BitSet commits = index.range(lastReleaseCommit, currentReleaseCommit);
+                IssueCommitMap effectedIssues = index.getIssues(commits, path);
+                metrics.recordTime("git.walk.time", System.nanoTime() - walkStart);
+                metrics.recordValue("git.walk.commits", commits.cardinality());
+                metrics.recordValue("git.walk.issues", effectedIssues.size());
+                result.put(range, effectedIssues);
             }
+        } catch (IOException e) {
+            LOG.error("Couldn't open Git Repo at {}", this.path, e);
+        } catch (GitAPIException e) {
+            LOG.error("Exception calling Git API", e);
+        }
+        return result;
+    }
 
-            if (!currentReleaseTagRef.isPresent()) {
-                LOG.error("Couldn't find currentRelease Tag {}", currentReleaseTag);
-                return Maps.newHashMap();
-            }
+    /**
+     * Computes the effected JIRA issues of consecutive releases, e.g. 2019.1, 2019.1.5 and 2019.2, in one pass over
+     * the history: each commit is assigned to the first release containing it. For a linear release history, this
+     * equals calling {@link #getEffectedIssues(String, String)} for each pair of consecutive tags. A release tag which
+     * can't be found is logged and its commits are assigned to the next release; without the first release tag, the
+     * next release holds the whole history before it.
+     *
+     * @param releaseTags names of the release tags, oldest first
+     * @return Map where the key is the release tag, starting with the second one, and the value is the map of the
+     * effected issues of the release, in the order of the given tags
+     */
+    public Map<String, IssueCommitMap> getEffectedIssuesByRelease(List<String> releaseTags) {
+        Map<String, IssueCommitMap> result = new LinkedHashMap<>();
+        releaseTags.stream().skip(1).forEach(tag -> result.put(tag, IssueCommitMap.empty()));
+
+        try (Git gitRepo = Git.open(new File(path))) {
+            fetch(gitRepo);
 
-            Pattern pattern = Pattern.compile(ISSUE_REGEX);
-
-            return StreamSupport.stream(gitRepo.log()
-                    .addRange(getActualRefObjectId(lastReleaseTagRef.get(), gitRepo.getRepository()), getActualRefObjectId(currentReleaseTagRef.get(), gitRepo.getRepository()))
-                    .call()
-                    .spliterator(), false)
-                    .map(ref -> {
-                        Matcher matcher = pattern.matcher(ref.getFullMessage());
-                        List<Pair<String, RevCommit>> commits = new ArrayList<>();
-                        while (matcher.find()) {
-                            commits.add(new Pair<>(matcher.group(), ref));
-                        }
-                        commits.sort(Comparator.comparingInt(p -> p.getSecond().getCommitTime()));
-                        return commits;
-                    })
-                    .flatMap(List::stream)
-                    .collect(Collectors.groupingBy(Pair::getFirst,
-                            TreeMap::new,
-                            Collectors.mapping(Pair::getSecond, Collectors.toSet())));
+            Repository repository = gitRepo.getRepository();
+            Map<String, ObjectId> tagCommits = resolveTags(repository, releaseTags);
+            CommitIndex index = updateCommitIndex(repository, tagCommits.values());
+            List<String> foundTags = releaseTags.stream()
+                    .filter(tag -> isIndexed(index, tag, tagCommits.get(tag)))
+                    .collect(Collectors.toList());
+            if (foundTags.isEmpty()) {
+                return result;
+            }
 
+            long walkStart = System.nanoTime();
+            List<BitSet> releases = index.releases(foundTags.stream().map(tagCommits::get).collect(Collectors.toList()));
+            // the first release only holds the history before the first release tag, unless that tag is missing
+            int first = foundTags.get(0).equals(releaseTags.get(0)) ? 1 : 0;
+            for (int i = first; i < foundTags.size(); i++) {
+                result.put(foundTags.get(i), index.getIssues(releases.get(i), path));
+            }
+            metrics.recordTime("git.walk.time", System.nanoTime() - walkStart);
+            metrics.recordValue("git.walk.commits", releases.stream().skip(first).mapToInt(BitSet::cardinality).sum());
         } catch (IOException e) {
             LOG.error("Couldn't open Git Repo at {}", this.path, e);
-            return Maps.newHashMap();
         } catch (GitAPIException e) {
             LOG.error("Exception calling Git API", e);
         }
-        return Maps.newHashMap();
+        return result;
     }
 
-    private ObjectId getActualRefObjectId(Ref ref, Repository repo) throws IOException {
-        final Ref repoPeeled = repo.getRefDatabase().peel(ref);
-        if (repoPeeled.getPeeledObjectId() != null) {
-            return repoPeeled.getPeeledObjectId();
+    /**
+     * Returns all commits mentioning a JIRA issue, using the commit index without fetching first.
+     *
+     * @param issueKey the issue key
+     * @return the (unparsed) commits whose message includes the issueKey
+     */
+    public Set<RevCommit> getCommitsMentioning(String issueKey) {
+        try (Git gitRepo = Git.open(new File(path))) {
+            Repository repository = gitRepo.getRepository();
+            CommitIndex index = updateCommitIndex(repository, Collections.emptyList());
+            try (RevWalk walk = new RevWalk(repository)) {
+                return index.getCommits(issueKey, walk);
+            }
+        } catch (IOException e) {
+            LOG.error("Couldn't open Git Repo at {}", this.path, e);
+            return new HashSet<>();
+        }
+    }
+
+    /**
+     * Resolves tags to the commits they point to.
+     *
+     * @return Map where the key is the tag name and the value is the commit, null if the tag can't be found
+     */
+    private Map<String, ObjectId> resolveTags(Repository repository, List<String> tags) throws IOException {
+        Map<String, ObjectId> tagCommits = new HashMap<>();
+        for (String tag : tags) {
+            if (!tagCommits.containsKey(tag)) {
+                Ref ref = findTag(repository, tag);
+                tagCommits.put(tag, ref != null ? getActualRefObjectId(ref, repository) : null);
+            }
+        }
+        return tagCommits;
+    }
+
+    /**
+     * Finds a tag by its exact name, or else by a unique prefix of its name.
+     *
+     * @return the tag, null if there is none or the prefix is ambiguous
+     */
+    private Ref findTag(Repository repository, String name) throws IOException {
+        Ref exact = repository.exactRef(Constants.R_TAGS + name);
+        if (exact != null) {
+            return exact;
+        }
+
+        List<Ref> candidates = getTagIndex(repository, false).findByPrefix(name);
+        if (candidates.isEmpty()) {
+            // the tag may have been created since the index was built
+            candidates = getTagIndex(repository, true).findByPrefix(name);
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        if (candidates.isEmpty()) {
+            LOG.error("Couldn't find tag {}", name);
+        } else {
+            LOG.error("Tag {} is ambiguous, matching {}", name,
+                    candidates.stream().map(Ref::getName).map(Repository::shortenRefName).collect(Collectors.joining(", ")));
+        }
+        return null;
+    }
+
+    private synchronized TagIndex getTagIndex(Repository repository, boolean rebuild) throws IOException {
+        if (tagIndex == null || rebuild) {
+            tagIndex = TagIndex.build(repository);
+            LOG.debug("Indexed {} tags of {}", tagIndex.size(), path);
+        }
+        return tagIndex;
+    }
+
+    private static boolean isIndexed(CommitIndex index, String tag, ObjectId commit) {
+        if (commit == null) {
+            return false;
+        }
+        if (!index.contains(commit)) {
+            LOG.error("Tag {} doesn't point to a commit", tag);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Fetches the repository if the fetch policy asks for it. Concurrent calls are serialized, so that callers waiting
+     * for a running fetch don't fetch again if the policy doesn't ask for it anymore.
+     */
+    private void fetch(Git gitRepo) throws GitAPIException {
+        synchronized (fetchLock) {
+            fetchIfNeeded(gitRepo);
         }
-        return ref.getObjectId();
     }
 
-    private class Pair<T, U> {
-        T first;
-        U second;
+    private void fetchIfNeeded(Git gitRepo) throws GitAPIException {
+        Repository repository = gitRepo.getRepository();
+        if (!fetchPolicy.shouldFetch(repository)) {
+            LOG.debug("Not fetching {}, fetch policy is {}", path, fetchPolicy);
+            return;
+        }
+
+        FetchCommand fetch = gitRepo.fetch();
+        if (StringUtils.isNotEmpty(GIT_SSH_PASSWORD)) {
+            fetch = fetch.setTransportConfigCallback(transport -> {
+                SshTransport sshTransport = (SshTransport) transport;
+                sshTransport.setSshSessionFactory(sshSessionFactory);
 
-        public Pair(T first, U second) {
-            this.first = first;
-            this.second = second;
+            });
+        }
+        long fetchStart = System.nanoTime();
+        fetch.call();
+        metrics.recordTime("git.fetch.time", System.nanoTime() - fetchStart);
+        synchronized (this) {
+            tagIndex = null;
         }
 
-        public T getFirst() {
-            return first;
+        Path marker = FetchPolicy.getFetchMarker(repository);
+        try {
+            Files.createDirectories(marker.getParent());
+            Files.write(marker, new byte[0]);
+        } catch (IOException e) {
+            LOG.warn("Couldn't record the fetch in {}", marker, e);
         }
+    }
 
-        public U getSecond() {
-            return second;
+    /**
+     * Indexes the commits added since the last call, loading the persistent index first if necessary.
+     */
+    private CommitIndex updateCommitIndex(Repository repository, Collection<ObjectId> tips) throws IOException {
+        tips = tips.stream().filter(Objects::nonNull).collect(Collectors.toList());
+        CommitIndex index;
+        synchronized (this) {
+            if (commitIndex == null) {
+                commitIndex = CommitIndex.open(repository);
+            }
+            index = commitIndex;
         }
+        long updateStart = System.nanoTime();
+        int added = index.update(repository, tips);
+        metrics.recordTime("git.index.update.time", System.nanoTime() - updateStart);
+        metrics.recordValue("git.index.commits", added);
+        return index;
+    }
+
+    /**
+     * Computes all effected JIRA issues between two Git Tags in the background, e.g. to overlap the git analysis with
+     * JIRA requests. See {@link #getEffectedIssues(String, String)}.
+     *
+     * @param lastReleaseTag    name of the last release tag
+     * @param currentReleaseTag name of the current release tag
+     * @return A future of the issueKeys mapped to the commits that include them
+     */
+    public CompletableFuture<IssueCommitMap> getEffectedIssuesAsync(String lastReleaseTag, String currentReleaseTag) {
+        return CompletableFuture.supplyAsync(() -> getEffectedIssues(lastReleaseTag, currentReleaseTag), EXECUTOR);
+    }
+
+    private ObjectId getActualRefObjectId(Ref ref, Repository repo) throws IOException {
+        final Ref repoPeeled = repo.getRefDatabase().peel(ref);
+        if (repoPeeled.getPeeledObjectId() != null) {
+            return repoPeeled.getPeeledObjectId();
+        }
+        return ref.getObjectId();
     }
 
 }
@@ -0,0 +1,341 @@
+package de.phib.jgit;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The effected JIRA issues of a range of commits: issue keys mapped to the commits mentioning them.
+ * <p>
+ * The keys are kept sorted in an array, their position serves as int id. The commits are numbered by their position
+ * in a table of commit ids shared by all keys, and each key holds the sorted numbers of its commits in an int array.
+ * No {@link RevCommit} is retained; the commits of a key can be parsed on demand with {@link #parseCommits(String)}.
+ * Instances are immutable; {@link #intersection(Collection)}, {@link #difference(Collection)} and
+ * {@link #union(IssueCommitMap)} return new instances sharing the commit table where possible.
+ */
+public final class IssueCommitMap {
+
+    private static final IssueCommitMap EMPTY = new IssueCommitMap(new String[0], new int[0][], new ObjectId[0],
+            new String[0], new int[]{0});
+
+    private final String[] keys;
+    private final int[][] commitsByKey;
+    private final ObjectId[] commitIds;
+
+    /**
+     * The paths of the repositories the commits belong to; the commits of repository {@code i} are numbered from
+     * {@code repositoryStart[i]} to {@code repositoryStart[i + 1] - 1}.
+     */
+    private final String[] repositories;
+    private final int[] repositoryStart;
+
+    private IssueCommitMap(String[] keys, int[][] commitsByKey, ObjectId[] commitIds, String[] repositories,
+                           int[] repositoryStart) {
+        this.keys = keys;
+        this.commitsByKey = commitsByKey;
+        this.commitIds = commitIds;
+        this.repositories = repositories;
+        this.repositoryStart = repositoryStart;
+    }
+
+    /**
+     * @return a map without any issue
+     */
+    public static IssueCommitMap empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Creates a map of the commits of one repository.
+     *
+     * @param repository   the path of the repository
+     * @param keys         the issue keys, sorted
+     * @param commitsByKey the sorted numbers of the commits of each key
+     * @param commitIds    the commit ids by number
+     */
+    static IssueCommitMap of(String repository, String[] keys, int[][] commitsByKey, ObjectId[] commitIds) {
+        if (keys.length == 0) {
+            return EMPTY;
+        }
+        return new IssueCommitMap(keys, commitsByKey, commitIds, new String[]{repository}, new int[]{0, commitIds.length});
+    }
+
+    /**
+     * @return the number of issues
+     */
+    public int size() {
+        return keys.length;
+    }
+
+    public boolean isEmpty() {
+        return keys.length == 0;
+    }
+
+    /**
+     * @return the number of distinct commits mentioning any of the issues
+     */
+    public int getCommitCount() {
+        BitSet commits = new BitSet(commitIds.length);
+        for (int[] keyCommits : commitsByKey) {
+            for (int commit : keyCommits) {
+                commits.set(commit);
+            }
+        }
+        return commits.cardinality();
+    }
+
+    /**
+     * @return the issue keys, sorted; an unmodifiable view answering {@code contains} by binary search
+     */
+    public Set<String> keySet() {
+        return new AbstractSet<String>() {
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof String && Arrays.binarySearch(keys, o) >= 0;
+            }
+
+            @Override
+            public Iterator<String> iterator() {
+                return Collections.unmodifiableList(Arrays.asList(keys)).iterator();
+            }
+
+            @Override
+            public int size() {
+                return keys.length;
+            }
+        };
+    }
+
+    public boolean containsKey(String issueKey) {
+        return Arrays.binarySearch(keys, issueKey) >= 0;
+    }
+
+    /**
+     * @param issueKey the issue key
+     * @return the number of commits mentioning the issue, 0 if none
+     */
+    public int getCommitCount(String issueKey) {
+        int key = Arrays.binarySearch(keys, issueKey);
+        return key >= 0 ? commitsByKey[key].length : 0;
+    }
+
+    /**
+     * @param issueKey the issue key
+     * @return the ids of the commits mentioning the issue, empty if none
+     */
+    public Set<ObjectId> getCommitIds(String issueKey) {
+        int key = Arrays.binarySearch(keys, issueKey);
+        if (key < 0) {
+            return Collections.emptySet();
+        }
+        Set<ObjectId> ids = new LinkedHashSet<>();
+        for (int commit : commitsByKey[key]) {
+            ids.add(commitIds[commit]);
+        }
+        return ids;
+    }
+
+    /**
+     * @param issueKey the issue key
+     * @return the abbreviated ids of the commits mentioning the issue, comma separated, see
+     * {@link GitTools#getAbbrCommitList(Set)}
+     */
+    public String getAbbrCommitList(String issueKey) {
+        return getCommitIds(issueKey).stream()
+                .map(id -> id.abbreviate(10).name())
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Parses the commits mentioning an issue, e.g. to show their messages or authors.
+     *
+     * @param issueKey the issue key
+     * @return the parsed commits, empty if none
+     * @throws IOException if a repository can't be read
+     */
+    public List<RevCommit> parseCommits(String issueKey) throws IOException {
+        int key = Arrays.binarySearch(keys, issueKey);
+        if (key < 0) {
+            return Collections.emptyList();
+        }
+        List<RevCommit> commits = new ArrayList<>();
+        int[] keyCommits = commitsByKey[key];
+        int i = 0;
+        for (int repository = 0; repository < repositories.length && i < keyCommits.length; repository++) {
+            if (keyCommits[i] >= repositoryStart[repository + 1]) {
+                continue;
+            }
+            try (Git git = Git.open(new File(repositories[repository])); RevWalk walk = new RevWalk(git.getRepository())) {
+                for (; i < keyCommits.length && keyCommits[i] < repositoryStart[repository + 1]; i++) {
+                    commits.add(walk.parseCommit(commitIds[keyCommits[i]]));
+                }
+            }
+        }
+        return commits;
+    }
+
+    /**
+     * @param issueKeys issue keys, e.g. the issues fixed in a version according to JIRA
+     * @return the issues of this map which are contained in the given keys
+     */
+    public IssueCommitMap intersection(Collection<String> issueKeys) {
+        return select(keyIds(issueKeys));
+    }
+
+    /**
+     * @param issueKeys issue keys, e.g. the issues fixed in a version according to JIRA
+     * @return the issues of this map which aren't contained in the given keys
+     */
+    public IssueCommitMap difference(Collection<String> issueKeys) {
+        BitSet selected = keyIds(issueKeys);
+        selected.flip(0, keys.length);
+        return select(selected);
+    }
+
+    /**
+     * Merges the issues of another map, e.g. of another repository. The commits of both maps are kept apart, so the
+     * maps shouldn't share commits.
+     *
+     * @param other the other map
+     * @return the issues of both maps, with the commits of both
+     */
+    public IssueCommitMap union(IssueCommitMap other) {
+        if (other.isEmpty()) {
+            return this;
+        }
+        if (isEmpty()) {
+            return other;
+        }
+
+        ObjectId[] ids = Arrays.copyOf(commitIds, commitIds.length + other.commitIds.length);
+        System.arraycopy(other.commitIds, 0, ids, commitIds.length, other.commitIds.length);
+        String[] paths = Arrays.copyOf(repositories, repositories.length + other.repositories.length);
+        System.arraycopy(other.repositories, 0, paths, repositories.length, other.repositories.length);
+        int[] starts = Arrays.copyOf(repositoryStart, repositories.length + other.repositories.length + 1);
+        for (int i = 1; i < other.repositoryStart.length; i++) {
+            starts[repositories.length + i] = other.repositoryStart[i] + commitIds.length;
+        }
+
+        // merge the sorted keys
+        List<String> mergedKeys = new ArrayList<>(keys.length + other.keys.length);
+        List<int[]> mergedCommits = new ArrayList<>(keys.length + other.keys.length);
+        int i = 0;
+        int j = 0;
+        while (i < keys.length || j < other.keys.length) {
+            int comparison = i == keys.length ? 1 : j == other.keys.length ? -1 : keys[i].compareTo(other.keys[j]);
+            if (comparison < 0) {
+                mergedKeys.add(keys[i]);
+                mergedCommits.add(commitsByKey[i++]);
+            } else {
+                int[] otherCommits = shift(other.commitsByKey[j], commitIds.length);
+                if (comparison == 0) {
+                    int[] commits = Arrays.copyOf(commitsByKey[i], commitsByKey[i].length + otherCommits.length);
+                    System.arraycopy(otherCommits, 0, commits, commitsByKey[i].length, otherCommits.length);
+                    otherCommits = commits;
+                    mergedKeys.add(keys[i++]);
+                } else {
+                    mergedKeys.add(other.keys[j]);
+                }
+                mergedCommits.add(otherCommits);
+                j++;
+            }
+        }
+        return new IssueCommitMap(mergedKeys.toArray(new String[0]), mergedCommits.toArray(new int[0][]), ids, paths, starts);
+    }
+
+    private static int[] shift(int[] commits, int offset) {
+        int[] shifted = new int[commits.length];
+        for (int i = 0; i < commits.length; i++) {
+            shifted[i] = commits[i] + offset;
+        }
+        return shifted;
+    }
+
+    private BitSet keyIds(Collection<String> issueKeys) {
+        BitSet ids = new BitSet(keys.length);
+        if (!(issueKeys instanceof Set) || issueKeys.size() < keys.length) {
+            for (String issueKey : issueKeys) {
+                int key = Arrays.binarySearch(keys, issueKey);
+                if (key >= 0) {
+                    ids.set(key);
+                }
+            }
+        } else {
+            for (int key = 0; key < keys.length; key++) {
+                if (issueKeys.contains(keys[key])) {
+                    ids.set(key);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private IssueCommitMap select(BitSet ids) {
+        if (ids.cardinality() == keys.length) {
+            return this;
+        }
+        if (ids.isEmpty()) {
+            return EMPTY;
+        }
+        String[] selectedKeys = new String[ids.cardinality()];
+        int[][] selectedCommits = new int[selectedKeys.length][];
+        int i = 0;
+        for (int key = ids.nextSetBit(0); key >= 0; key = ids.nextSetBit(key + 1)) {
+            selectedKeys[i] = keys[key];
+            selectedCommits[i++] = commitsByKey[key];
+        }
+        return new IssueCommitMap(selectedKeys, selectedCommits, commitIds, repositories, repositoryStart);
+    }
+
+    /**
+     * Two maps are equal if they map the same keys to the same commits.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IssueCommitMap)) {
+            return false;
+        }
+        IssueCommitMap other = (IssueCommitMap) o;
+        if (!Arrays.equals(keys, other.keys)) {
+            return false;
+        }
+        for (String key : keys) {
+            if (!getCommitIds(key).equals(other.getCommitIds(key))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(keys);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        for (int key = 0; key < keys.length; key++) {
+            builder.append(key > 0 ? ", " : "").append(keys[key]).append('=').append(getAbbrCommitList(keys[key]));
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,106 @@
+package de.phib.jgit;
+
+import org.eclipse.jgit.util.RawParseUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds JIRA issue keys ({@code [A-Z]+-[0-9]+}) in raw commit buffers without decoding the commit message.
+ * <p>
+ * Keys consist of ASCII bytes only, which never occur inside multi-byte UTF-8 (or any other ASCII-compatible)
+ * sequences, so the bytes can be scanned directly. The scanner finds the same keys as
+ * {@code Pattern.compile("([A-Z]+-[0-9]+)").matcher(message).find()}, but doesn't allocate anything itself.
+ */
+final class IssueKeyScanner {
+
+    /**
+     * Receives the keys found by the scanner.
+     */
+    interface KeyConsumer {
+        /**
+         * @param buffer the scanned buffer
+         * @param start  the index of the first byte of the key
+         * @param end    the index after the last byte of the key
+         */
+        void accept(byte[] buffer, int start, int end);
+    }
+
+    private IssueKeyScanner() {
+        // static utility class without constructor
+    }
+
+    /**
+     * Scans the message of a commit.
+     *
+     * @param rawCommit the raw commit buffer, see {@code RevCommit#getRawBuffer()}
+     * @param consumer  receives each key found, in order of appearance
+     */
+    static void scanCommitMessage(byte[] rawCommit, KeyConsumer consumer) {
+        int messageStart = RawParseUtils.commitMessage(rawCommit, 0);
+        if (messageStart >= 0) {
+            scan(rawCommit, messageStart, rawCommit.length, consumer);
+        }
+    }
+
+    /**
+     * Scans a range of a buffer.
+     *
+     * @param buffer   the buffer
+     * @param from     the index of the first byte to scan
+     * @param to       the index after the last byte to scan
+     * @param consumer receives each key found, in order of appearance
+     */
+    static void scan(byte[] buffer, int from, int to, KeyConsumer consumer) {
+        int i = from;
+        while (i < to) {
+            if (!isUpperCase(buffer[i])) {
+                i++;
+                continue;
+            }
+
+            int start = i;
+            while (i < to && isUpperCase(buffer[i])) {
+                i++;
+            }
+            if (i + 1 < to && buffer[i] == '-' && isDigit(buffer[i + 1])) {
+                i += 2;
+                while (i < to && isDigit(buffer[i])) {
+                    i++;
+                }
+                consumer.accept(buffer, start, i);
+            }
+            // otherwise continue after the run of upper case letters, a key can't start inside it
+        }
+    }
+
+    /**
+     * Returns the keys in a range of a buffer as strings, e.g. for tests.
+     *
+     * @param buffer the buffer
+     * @param from   the index of the first byte to scan
+     * @param to     the index after the last byte to scan
+     * @return the keys, in order of appearance
+     */
+    static List<String> findKeys(byte[] buffer, int from, int to) {
+        List<String> keys = new ArrayList<>();
+        scan(buffer, from, to, (b, start, end) -> keys.add(toKey(b, start, end)));
+        return keys;
+    }
+
+    /**
+     * @return the key in the given range of the buffer as string
+     */
+    static String toKey(byte[] buffer, int start, int end) {
+        return new String(buffer, start, end - start, StandardCharsets.US_ASCII);
+    }
+
+    private static boolean isUpperCase(byte b) {
+        return b >= 'A' && b <= 'Z';
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+}
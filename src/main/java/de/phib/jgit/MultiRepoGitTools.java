@@ -0,0 +1,88 @@
+package de.phib.jgit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Computes the effected JIRA issues of a release spread over several git repositories, each with its own release
+ * tags. The repositories are fetched and analyzed concurrently, and their results are merged.
+ * <p>
+ * Example:
+ * <pre>
+ * IssueCommitMap issues = new MultiRepoGitTools()
+ *         .add(dxpGitTools, "blueprint-2019.1.5", "blueprint-2019.2")
+ *         .add(ansibleGitTools, "2019.1.5", "2019.2")
+ *         .getEffectedIssues();
+ * </pre>
+ */
+public class MultiRepoGitTools {
+
+    private final List<Repo> repos = new ArrayList<>();
+
+    /**
+     * Adds a repository.
+     *
+     * @param gitTools          the tools of the repository
+     * @param lastReleaseTag    name of the last release tag in the repository
+     * @param currentReleaseTag name of the current release tag in the repository
+     * @return this instance
+     */
+    public MultiRepoGitTools add(GitTools gitTools, String lastReleaseTag, String currentReleaseTag) {
+        repos.add(new Repo(gitTools, new TagRange(lastReleaseTag, currentReleaseTag)));
+        return this;
+    }
+
+    /**
+     * Sets the fetch policy of all repositories added so far.
+     *
+     * @param fetchPolicy the fetch policy
+     * @return this instance
+     */
+    public MultiRepoGitTools setFetchPolicy(FetchPolicy fetchPolicy) {
+        repos.forEach(repo -> repo.gitTools.setFetchPolicy(fetchPolicy));
+        return this;
+    }
+
+    /**
+     * Computes all effected JIRA issues of all repositories, see {@link GitTools#getEffectedIssues(String, String)}.
+     *
+     * @return the issueKeys mapped to the commits of all repositories that include them
+     */
+    public IssueCommitMap getEffectedIssues() {
+        try {
+            return getEffectedIssuesAsync().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Computes all effected JIRA issues of all repositories in the background.
+     *
+     * @return A future of the issueKeys mapped to the commits of all repositories that include them
+     */
+    public CompletableFuture<IssueCommitMap> getEffectedIssuesAsync() {
+        CompletableFuture<IssueCommitMap> result = CompletableFuture.completedFuture(IssueCommitMap.empty());
+        for (Repo repo : repos) {
+            result = result.thenCombine(repo.gitTools.getEffectedIssuesAsync(
+                    repo.range.getLastReleaseTag(), repo.range.getCurrentReleaseTag()),
+                    IssueCommitMap::union);
+        }
+        return result;
+    }
+
+    private static class Repo {
+        private final GitTools gitTools;
+        private final TagRange range;
+
+        Repo(GitTools gitTools, TagRange range) {
+            this.gitTools = gitTools;
+            this.range = range;
+        }
+    }
+}
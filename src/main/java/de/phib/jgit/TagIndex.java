@@ -0,0 +1,51 @@
+package de.phib.jgit;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * The tags of a repository sorted by name, for prefix lookups. Built from the ref database without peeling or parsing
+ * any tag.
+ */
+final class TagIndex {
+
+    private final NavigableMap<String, Ref> tags = new TreeMap<>();
+
+    private TagIndex() {
+    }
+
+    /**
+     * @param repository the repository
+     * @return the index of the current tags of the repository
+     * @throws IOException if the refs can't be read
+     */
+    static TagIndex build(Repository repository) throws IOException {
+        TagIndex index = new TagIndex();
+        for (Ref ref : repository.getRefDatabase().getRefsByPrefix(Constants.R_TAGS)) {
+            index.tags.put(ref.getName().substring(Constants.R_TAGS.length()), ref);
+        }
+        return index;
+    }
+
+    /**
+     * @return the number of tags
+     */
+    int size() {
+        return tags.size();
+    }
+
+    /**
+     * @param prefix the beginning of a tag name
+     * @return the tags whose name starts with the given prefix, sorted by name
+     */
+    List<Ref> findByPrefix(String prefix) {
+        return new ArrayList<>(tags.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values());
+    }
+}
@@ -0,0 +1,53 @@
+package de.phib.jgit;
+
+import java.util.Objects;
+
+/**
+ * The commits between two release tags: reachable from the current release tag, but not from the last one.
+ * <p>
+ * Tags are given by name, e.g. {@code blueprint-2019.2}. A name matching no tag exactly may be abbreviated to a unique
+ * prefix of a tag name.
+ */
+public final class TagRange {
+    private final String lastReleaseTag;
+    private final String currentReleaseTag;
+
+    /**
+     * @param lastReleaseTag    name of the last release tag
+     * @param currentReleaseTag name of the current release tag
+     */
+    public TagRange(String lastReleaseTag, String currentReleaseTag) {
+        this.lastReleaseTag = Objects.requireNonNull(lastReleaseTag, "lastReleaseTag");
+        this.currentReleaseTag = Objects.requireNonNull(currentReleaseTag, "currentReleaseTag");
+    }
+
+    public String getLastReleaseTag() {
+        return lastReleaseTag;
+    }
+
+    public String getCurrentReleaseTag() {
+        return currentReleaseTag;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TagRange)) {
+            return false;
+        }
+        TagRange other = (TagRange) o;
+        return lastReleaseTag.equals(other.lastReleaseTag) && currentReleaseTag.equals(other.currentReleaseTag);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(lastReleaseTag, currentReleaseTag);
+    }
+
+    @Override
+    public String toString() {
+        return lastReleaseTag + ".." + currentReleaseTag;
+    }
+}
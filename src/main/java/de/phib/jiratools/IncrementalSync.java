@@ -0,0 +1,201 @@
+package de.phib.jiratools;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the result of JQL searches up to date by only fetching the issues that changed since the last search.
+ * <p>
+ * For every JQL query the keys of the matching issues and a watermark (the latest update time seen) are recorded next
+ * to the {@link IssueStore}. A following search only fetches {@code (<jql>) AND updated >= <watermark>} and merges the
+ * result with the stored issues; the watermark is formatted so that it never misses an update, see
+ * {@link JiraApiConnector#formatJqlDateTime(DateTime)}. Issues that were updated but no longer match the query are dropped from the result.
+ * Issues that were deleted in JIRA are only noticed by a full search, e.g. after deleting the sync state.
+ */
+class IncrementalSync {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IncrementalSync.class);
+
+    private static final Pattern ORDER_BY = Pattern.compile("(?i)\\s+ORDER\\s+BY\\s+.*$");
+
+    private final JiraApiConnector jiraApiConnector;
+    private final IssueStore issueStore;
+
+    /**
+     * The locks serializing the searches by query.
+     */
+    private final ConcurrentMap<String, Object> locks = new ConcurrentHashMap<>();
+
+    IncrementalSync(JiraApiConnector jiraApiConnector, IssueStore issueStore) {
+        this.jiraApiConnector = jiraApiConnector;
+        this.issueStore = issueStore;
+    }
+
+    /**
+     * Returns the issues matching the given query, fetching only the issues that changed since the last call with the
+     * same query. Searches with the same query run one after another, so that each one continues from the state of
+     * the previous one.
+     *
+     * @param jql    a JQL search query
+     * @param fields the fields to fetch; must be covered by the fields kept in the issue store
+     * @return the matching issues, sorted by key
+     * @throws JiraSearchException if a search fails
+     */
+    List<Issue> search(String jql, Set<SearchField> fields) {
+        synchronized (locks.computeIfAbsent(jql, key -> new Object())) {
+            return searchSerially(jql, fields);
+        }
+    }
+
+    private List<Issue> searchSerially(String jql, Set<SearchField> fields) {
+        SyncState state = readState(jql);
+        if (state == null || !issueStore.keys().containsAll(state.keys)) {
+            LOG.debug("No usable sync state, fetching all issues for query: {}", jql);
+            List<Issue> issues = jiraApiConnector.fetchIssues(jql, fields);
+            writeState(jql, new SyncState(watermark(issues, null), keys(issues)));
+            return sorted(issues);
+        }
+
+        Matcher orderBy = ORDER_BY.matcher(jql);
+        String condition = orderBy.replaceFirst("").trim();
+        String updatedSince = String.format("updated >= \"%s\"", jiraApiConnector.formatJqlDateTime(state.watermark));
+
+        List<Issue> changed = jiraApiConnector.fetchIssues(condition.isEmpty()
+                ? updatedSince
+                : String.format("(%s) AND %s", condition, updatedSince), fields);
+
+        Set<String> keys = new TreeSet<>(state.keys);
+        keys.addAll(keys(changed));
+
+        Set<String> projects = state.keys.stream()
+                .map(key -> key.substring(0, key.lastIndexOf('-')))
+                .collect(Collectors.toCollection(TreeSet::new));
+        if (!condition.isEmpty() && !projects.isEmpty()) {
+            String noLongerMatching = String.format("project IN (%s) AND %s AND NOT (%s)",
+                    String.join(", ", projects), updatedSince, condition);
+            keys.removeAll(keys(jiraApiConnector.fetchIssues(noLongerMatching, EnumSet.noneOf(SearchField.class))));
+        }
+
+        LOG.debug("{} of {} issues changed since {} for query: {}", changed.size(), keys.size(), state.watermark, jql);
+
+        writeState(jql, new SyncState(watermark(changed, state.watermark), keys));
+        return issueStore.getAll(keys);
+    }
+
+    /**
+     * @return the watermark of the last search with the given query, or {@code null} if there is none
+     */
+    DateTime getWatermark(String jql) {
+        SyncState state = readState(jql);
+        return state != null ? state.watermark : null;
+    }
+
+    private static DateTime watermark(List<Issue> issues, DateTime previous) {
+        DateTime latest = previous != null ? previous : new DateTime(0, DateTimeZone.UTC);
+        for (Issue issue : issues) {
+            if (issue.getUpdateDate() != null && issue.getUpdateDate().isAfter(latest)) {
+                latest = issue.getUpdateDate().withZone(DateTimeZone.UTC);
+            }
+        }
+        // JQL compares with minute precision; ">=" re-fetches issues updated in the same minute, which is harmless
+        return latest;
+    }
+
+    private static Set<String> keys(List<Issue> issues) {
+        return issues.stream().map(Issue::getKey).collect(Collectors.toCollection(TreeSet::new));
+    }
+
+    private static List<Issue> sorted(List<Issue> issues) {
+        List<Issue> result = new ArrayList<>(issues);
+        result.sort((a, b) -> a.getKey().compareTo(b.getKey()));
+        return result;
+    }
+
+    private Path stateFile(String jql) {
+        return issueStore.getDirectory().resolve(String.format("sync-%08x.txt", jql.hashCode()));
+    }
+
+    /**
+     * Reads the sync state of a query. The file starts with the query (to detect hash collisions), followed by the
+     * watermark as ISO date-time in UTC, the number of keys and the issue keys. A state in another format, or with
+     * fewer keys than announced, is unusable.
+     */
+    private SyncState readState(String jql) {
+        Path file = stateFile(jql);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+            if (lines.size() < 3 || !lines.get(0).equals(jql)) {
+                return null;
+            }
+            int keyCount = Integer.parseInt(lines.get(2));
+            if (lines.size() != keyCount + 3) {
+                LOG.warn("Ignoring incomplete sync state {}", file);
+                return null;
+            }
+            return new SyncState(DateTime.parse(lines.get(1)).withZone(DateTimeZone.UTC),
+                    new TreeSet<>(lines.subList(3, lines.size())));
+        } catch (IllegalArgumentException e) {
+            LOG.debug("Ignoring sync state {} in an unknown format", file);
+            return null;
+        } catch (IOException e) {
+            LOG.warn("Couldn't read sync state {}", file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the sync state of a query to a temporary file first, which then replaces the state, so that the state is
+     * never read half written.
+     */
+    private void writeState(String jql, SyncState state) {
+        Path file = stateFile(jql);
+        List<String> lines = new ArrayList<>(state.keys.size() + 3);
+        lines.add(jql);
+        lines.add(state.watermark.toString());
+        lines.add(String.valueOf(state.keys.size()));
+        lines.addAll(state.keys);
+        try {
+            Path temporary = Files.createTempFile(file.getParent(), "sync-", ".tmp");
+            try {
+                Files.write(temporary, lines, StandardCharsets.UTF_8);
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            LOG.warn("Couldn't write sync state {}", file, e);
+        }
+    }
+
+    private static class SyncState {
+        final DateTime watermark;
+        final Set<String> keys;
+
+        SyncState(DateTime watermark, Set<String> keys) {
+            this.watermark = watermark;
+            this.keys = keys;
+        }
+    }
+}
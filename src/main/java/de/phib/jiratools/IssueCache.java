@@ -0,0 +1,247 @@
+package de.phib.jiratools;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * A thread-safe cache of JIRA issues by issue key, with a time to live and a maximum size.
+ * <p>
+ * Concurrent lookups of the same key are coalesced into one request, also between {@link #get(String)} and
+ * {@link #getAsync(String)}. Issues that don't exist are cached as well, so unknown keys from git history are only
+ * looked up once.
+ */
+public class IssueCache {
+
+    public static final long DEFAULT_TTL_MINUTES = 30;
+
+    public static final long DEFAULT_MAX_SIZE = 50_000;
+
+    private final Function<String, CompletableFuture<Issue>> loader;
+
+    private final Cache<String, Optional<Issue>> cache;
+
+    /**
+     * The lookups in progress by key.
+     */
+    private final ConcurrentMap<String, CompletableFuture<Optional<Issue>>> loading = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new cache, which fetches issues in the thread looking them up.
+     *
+     * @param loader     fetches an issue by its key, returns {@code null} if the issue doesn't exist
+     * @param ttlMinutes the time after which a cached issue is fetched again
+     * @param maxSize    the maximum number of cached issues
+     */
+    public IssueCache(@NonNull Function<String, Issue> loader, long ttlMinutes, long maxSize) {
+        this(key -> CompletableFuture.completedFuture(loader.apply(key)), ttlMinutes, maxSize, Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a new cache, which fetches issues without blocking the thread looking them up.
+     *
+     * @param loader     fetches an issue by its key, completes with {@code null} if the issue doesn't exist
+     * @param ttlMinutes the time after which a cached issue is fetched again
+     * @param maxSize    the maximum number of cached issues
+     * @return the new cache
+     */
+    @NonNull
+    public static IssueCache withAsyncLoader(@NonNull Function<String, CompletableFuture<Issue>> loader,
+                                             long ttlMinutes, long maxSize) {
+        return new IssueCache(loader, ttlMinutes, maxSize, Ticker.systemTicker());
+    }
+
+    /**
+     * Creates a new cache with the given time source, e.g. to test the expiry.
+     */
+    IssueCache(@NonNull Function<String, CompletableFuture<Issue>> loader, long ttlMinutes, long maxSize,
+               @NonNull Ticker ticker) {
+        this.loader = loader;
+        this.cache = CacheBuilder.newBuilder()
+                .ticker(ticker)
+                .expireAfterWrite(ttlMinutes, TimeUnit.MINUTES)
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the issue with the given key, fetching it if it isn't cached yet.
+     *
+     * @param key the issue key
+     * @return the issue or null if the issue doesn't exist
+     * @throws JiraSearchException if the issue can't be fetched; failures aren't cached
+     */
+    @Nullable
+    public Issue get(@NonNull String key) {
+        try {
+            return getAsync(key).join();
+        } catch (CompletionException e) {
+            Throwable cause = e;
+            while (cause instanceof CompletionException && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the issue with the given key without blocking the calling thread, fetching it if it isn't cached yet.
+     *
+     * @param key the issue key
+     * @return a future of the issue, completing with null if the issue doesn't exist, or exceptionally if it can't be
+     * fetched; failures aren't cached
+     */
+    @NonNull
+    public CompletableFuture<Issue> getAsync(@NonNull String key) {
+        Optional<Issue> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached.orElse(null));
+        }
+        CompletableFuture<Optional<Issue>> promise = new CompletableFuture<>();
+        CompletableFuture<Optional<Issue>> inProgress = loading.putIfAbsent(key, promise);
+        if (inProgress == null) {
+            // a lookup may have completed between the cache check and taking over the key
+            Optional<Issue> loaded = cache.asMap().get(key);
+            if (loaded != null) {
+                loading.remove(key, promise);
+                promise.complete(loaded);
+            } else {
+                load(key, promise);
+            }
+            inProgress = promise;
+        }
+        return inProgress.thenApply(issue -> issue.orElse(null));
+    }
+
+    private void load(String key, CompletableFuture<Optional<Issue>> promise) {
+        CompletableFuture<Issue> loaded;
+        try {
+            loaded = loader.apply(key);
+        } catch (RuntimeException e) {
+            loaded = new CompletableFuture<>();
+            loaded.completeExceptionally(e);
+        }
+        loaded.whenComplete((issue, failure) -> {
+            if (failure == null) {
+                // cache the issue before ending the lookup, so that no other lookup fetches it again
+                cache.put(key, Optional.ofNullable(issue));
+            }
+            loading.remove(key, promise);
+            if (failure == null) {
+                promise.complete(Optional.ofNullable(issue));
+            } else {
+                promise.completeExceptionally(failure);
+            }
+        });
+    }
+
+    /**
+     * Returns the issue with the given key if it is cached, without fetching it.
+     *
+     * @param key the issue key
+     * @return the issue, or null if it isn't cached or doesn't exist
+     */
+    @Nullable
+    public Issue getIfPresent(@NonNull String key) {
+        Optional<Issue> issue = cache.getIfPresent(key);
+        return issue != null ? issue.orElse(null) : null;
+    }
+
+    /**
+     * Adds an already fetched issue to the cache.
+     *
+     * @param issue the issue
+     */
+    public void put(@NonNull Issue issue) {
+        cache.put(issue.getKey(), Optional.of(issue));
+    }
+
+    /**
+     * Adds already fetched issues to the cache.
+     *
+     * @param issues the issues
+     */
+    public void putAll(@NonNull Iterable<Issue> issues) {
+        issues.forEach(this::put);
+    }
+
+    /**
+     * Removes all issues from the cache.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * @return the number of cached issues
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * @return hit, miss and eviction statistics of the cache
+     */
+    @NonNull
+    public Stats stats() {
+        return new Stats(cache.stats());
+    }
+
+    /**
+     * A snapshot of the statistics of the cache. Lookups of issues that don't exist count as hits once the missing
+     * issue is cached.
+     */
+    public static final class Stats {
+        private final long hitCount;
+        private final long missCount;
+        private final long evictionCount;
+
+        private Stats(CacheStats stats) {
+            this.hitCount = stats.hitCount();
+            this.missCount = stats.missCount();
+            this.evictionCount = stats.evictionCount();
+        }
+
+        /**
+         * @return the number of lookups answered from the cache
+         */
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        /**
+         * @return the number of lookups that fetched the issue
+         */
+        public long getMissCount() {
+            return missCount;
+        }
+
+        /**
+         * @return the number of issues removed because the cache was full or the issue expired
+         */
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("hits=%d, misses=%d, evictions=%d", hitCount, missCount, evictionCount);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package de.phib.jiratools;
+
+import com.atlassian.jira.rest.client.api.domain.BasicComponent;
+import com.atlassian.jira.rest.client.api.domain.BasicProject;
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.api.domain.IssueField;
+import com.atlassian.jira.rest.client.api.domain.IssueType;
+import com.atlassian.jira.rest.client.api.domain.Status;
+import com.atlassian.jira.rest.client.api.domain.User;
+import com.atlassian.jira.rest.client.api.domain.Version;
+import com.atlassian.jira.rest.client.internal.json.IssueJsonParser;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+import java.net.URI;
+
+/**
+ * Converts issues to the JSON representation of the JIRA REST API and back.
+ * <p>
+ * Only the fields the JIRA REST client parses into {@link Issue} are written, plus all raw fields (e.g. security,
+ * timeestimate and custom fields), so that an issue read back contains everything the tools use.
+ */
+final class IssueJsonCodec {
+
+    private static final DateTimeFormatter JIRA_DATE_TIME = DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+
+    private IssueJsonCodec() {
+        // static utility class without constructor
+    }
+
+    static Issue fromJson(String json) throws JSONException {
+        return new IssueJsonParser().parse(new JSONObject(json));
+    }
+
+    static String toJson(Issue issue) throws JSONException {
+        JSONObject fields = new JSONObject();
+        JSONObject names = new JSONObject();
+        JSONObject schema = new JSONObject();
+
+        Iterable<IssueField> issueFields = issue.getFields();
+        if (issueFields != null) {
+            for (IssueField field : issueFields) {
+                fields.put(field.getId(), field.getValue() != null ? field.getValue() : JSONObject.NULL);
+                if (field.getName() != null) {
+                    names.put(field.getId(), field.getName());
+                }
+                schema.put(field.getId(), new JSONObject().put("type", field.getType() != null ? field.getType() : "any"));
+            }
+        }
+
+        fields.put("summary", issue.getSummary());
+        putNullable(fields, "description", issue.getDescription());
+        fields.put("issuetype", toJson(issue.getIssueType()));
+        fields.put("status", toJson(issue.getStatus()));
+        fields.put("project", toJson(issue.getProject()));
+        fields.put("created", formatDateTime(issue.getCreationDate()));
+        fields.put("updated", formatDateTime(issue.getUpdateDate()));
+        fields.put("assignee", issue.getAssignee() != null ? toJson(issue.getAssignee()) : JSONObject.NULL);
+        fields.put("reporter", issue.getReporter() != null ? toJson(issue.getReporter()) : JSONObject.NULL);
+
+        if (issue.getFixVersions() != null) {
+            JSONArray fixVersions = new JSONArray();
+            for (Version version : issue.getFixVersions()) {
+                fixVersions.put(toJson(version));
+            }
+            fields.put("fixVersions", fixVersions);
+        }
+        if (issue.getComponents() != null) {
+            JSONArray components = new JSONArray();
+            for (BasicComponent component : issue.getComponents()) {
+                components.put(toJson(component));
+            }
+            fields.put("components", components);
+        }
+        if (issue.getLabels() != null) {
+            fields.put("labels", new JSONArray(issue.getLabels()));
+        }
+
+        JSONObject json = new JSONObject();
+        json.put("self", toString(issue.getSelf()));
+        json.put("key", issue.getKey());
+        json.put("id", String.valueOf(issue.getId()));
+        json.put("fields", fields);
+        json.put("names", names);
+        json.put("schema", schema);
+        return json.toString();
+    }
+
+    private static JSONObject toJson(IssueType issueType) throws JSONException {
+        return new JSONObject()
+                .put("self", toString(issueType.getSelf()))
+                .put("id", String.valueOf(issueType.getId()))
+                .put("name", issueType.getName())
+                .put("subtask", issueType.isSubtask());
+    }
+
+    private static JSONObject toJson(Status status) throws JSONException {
+        return new JSONObject()
+                .put("self", toString(status.getSelf()))
+                .put("id", String.valueOf(status.getId()))
+                .put("name", status.getName());
+    }
+
+    private static JSONObject toJson(BasicProject project) throws JSONException {
+        JSONObject json = new JSONObject()
+                .put("self", toString(project.getSelf()))
+                .put("key", project.getKey());
+        putNullable(json, "name", project.getName());
+        if (project.getId() != null) {
+            json.put("id", String.valueOf(project.getId()));
+        }
+        return json;
+    }
+
+    private static JSONObject toJson(User user) throws JSONException {
+        return new JSONObject()
+                .put("self", toString(user.getSelf()))
+                .put("name", user.getName())
+                .put("displayName", user.getDisplayName())
+                .put("avatarUrls", new JSONObject());
+    }
+
+    private static JSONObject toJson(Version version) throws JSONException {
+        JSONObject json = new JSONObject()
+                .put("self", toString(version.getSelf()))
+                .put("id", String.valueOf(version.getId()))
+                .put("name", version.getName())
+                .put("archived", version.isArchived())
+                .put("released", version.isReleased());
+        if (version.getReleaseDate() != null) {
+            json.put("releaseDate", version.getReleaseDate().toString("yyyy-MM-dd"));
+        }
+        return json;
+    }
+
+    private static JSONObject toJson(BasicComponent component) throws JSONException {
+        return new JSONObject()
+                .put("self", toString(component.getSelf()))
+                .put("id", String.valueOf(component.getId()))
+                .put("name", component.getName());
+    }
+
+    private static void putNullable(JSONObject json, String key, Object value) throws JSONException {
+        json.put(key, value != null ? value : JSONObject.NULL);
+    }
+
+    private static String formatDateTime(DateTime dateTime) {
+        return dateTime != null ? JIRA_DATE_TIME.print(dateTime) : null;
+    }
+
+    private static String toString(URI uri) {
+        return uri != null ? uri.toString() : null;
+    }
+}
@@ -0,0 +1,170 @@
+package de.phib.jiratools;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves many issue keys to their current keys with a few {@code key in (...)} searches instead of one search per
+ * key.
+ * <p>
+ * JIRA rejects a {@code key in (...)} query as a whole if one of the keys doesn't exist, and it returns moved issues
+ * under their new key without telling which of the requested keys matched. In both cases the affected chunk is split
+ * in halves and resolved again, until every key is either matched or known to be unresolvable.
+ */
+class IssueKeyResolver {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IssueKeyResolver.class);
+
+    /**
+     * Number of keys per search. Keeps the JQL short enough for a GET request and the result within one page.
+     */
+    static final int CHUNK_SIZE = 50;
+
+    private final JiraApiConnector jiraApiConnector;
+    private final Executor executor;
+    private final Set<SearchField> fields;
+
+    IssueKeyResolver(JiraApiConnector jiraApiConnector, Executor executor) {
+        this(jiraApiConnector, executor, EnumSet.noneOf(SearchField.class));
+    }
+
+    /**
+     * @param fields the fields of the issues returned by {@link #findAsync(Collection)}
+     */
+    IssueKeyResolver(JiraApiConnector jiraApiConnector, Executor executor, Set<SearchField> fields) {
+        this.jiraApiConnector = jiraApiConnector;
+        this.executor = executor;
+        this.fields = fields;
+    }
+
+    /**
+     * Resolves the current key of each of the given issue keys. The chunks are searched concurrently.
+     *
+     * @param keys the issue keys to resolve
+     * @return Map of requested keys to current keys. Keys that can't be found are mapped to themselves.
+     */
+    Map<String, String> resolve(Collection<String> keys) {
+        return resolveAsync(keys).join();
+    }
+
+    /**
+     * Resolves the current key of each of the given issue keys without blocking the calling thread.
+     *
+     * @param keys the issue keys to resolve
+     * @return a future of the map of requested keys to current keys
+     * @see #resolve(Collection)
+     */
+    CompletableFuture<Map<String, String>> resolveAsync(Collection<String> keys) {
+        return findAsync(keys).thenApply(issues -> {
+            Map<String, String> aliases = new HashMap<>();
+            keys.forEach(key -> aliases.put(key, issues.containsKey(key) ? issues.get(key).getKey() : key));
+            return aliases;
+        });
+    }
+
+    /**
+     * Fetches the issues of the given keys, following moved issues, without blocking the calling thread. The chunks
+     * are searched concurrently.
+     *
+     * @param keys the issue keys
+     * @return a future of the map of requested keys to issues, whose key differs from the requested one if the issue
+     * was moved. Keys that can't be found are missing.
+     */
+    CompletableFuture<Map<String, Issue>> findAsync(Collection<String> keys) {
+        List<String> sortedKeys = new ArrayList<>(new TreeSet<>(keys));
+
+        List<CompletableFuture<Map<String, Issue>>> chunks = new ArrayList<>();
+        for (int i = 0; i < sortedKeys.size(); i += CHUNK_SIZE) {
+            List<String> chunk = sortedKeys.subList(i, Math.min(i + CHUNK_SIZE, sortedKeys.size()));
+            chunks.add(CompletableFuture.supplyAsync(() -> findChunk(chunk), executor));
+        }
+
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0])).thenApply(done -> {
+            Map<String, Issue> issues = new HashMap<>();
+            chunks.forEach(chunk -> issues.putAll(chunk.join()));
+            return issues;
+        });
+    }
+
+    private Map<String, Issue> findChunk(List<String> keys) {
+        Map<String, Issue> found = new HashMap<>();
+
+        List<Issue> issues;
+        try {
+            String jql = String.format("key in (%s)", String.join(", ", keys));
+            issues = jiraApiConnector.fetchIssues(jql, fields);
+        } catch (JiraSearchException e) {
+            if (!e.isInvalidQuery()) {
+                // transient errors were already retried, splitting the chunk would only add load
+                throw e;
+            }
+            if (keys.size() == 1) {
+                LOG.debug("Couldn't resolve issue key {}", keys.get(0), e);
+                return found;
+            }
+            return bisect(keys);
+        }
+
+        if (keys.size() == 1) {
+            if (!issues.isEmpty()) {
+                found.put(keys.get(0), issues.get(0));
+            }
+            return found;
+        }
+
+        Set<String> requestedKeys = new HashSet<>(keys);
+        List<Issue> movedIssues = new ArrayList<>();
+        for (Issue issue : issues) {
+            if (requestedKeys.contains(issue.getKey())) {
+                found.put(issue.getKey(), issue);
+            } else {
+                movedIssues.add(issue);
+            }
+        }
+
+        List<String> unmatchedKeys = keys.stream()
+                .filter(key -> !found.containsKey(key))
+                .collect(Collectors.toList());
+        if (unmatchedKeys.isEmpty()) {
+            return found;
+        }
+        if (movedIssues.isEmpty()) {
+            // the unmatched keys don't exist anymore, or they are old keys of issues that were requested by their
+            // current key as well; a single search for them alone tells which, no need to bisect
+            if (!found.isEmpty()) {
+                found.putAll(findChunk(unmatchedKeys));
+            }
+        } else if (unmatchedKeys.size() == 1 && movedIssues.size() == 1) {
+            found.put(unmatchedKeys.get(0), movedIssues.get(0));
+        } else {
+            // ambiguous which requested key belongs to which moved issue
+            found.putAll(bisect(unmatchedKeys));
+        }
+
+        return found;
+    }
+
+    private Map<String, Issue> bisect(List<String> keys) {
+        if (keys.size() == 1) {
+            return findChunk(keys);
+        }
+        int middle = keys.size() / 2;
+        Map<String, Issue> found = new HashMap<>(findChunk(keys.subList(0, middle)));
+        found.putAll(findChunk(keys.subList(middle, keys.size())));
+        return found;
+    }
+}
@@ -0,0 +1,231 @@
+package de.phib.jiratools;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import org.codehaus.jettison.json.JSONException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A local, persistent store of fetched issues, so that repeated runs don't need to fetch all issues from JIRA again.
+ * <p>
+ * The issues are kept in an append-only log with one line per issue ({@code KEY<TAB>JSON}); a later line for the
+ * same key replaces the earlier one. Opening the store only reads the lines, the issues are parsed on first access.
+ * Unchanged issues aren't written again, and the log is compacted when more than half of its lines are outdated.
+ */
+public class IssueStore implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IssueStore.class);
+
+    private static final String LOG_FILE_NAME = "issues.log";
+
+    private final Path directory;
+    private final Path logFile;
+
+    private final Map<String, String> jsonByKey = new HashMap<>();
+    private final Map<String, Issue> parsedIssues = new HashMap<>();
+    private int lineCount = 0;
+    private BufferedWriter writer;
+
+    /**
+     * Opens the store in the given directory, creating it if necessary.
+     *
+     * @param directory the directory of the store
+     * @throws IOException if the store can't be read
+     */
+    public IssueStore(@NonNull Path directory) throws IOException {
+        this.directory = directory;
+        this.logFile = directory.resolve(LOG_FILE_NAME);
+        Files.createDirectories(directory);
+
+        long start = System.currentTimeMillis();
+        if (Files.exists(logFile)) {
+            try (BufferedReader reader = Files.newBufferedReader(logFile, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int separator = line.indexOf('\t');
+                    if (separator > 0) {
+                        jsonByKey.put(line.substring(0, separator), line.substring(separator + 1));
+                        lineCount++;
+                    }
+                }
+            }
+        }
+        LOG.debug("Loaded {} issues from {} in {} ms", jsonByKey.size(), logFile, System.currentTimeMillis() - start);
+
+        compactIfNeeded();
+    }
+
+    /**
+     * @return the directory of the store
+     */
+    @NonNull
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Returns a stored issue.
+     *
+     * @param key the issue key
+     * @return the stored issue or null if the issue isn't stored (or can't be read anymore)
+     */
+    @Nullable
+    public synchronized Issue get(@NonNull String key) {
+        Issue issue = parsedIssues.get(key);
+        if (issue == null) {
+            String json = jsonByKey.get(key);
+            if (json != null) {
+                try {
+                    issue = IssueJsonCodec.fromJson(json);
+                    parsedIssues.put(key, issue);
+                } catch (JSONException e) {
+                    LOG.warn("Couldn't read stored issue {}", key, e);
+                    jsonByKey.remove(key);
+                }
+            }
+        }
+        return issue;
+    }
+
+    /**
+     * Returns the stored issues with the given keys.
+     *
+     * @param keys the issue keys
+     * @return the stored issues, issues that aren't stored are skipped
+     */
+    @NonNull
+    public synchronized List<Issue> getAll(@NonNull Collection<String> keys) {
+        List<Issue> issues = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            Issue issue = get(key);
+            if (issue != null) {
+                issues.add(issue);
+            }
+        }
+        return issues;
+    }
+
+    /**
+     * @return the keys of all stored issues, sorted
+     */
+    @NonNull
+    public synchronized Set<String> keys() {
+        return new TreeSet<>(jsonByKey.keySet());
+    }
+
+    /**
+     * Stores an issue, replacing an older version of the same issue.
+     *
+     * @param issue the issue
+     */
+    public void put(@NonNull Issue issue) {
+        putAll(Collections.singletonList(issue));
+    }
+
+    /**
+     * Stores issues, replacing older versions of the same issues. Issues equal to their stored version are skipped.
+     *
+     * @param issues the issues
+     */
+    public synchronized void putAll(@NonNull Iterable<Issue> issues) {
+        try {
+            BufferedWriter out = null;
+            for (Issue issue : issues) {
+                String json = IssueJsonCodec.toJson(issue);
+                if (json.equals(jsonByKey.get(issue.getKey()))) {
+                    continue;
+                }
+                if (out == null) {
+                    out = getWriter();
+                }
+                out.write(issue.getKey());
+                out.write('\t');
+                out.write(json);
+                out.newLine();
+                jsonByKey.put(issue.getKey(), json);
+                parsedIssues.remove(issue.getKey());
+                lineCount++;
+            }
+            if (out != null) {
+                out.flush();
+                compactIfNeeded();
+            }
+        } catch (IOException | JSONException e) {
+            LOG.error("Couldn't write issues to {}", logFile, e);
+        }
+    }
+
+    /**
+     * @return the number of lines in the log, including outdated versions of issues
+     */
+    synchronized int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Rewrites the log so that it only contains the current version of each issue.
+     *
+     * @throws IOException if the log can't be written
+     */
+    public synchronized void compact() throws IOException {
+        closeWriter();
+        Path compacted = directory.resolve(LOG_FILE_NAME + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(compacted, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String> entry : jsonByKey.entrySet()) {
+                out.write(entry.getKey());
+                out.write('\t');
+                out.write(entry.getValue());
+                out.newLine();
+            }
+        }
+        Files.move(compacted, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        LOG.debug("Compacted {} from {} to {} lines", logFile, lineCount, jsonByKey.size());
+        lineCount = jsonByKey.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closeWriter();
+    }
+
+    private void compactIfNeeded() throws IOException {
+        if (lineCount > 2 * jsonByKey.size()) {
+            compact();
+        }
+    }
+
+    private BufferedWriter getWriter() throws IOException {
+        if (writer == null) {
+            writer = Files.newBufferedWriter(logFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        return writer;
+    }
+
+    private void closeWriter() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+}
@@ -1,17 +1,37 @@
 package de.phib.jiratools;
 
-import com.atlassian.fugue.Iterables;
 import com.atlassian.jira.rest.client.api.JiraRestClient;
 import com.atlassian.jira.rest.client.api.SearchRestClient;
 import com.atlassian.jira.rest.client.api.domain.Issue;
 import com.atlassian.jira.rest.client.api.domain.SearchResult;
 import com.atlassian.jira.rest.client.internal.async.AsynchronousJiraRestClientFactory;
 import com.atlassian.util.concurrent.Promise;
+import de.phib.metrics.Metrics;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Provides the functionality to execute a search for issues in JIRA based on a given JQL search query
@@ -20,10 +40,55 @@ public class JiraApiConnector {
 
     private static final Logger LOG = LoggerFactory.getLogger(JiraApiConnector.class);
 
-    private static final int SEARCH_MAX_RESULTS = 10000;
+    /**
+     * Number of issues requested per page. JIRA caps the page size on the server side (usually at 50, 100 or 1000),
+     * the effective page size is taken from the first response.
+     */
+    public static final int DEFAULT_PAGE_SIZE = 100;
+
+    /**
+     * Number of pages fetched concurrently.
+     */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /**
+     * Number of pages held in memory while streaming search results.
+     */
+    public static final int DEFAULT_MAX_BUFFERED_PAGES = 3;
+
+    /**
+     * Format of date-time values in JQL. JQL compares with minute precision in the time zone of the JIRA user.
+     */
+    private static final String JQL_DATE_TIME_PATTERN = "yyyy/MM/dd HH:mm";
+
+    /**
+     * The zone behind all others. A local time in it denotes the same or an earlier instant in any other zone.
+     */
+    private static final DateTimeZone WESTERNMOST_ZONE = DateTimeZone.forOffsetHours(-12);
+
+    /**
+     * The fields of key-only searches: none beyond the {@link SearchField#REQUIRED} ones.
+     */
+    private static final Set<SearchField> KEY_FIELDS = Collections.unmodifiableSet(EnumSet.noneOf(SearchField.class));
 
     private JiraRestClient jiraRestClient;
 
+    private final int pageSize;
+
+    private final ExecutorService pageExecutor;
+
+    private int maxBufferedPages = DEFAULT_MAX_BUFFERED_PAGES;
+
+    private DateTimeZone timeZone;
+
+    private IssueStore issueStore;
+
+    private Set<String> storedFieldIds;
+
+    private RequestScheduler requestScheduler;
+
+    private Metrics metrics = Metrics.noop();
+
     /**
      * Creates a new instance of JiraApiConnector.
      *
@@ -32,6 +97,27 @@ public class JiraApiConnector {
      * @param password the password of the user
      */
     public JiraApiConnector(String uri, String username, String password) {
+        this(uri, username, password, DEFAULT_PAGE_SIZE, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Creates a new instance of JiraApiConnector.
+     *
+     * @param uri         the URI of JIRA
+     * @param username    the name of the user to access the JIRA REST API
+     * @param password    the password of the user
+     * @param pageSize    the number of issues requested per search request
+     * @param parallelism the maximum number of search requests running at the same time
+     */
+    public JiraApiConnector(String uri, String username, String password, int pageSize, int parallelism) {
+        if (pageSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("pageSize and parallelism must be positive");
+        }
+        this.pageSize = pageSize;
+        this.pageExecutor = Executors.newFixedThreadPool(parallelism, new DaemonThreadFactory("jira-search"));
+        this.requestScheduler = new RequestScheduler(parallelism, RequestScheduler.DEFAULT_REQUESTS_PER_SECOND,
+                RequestScheduler.DEFAULT_MAX_RETRIES);
+
         try {
             AsynchronousJiraRestClientFactory clientFactory = new AsynchronousJiraRestClientFactory();
             URI jiraUri = new URI(uri);
@@ -44,33 +130,515 @@ public class JiraApiConnector {
     /**
      * Executes a search for issues in JIRA based on a given JQL search query and returns the resulting issues.
      * <p>
+     * The first page is requested to learn the total number of results and the page size the server actually
+     * grants. The remaining pages are then requested concurrently and reassembled in the order given by the JQL.
+     * <p>
      * For more information about the JIRA REST API for search see:
      * https://docs.atlassian.com/jira-rest-java-client-parent/5.0.4/apidocs/com/atlassian/jira/rest/client/api/SearchRestClient.html#searchJql(java.lang.String,%20java.lang.Integer,%20java.lang.Integer,%20java.util.Set)
      *
      * @param jql a JQL search query
      * @return the resulting issues
+     * @throws JiraSearchException if the search fails, e.g. because JIRA keeps rejecting requests
      */
     public Iterable<Issue> searchIssues(String jql) {
-        Iterable<Issue> issues = Iterables.emptyIterable();
+        return searchIssues(jql, null);
+    }
+
+    /**
+     * Executes a search for issues in JIRA and returns the resulting issues with only the given fields populated.
+     *
+     * @param jql    a JQL search query
+     * @param fields the fields to fetch, or {@code null} for all fields
+     * @return the resulting issues
+     * @throws JiraSearchException if the search fails
+     * @see #searchIssues(String)
+     */
+    public Iterable<Issue> searchIssues(String jql, Set<SearchField> fields) {
+        return fetchIssues(jql, fields);
+    }
 
+    /**
+     * Executes a search for issues in JIRA like {@link #searchIssues(String, Set)}.
+     *
+     * @param jql    a JQL search query
+     * @param fields the fields to fetch, or {@code null} for all fields
+     * @return the resulting issues
+     * @throws JiraSearchException if any page of the search fails
+     */
+    List<Issue> fetchIssues(String jql, Set<SearchField> fields) {
         try {
-            LOG.debug("Starting search...");
-            LOG.debug("Search query: {}", jql);
+            return searchIssuesAsync(jql, fields).join();
+        } catch (CompletionException e) {
+            throw toSearchException(jql, e);
+        }
+    }
+
+    /**
+     * Executes a search for issues in JIRA without blocking the calling thread.
+     * <p>
+     * The pages are fetched as described in {@link #searchIssues(String)}. The returned future completes with the
+     * issues in the order given by the JQL, or exceptionally with a {@link JiraSearchException}.
+     *
+     * @param jql    a JQL search query
+     * @param fields the fields to fetch, or {@code null} for all fields
+     * @return a future of the resulting issues
+     */
+    public CompletableFuture<List<Issue>> searchIssuesAsync(String jql, Set<SearchField> fields) {
+        Set<String> fieldIds = SearchField.toFieldIds(fields);
 
-            Promise<SearchResult> result = getSearchClient().searchJql(jql, SEARCH_MAX_RESULTS, 0, null);
-            SearchResult resultObject = result.get();
-            issues = resultObject.getIssues();
+        LOG.debug("Starting search...");
+        LOG.debug("Search query: {}", jql);
+
+        long start = System.nanoTime();
+        CompletableFuture<List<Issue>> result = supplyAsync(() -> searchPage(jql, 0, pageSize, fieldIds))
+                .thenCompose(firstPage -> searchRemainingPages(jql, firstPage, fieldIds))
+                .whenComplete((issues, failure) -> {
+                    metrics.recordTime("jira.search.time", System.nanoTime() - start);
+                    if (issues != null) {
+                        metrics.recordValue("jira.search.issues", issues.size());
+                    } else {
+                        metrics.increment("jira.search.failures");
+                    }
+                });
+        return withSearchException(jql, result);
+    }
+
+    private CompletableFuture<List<Issue>> searchRemainingPages(String jql, SearchResult firstPage, Set<String> fieldIds) {
+        List<Issue> firstIssues = new ArrayList<>();
+        firstPage.getIssues().forEach(firstIssues::add);
+
+        // the server may grant less than the requested page size
+        int effectivePageSize = Math.max(1, Math.min(firstPage.getMaxResults(), pageSize));
+        if (!firstIssues.isEmpty()) {
+            effectivePageSize = Math.min(effectivePageSize, firstIssues.size());
+        }
+
+        List<CompletableFuture<List<Issue>>> pages = new ArrayList<>();
+        for (int startAt = firstIssues.size(); startAt < firstPage.getTotal(); startAt += effectivePageSize) {
+            final int windowStart = startAt;
+            final int windowSize = Math.min(effectivePageSize, firstPage.getTotal() - startAt);
+            pages.add(supplyAsync(() -> searchWindow(jql, windowStart, windowSize, fieldIds)));
+        }
+
+        return CompletableFuture.allOf(pages.toArray(new CompletableFuture[0])).thenApply(done -> {
+            List<Issue> result = new ArrayList<>(firstPage.getTotal());
+            result.addAll(firstIssues);
+            pages.forEach(page -> result.addAll(page.join()));
 
             LOG.debug("Search finished.");
-            LOG.debug("Number of results: {}", resultObject.getTotal());
-        } catch (Exception e) {
-            LOG.error("An error occurred during the search for issues with the query '{}'.", jql, e);
+            LOG.debug("Number of results: {} (fetched in {} pages)", firstPage.getTotal(), pages.size() + 1);
+            return result;
+        });
+    }
+
+    /**
+     * Executes a search for issues in JIRA and returns the resulting issues lazily.
+     * <p>
+     * Pages are requested one after another while the caller consumes the result, with the next pages already being
+     * fetched in the background. Only a bounded number of pages is held in memory (see
+     * {@link #setMaxBufferedPages(int)}), so arbitrarily large results can be aggregated in constant memory.
+     *
+     * @param jql a JQL search query
+     * @return an iterator over the resulting issues; it throws a {@link JiraSearchException} if a page can't be fetched
+     */
+    public Iterator<Issue> iterateIssues(String jql) {
+        return iterateIssues(jql, null);
+    }
+
+    /**
+     * Executes a search for issues in JIRA and returns the resulting issues lazily, with only the given fields
+     * populated.
+     *
+     * @param jql    a JQL search query
+     * @param fields the fields to fetch, or {@code null} for all fields
+     * @return an iterator over the resulting issues
+     * @see #iterateIssues(String)
+     */
+    public Iterator<Issue> iterateIssues(String jql, Set<SearchField> fields) {
+        LOG.debug("Starting streaming search...");
+        LOG.debug("Search query: {}", jql);
+
+        Set<String> fieldIds = SearchField.toFieldIds(fields);
+        return new PagedIssueIterator(jql, (startAt, maxResults) -> searchPage(jql, startAt, maxResults, fieldIds),
+                pageExecutor, pageSize, maxBufferedPages);
+    }
+
+    /**
+     * Executes a search for issues in JIRA and returns the resulting issues as a lazy, sequential stream.
+     *
+     * @param jql a JQL search query
+     * @return a stream over the resulting issues
+     * @see #iterateIssues(String)
+     */
+    public Stream<Issue> streamIssues(String jql) {
+        return streamIssues(jql, null);
+    }
+
+    /**
+     * Executes a search for issues in JIRA and returns the resulting issues as a lazy, sequential stream, with only
+     * the given fields populated.
+     *
+     * @param jql    a JQL search query
+     * @param fields the fields to fetch, or {@code null} for all fields
+     * @return a stream over the resulting issues
+     * @see #iterateIssues(String)
+     */
+    public Stream<Issue> streamIssues(String jql, Set<SearchField> fields) {
+        Spliterator<Issue> spliterator = Spliterators.spliteratorUnknownSize(iterateIssues(jql, fields),
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    /**
+     * Sets the number of pages held in memory while streaming search results, including the page currently
+     * consumed.
+     *
+     * @param maxBufferedPages the maximum number of buffered pages, at least 2
+     */
+    public void setMaxBufferedPages(int maxBufferedPages) {
+        if (maxBufferedPages < 2) {
+            throw new IllegalArgumentException("At least two pages must be buffered");
         }
+        this.maxBufferedPages = maxBufferedPages;
+    }
+
+    /**
+     * Sets the time zone of the JIRA user, in which JIRA reads the date-time values of queries.
+     *
+     * @param timeZone the time zone, or {@code null} if unknown
+     * @see #formatJqlDateTime(DateTime)
+     */
+    public void setTimeZone(DateTimeZone timeZone) {
+        this.timeZone = timeZone;
+    }
 
-        return issues;
+    /**
+     * Formats a date-time value for a JQL query like {@code updated >= "<value>"}. The value never denotes a later
+     * instant than the given one: it is truncated to minutes, and if the time zone of the JIRA user isn't set, it is
+     * formatted in UTC-12, so that it matches up to a day more than needed instead of missing anything.
+     *
+     * @param dateTime the date-time
+     * @return the value, without quotes
+     */
+    String formatJqlDateTime(DateTime dateTime) {
+        return dateTime.withZone(timeZone != null ? timeZone : WESTERNMOST_ZONE).toString(JQL_DATE_TIME_PATTERN);
+    }
+
+    /**
+     * Sets the scheduler limiting and retrying the requests to JIRA. Connectors for the same JIRA can share a
+     * scheduler, so that they don't exceed the rate limit together.
+     *
+     * @param requestScheduler the scheduler
+     */
+    public void setRequestScheduler(RequestScheduler requestScheduler) {
+        if (requestScheduler == null) {
+            throw new IllegalArgumentException("requestScheduler must not be null");
+        }
+        this.requestScheduler = requestScheduler;
+    }
+
+    /**
+     * @return the scheduler limiting and retrying the requests to JIRA
+     */
+    public RequestScheduler getRequestScheduler() {
+        return requestScheduler;
+    }
+
+    /**
+     * Sets the metrics recording the searches and requests of this connector:
+     * <ul>
+     * <li>{@code jira.search.time}, {@code jira.search.issues}: duration and size of complete searches</li>
+     * <li>{@code jira.search.failures}: searches that failed after all retries</li>
+     * <li>{@code jira.request.time}: duration of single requests, including the parsing of the response</li>
+     * <li>{@code jira.request.wait}: time a request waited for the rate limit or a retry</li>
+     * <li>{@code jira.queue.wait}: time a request waited for a free search thread</li>
+     * <li>{@code jira.page.issues}: issues per page</li>
+     * <li>{@code jira.store.write.time}: time spent writing fetched issues to the local store</li>
+     * <li>{@code jira.requests}, {@code jira.request.retries}, {@code jira.request.throttled}: request counts</li>
+     * </ul>
+     *
+     * @param metrics the metrics
+     */
+    public void setMetrics(Metrics metrics) {
+        this.metrics = metrics != null ? metrics : Metrics.noop();
+        this.metrics.gauge("jira.requests", () -> requestScheduler.getRequestCount());
+        this.metrics.gauge("jira.request.retries", () -> requestScheduler.getRetryCount());
+        this.metrics.gauge("jira.request.throttled", () -> requestScheduler.getThrottledCount());
+    }
+
+    /**
+     * @return the metrics recording the searches and requests of this connector
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets a local store, to which all issues fetched with at least the given fields are written.
+     *
+     * @param issueStore   the store, or {@code null} to disable storing issues
+     * @param storedFields the fields a fetched issue must contain to be stored, or {@code null} for all fields
+     */
+    public void setIssueStore(IssueStore issueStore, Set<SearchField> storedFields) {
+        this.issueStore = issueStore;
+        this.storedFieldIds = SearchField.toFieldIds(storedFields);
+    }
+
+    /**
+     * @return the local issue store, or {@code null} if none is set
+     */
+    public IssueStore getIssueStore() {
+        return issueStore;
+    }
+
+    /**
+     * Fetches a single issue by its key.
+     * <p>
+     * If the issue is in the local store, it is only revalidated: a search for the required fields tells its current
+     * update time, and only if that differs from the stored version the requested fields are fetched.
+     *
+     * @param key    the issue key
+     * @param fields the fields to fetch, or {@code null} for all fields
+     * @return the issue, or {@code null} if it doesn't exist
+     * @throws JiraSearchException if the issue can't be fetched
+     */
+    public Issue fetchIssue(String key, Set<SearchField> fields) {
+        try {
+            return fetchIssueAsync(key, fields).join();
+        } catch (CompletionException e) {
+            throw toSearchException(key, e);
+        }
+    }
+
+    /**
+     * Fetches a single issue by its key without blocking the calling thread, see {@link #fetchIssue(String, Set)}.
+     *
+     * @param key    the issue key
+     * @param fields the fields to fetch, or {@code null} for all fields
+     * @return a future of the issue, completing with {@code null} if it doesn't exist
+     */
+    public CompletableFuture<Issue> fetchIssueAsync(String key, Set<SearchField> fields) {
+        Set<String> fieldIds = SearchField.toFieldIds(fields);
+        Issue stored = isStored(fieldIds) ? issueStore.get(key) : null;
+        if (stored != null && stored.getUpdateDate() != null) {
+            return fetchIssueFromServerAsync(key, KEY_FIELDS)
+                    .thenCompose(current -> {
+                        if (current != null && current.getKey().equals(stored.getKey())
+                                && current.getUpdateDate() != null
+                                && current.getUpdateDate().isEqual(stored.getUpdateDate())) {
+                            return CompletableFuture.completedFuture(stored);
+                        }
+                        return current == null ? CompletableFuture.completedFuture(null)
+                                : fetchIssueFromServerAsync(key, fields);
+                    })
+                    .exceptionally(e -> {
+                        LOG.warn("Couldn't revalidate issue {}, using the stored version.", key, e);
+                        return stored;
+                    });
+        }
+        return fetchIssueFromServerAsync(key, fields);
+    }
+
+    private CompletableFuture<Issue> fetchIssueFromServerAsync(String key, Set<SearchField> fields) {
+        CompletableFuture<List<Issue>> issues = searchIssuesAsync(String.format("key = %s", key), fields);
+        return issues.handle((result, failure) -> {
+            if (failure == null) {
+                return result.isEmpty() ? null : result.get(0);
+            }
+            JiraSearchException e = toSearchException(key, failure);
+            if (e.isInvalidQuery()) {
+                // JIRA rejects queries for keys that don't exist
+                return null;
+            }
+            throw e;
+        });
+    }
+
+    /**
+     * Counts the issues matching a query with a single {@code maxResults=0} request, which returns the total without
+     * any issue.
+     *
+     * @param jql a JQL search query
+     * @return the number of matching issues
+     * @throws JiraSearchException if the search fails
+     */
+    public int countIssues(String jql) {
+        try {
+            return countIssuesAsync(jql).join();
+        } catch (CompletionException e) {
+            throw toSearchException(jql, e);
+        }
+    }
+
+    /**
+     * Counts the issues matching a query without blocking the calling thread, see {@link #countIssues(String)}.
+     *
+     * @param jql a JQL search query
+     * @return a future of the number of matching issues
+     */
+    public CompletableFuture<Integer> countIssuesAsync(String jql) {
+        Set<String> fieldIds = SearchField.toFieldIds(KEY_FIELDS);
+        return withSearchException(jql, supplyAsync(() -> searchPage(jql, 0, 0, fieldIds).getTotal()));
+    }
+
+    /**
+     * Checks whether an issue exists, without fetching it. Moved issues exist under their old key as well.
+     *
+     * @param key the issue key
+     * @return {@code true} if the issue exists
+     * @throws JiraSearchException if the check fails
+     */
+    public boolean existsIssue(String key) {
+        try {
+            return countIssues(String.format("key = %s", key)) > 0;
+        } catch (JiraSearchException e) {
+            if (e.isInvalidQuery()) {
+                // JIRA rejects queries for keys that don't exist
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Executes a search for the keys of the matching issues only. The issues are requested with the minimal set of
+     * fields the JIRA REST client can parse (see {@link SearchField#REQUIRED}) and aren't written to the issue store.
+     *
+     * @param jql a JQL search query
+     * @return the keys of the resulting issues, in the order given by the JQL
+     * @throws JiraSearchException if the search fails
+     */
+    public List<String> searchKeys(String jql) {
+        try {
+            return searchKeysAsync(jql).join();
+        } catch (CompletionException e) {
+            throw toSearchException(jql, e);
+        }
+    }
+
+    /**
+     * Executes a search for the keys of the matching issues without blocking the calling thread, see
+     * {@link #searchKeys(String)}.
+     *
+     * @param jql a JQL search query
+     * @return a future of the keys of the resulting issues
+     */
+    public CompletableFuture<List<String>> searchKeysAsync(String jql) {
+        return searchIssuesAsync(jql, KEY_FIELDS).thenApply(issues -> {
+            List<String> keys = new ArrayList<>(issues.size());
+            issues.forEach(issue -> keys.add(issue.getKey()));
+            return keys;
+        });
+    }
+
+    /**
+     * Fetches all issues of the window {@code [startAt, startAt + count)}. Usually this takes a single request, but if
+     * the server returns less issues than requested, the rest of the window is fetched with follow-up requests.
+     */
+    private List<Issue> searchWindow(String jql, int startAt, int count, Set<String> fieldIds) throws Exception {
+        List<Issue> window = new ArrayList<>(count);
+        while (window.size() < count) {
+            SearchResult page = searchPage(jql, startAt + window.size(), count - window.size(), fieldIds);
+            int sizeBefore = window.size();
+            page.getIssues().forEach(window::add);
+            if (window.size() == sizeBefore) {
+                // the result set shrank while we were paging
+                break;
+            }
+        }
+        return window;
+    }
+
+    private SearchResult searchPage(String jql, int startAt, int maxResults, Set<String> fieldIds) throws Exception {
+        long[] waitStart = {System.nanoTime()};
+        SearchResult searchResult = requestScheduler.execute(() -> {
+            long requestStart = System.nanoTime();
+            metrics.recordTime("jira.request.wait", requestStart - waitStart[0]);
+            try {
+                Promise<SearchResult> result = getSearchClient().searchJql(jql, maxResults, startAt, fieldIds);
+                return result.get();
+            } finally {
+                waitStart[0] = System.nanoTime();
+                metrics.recordTime("jira.request.time", waitStart[0] - requestStart);
+            }
+        }, maxResults);
+
+        int issues = 0;
+        for (Issue ignored : searchResult.getIssues()) {
+            issues++;
+        }
+        metrics.recordValue("jira.page.issues", issues);
+
+        if (isStored(fieldIds)) {
+            long storeStart = System.nanoTime();
+            issueStore.putAll(searchResult.getIssues());
+            metrics.recordTime("jira.store.write.time", System.nanoTime() - storeStart);
+        }
+        return searchResult;
+    }
+
+    /**
+     * Runs a blocking request on the page executor.
+     */
+    private <T> CompletableFuture<T> supplyAsync(Callable<T> request) {
+        long submitted = System.nanoTime();
+        return CompletableFuture.supplyAsync(() -> {
+            metrics.recordTime("jira.queue.wait", System.nanoTime() - submitted);
+            try {
+                return request.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            }
+        }, pageExecutor);
+    }
+
+    private static <T> CompletableFuture<T> withSearchException(String jql, CompletableFuture<T> future) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        future.whenComplete((value, failure) -> {
+            if (failure == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(toSearchException(jql, failure));
+            }
+        });
+        return result;
+    }
+
+    private static JiraSearchException toSearchException(String jql, Throwable failure) {
+        Throwable cause = failure;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof JiraSearchException ? (JiraSearchException) cause : new JiraSearchException(jql, cause);
+    }
+
+    private boolean isStored(Set<String> fieldIds) {
+        return issueStore != null
+                && (fieldIds == null || storedFieldIds != null && fieldIds.containsAll(storedFieldIds));
     }
 
     private SearchRestClient getSearchClient() {
         return jiraRestClient.getSearchClient();
     }
+
+    /**
+     * Creates daemon threads, so that idle pools don't keep the JVM alive.
+     */
+    static class DaemonThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
 }
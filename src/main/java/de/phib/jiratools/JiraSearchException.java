@@ -0,0 +1,36 @@
+package de.phib.jiratools;
+
+/**
+ * Signals that a search for issues in JIRA failed, e.g. because of an invalid JQL query or an unreachable server.
+ */
+public class JiraSearchException extends RuntimeException {
+
+    private final String jql;
+
+    public JiraSearchException(String jql, Throwable cause) {
+        super("An error occurred during the search for issues with the query '" + jql + "'.", cause);
+        this.jql = jql;
+    }
+
+    /**
+     * @return the JQL query of the failed search
+     */
+    public String getJql() {
+        return jql;
+    }
+
+    /**
+     * @return the HTTP status code of the failed request, or {@code null} if the search didn't fail with an HTTP error
+     */
+    public Integer getStatusCode() {
+        return RequestScheduler.getStatusCode(getCause());
+    }
+
+    /**
+     * @return whether JIRA rejected the query itself (HTTP 400), e.g. because it references an unknown issue key
+     */
+    public boolean isInvalidQuery() {
+        Integer statusCode = getStatusCode();
+        return statusCode != null && statusCode == 400;
+    }
+}
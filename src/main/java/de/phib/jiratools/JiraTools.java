@@ -1,19 +1,36 @@
 package de.phib.jiratools;
 
-import com.atlassian.jira.rest.client.api.domain.BasicIssue;
 import com.atlassian.jira.rest.client.api.domain.Issue;
 import com.atlassian.jira.rest.client.api.domain.IssueField;
 import com.atlassian.jira.rest.client.api.domain.Version;
+import com.google.common.base.Ticker;
+import com.google.common.collect.Sets;
+import de.phib.ToolDataConstants;
 import de.phib.jiratools.tools.CalculateRemainingEstimates;
+import de.phib.jiratools.tools.EstimateAggregator;
+import de.phib.jiratools.tools.EstimateAggregator.Dimension;
 import de.phib.jiratools.tools.GenerateReleaseNotes;
+import de.phib.jiratools.tools.ReleaseNotesFormat;
+import de.phib.metrics.Metrics;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
 import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
+import org.joda.time.DateTimeZone;
 
 import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 /**
@@ -21,58 +38,305 @@ import java.util.stream.StreamSupport;
  */
 public class JiraTools {
 
-    private static final String SECURITY_LEVEL_PUBLIC = "public";
+    static final String SECURITY_LEVEL_PUBLIC = "public";
+
+    /**
+     * The label of issues to leave out of the release checklist.
+     */
+    static final String IGNORE_LABEL = "ignore-in-release-checklist";
+
+    /**
+     * The issue fields needed for release notes and for comparing issues with git commits (security level, fix
+     * versions and labels).
+     */
+    static final Set<SearchField> RELEASE_FIELDS = Collections.unmodifiableSet(EnumSet.copyOf(Sets.union(
+            GenerateReleaseNotes.REQUIRED_FIELDS,
+            EnumSet.of(SearchField.SECURITY, SearchField.FIX_VERSIONS, SearchField.LABELS))));
+
+    /**
+     * The issue fields fetched for single issues and releases, and kept in the local issue store. Includes the fields
+     * for estimates and their breakdowns (except by epic), so that incremental estimate queries can be answered from
+     * the store as well.
+     */
+    static final Set<SearchField> STORED_FIELDS = Collections.unmodifiableSet(EnumSet.copyOf(Sets.union(
+            Sets.union(RELEASE_FIELDS, CalculateRemainingEstimates.REQUIRED_FIELDS),
+            EstimateAggregator.groupBy(Dimension.PROJECT, Dimension.ASSIGNEE, Dimension.FIX_VERSION,
+                    Dimension.COMPONENT, Dimension.STATUS).getFields())));
+
+    /**
+     * Number of searches JiraTools runs at the same time, e.g. when resolving aliases.
+     */
+    private static final int PARALLELISM = 4;
+
     private JiraApiConnector jiraApiConnector;
 
+    private final ExecutorService executor = Executors.newFixedThreadPool(PARALLELISM,
+            new JiraApiConnector.DaemonThreadFactory("jira-tools"));
+
+    private final IssueCache issueCache;
+
+    private IncrementalSync incrementalSync;
+
+    private boolean combineProjectQueries = false;
+
+    private final AtomicReference<LocalIssueIndex> localIssueIndex = new AtomicReference<>();
+
     public JiraTools(String uri, String username, String password) {
+        this(uri, username, password, IssueCache.DEFAULT_TTL_MINUTES, IssueCache.DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Creates a new instance of JiraTools.
+     *
+     * @param uri             the URI of JIRA
+     * @param username        the name of the user to access the JIRA REST API
+     * @param password        the password of the user
+     * @param cacheTtlMinutes the time after which cached issues are fetched again
+     * @param cacheMaxSize    the maximum number of cached issues
+     */
+    public JiraTools(String uri, String username, String password, long cacheTtlMinutes, long cacheMaxSize) {
         this.jiraApiConnector = new JiraApiConnector(uri, username, password);
+        this.issueCache = IssueCache.withAsyncLoader(
+                key -> getJiraApiConnector().fetchIssueAsync(key, STORED_FIELDS), cacheTtlMinutes, cacheMaxSize);
     }
 
-    public int calculateRemainingEstimates(String jql) {
-        Iterable<Issue> issues = this.jiraApiConnector.searchIssues(jql);
+    /**
+     * Creates an instance for the command line tools. The JIRA url and credentials are read from the environment
+     * variables {@code JIRA_URL}, {@code JIRA_USERNAME} and {@code JIRA_PASSWORD}, falling back to
+     * {@link ToolDataConstants}. The optional variable {@code JIRA_TIME_ZONE} sets the time zone of the JIRA user,
+     * e.g. {@code Europe/Berlin}, see {@link JiraApiConnector#setTimeZone(DateTimeZone)}.
+     *
+     * @return the new instance
+     */
+    public static JiraTools fromEnvironment() {
+        JiraTools jiraTools = new JiraTools(
+                environment("JIRA_URL", ToolDataConstants.JIRA_URL),
+                environment("JIRA_USERNAME", ToolDataConstants.JIRA_USERNAME),
+                environment("JIRA_PASSWORD", ToolDataConstants.JIRA_PASSWORD));
+        String timeZone = environment("JIRA_TIME_ZONE", null);
+        if (timeZone != null) {
+            jiraTools.getJiraApiConnector().setTimeZone(DateTimeZone.forID(timeZone));
+        }
+        return jiraTools;
+    }
+
+    private static String environment(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null && !value.isEmpty() ? value : defaultValue;
+    }
+
+    /**
+     * Sums up the remaining estimates of the issues matching the given query.
+     *
+     * @param jql a JQL search query
+     * @return the remaining estimate in seconds
+     * @throws JiraSearchException if the issues can't be fetched, instead of reporting a sum of 0
+     */
+    public long calculateRemainingEstimates(String jql) {
+        Iterable<Issue> issues = incrementalSync != null
+                ? syncIssues(jql)
+                : () -> this.jiraApiConnector.iterateIssues(jql, CalculateRemainingEstimates.REQUIRED_FIELDS);
 
         return CalculateRemainingEstimates.getRemainingEstimates(issues);
     }
 
+    /**
+     * Sums up the remaining, original and spent estimates of the issues matching the given query with a single
+     * search, grouped by the dimensions of the aggregator. The pages of the search are aggregated in parallel.
+     *
+     * @param jql        a JQL search query
+     * @param aggregator the aggregator, e.g. {@code EstimateAggregator.groupBy(Dimension.PROJECT, Dimension.STATUS)}
+     * @return the estimates in seconds by group values, sorted
+     * @throws JiraSearchException if the issues can't be fetched
+     */
+    public SortedMap<List<String>, EstimateAggregator.Estimates> aggregateEstimates(String jql, EstimateAggregator aggregator) {
+        Set<SearchField> fields = aggregator.getFields();
+        Stream<Issue> issues = incrementalSync != null && fields != null && STORED_FIELDS.containsAll(fields)
+                ? syncIssues(jql).stream()
+                : getJiraApiConnector().streamIssues(jql, fields);
+
+        return issues.parallel().collect(aggregator.toCollector());
+    }
+
     public String generateReleaseNotes(Collection<Issue> issues) {
         return GenerateReleaseNotes.getReleaseNotes(issues);
     }
 
+    /**
+     * Writes release notes without keeping them in memory, see
+     * {@link GenerateReleaseNotes#writeReleaseNotes(Collection, ReleaseNotesFormat, Writer)}.
+     *
+     * @param issues the issues
+     * @param format the output format
+     * @param out    the writer, which is neither flushed nor closed
+     * @throws IOException if the writer fails
+     */
+    public void writeReleaseNotes(Collection<Issue> issues, ReleaseNotesFormat format, Writer out) throws IOException {
+        GenerateReleaseNotes.writeReleaseNotes(issues, format, out);
+    }
+
     public JiraApiConnector getJiraApiConnector() {
         return jiraApiConnector;
     }
 
     /**
-     * Fetches an Issue from JIRA by key and returns the key.
+     * @return the cache shared by the release lookups of this instance; its issues only contain the fields the tools
+     * read, see {@link #getCachedIssue(String)}
+     */
+    public IssueCache getIssueCache() {
+        return issueCache;
+    }
+
+    /**
+     * Keeps all issues fetched for releases in the given local store. Stored issues are only revalidated instead of
+     * being fetched again, which makes repeated runs start warm.
+     *
+     * @param issueStore the store, or {@code null} to disable storing issues
+     */
+    public void setIssueStore(IssueStore issueStore) {
+        getJiraApiConnector().setIssueStore(issueStore, STORED_FIELDS);
+        if (issueStore == null) {
+            this.incrementalSync = null;
+        }
+    }
+
+    /**
+     * Enables or disables the incremental sync of {@link #getIssuesForVersion(List, Iterable, List)} and
+     * {@link #calculateRemainingEstimates(String)}. When enabled, each query only fetches the issues updated since its
+     * last run and merges them with the issues in the local store, see {@link IncrementalSync}.
+     *
+     * @param enabled whether to sync incrementally; requires an issue store (see {@link #setIssueStore(IssueStore)})
+     */
+    public void setIncrementalSync(boolean enabled) {
+        IssueStore issueStore = getJiraApiConnector().getIssueStore();
+        if (enabled && issueStore == null) {
+            throw new IllegalStateException("Incremental sync requires an issue store");
+        }
+        this.incrementalSync = enabled ? new IncrementalSync(getJiraApiConnector(), issueStore) : null;
+    }
+
+    /**
+     * Enables or disables local queries in {@link #getIssuesForVersion(List, Iterable, List)}. When enabled, the
+     * issues of the requested projects and versions are searched once without the status and security level
+     * conditions and kept in a {@link LocalIssueIndex}; queries for other statuses or a subset of the versions are
+     * then answered from the index without searching JIRA. The issues are searched again after the given maximum age.
+     * The projects of local queries must be given by key; unlike JQL, the index doesn't match project names.
+     *
+     * @param maxAge the maximum age of the locally queried issues, or {@code null} to search JIRA for each query
+     */
+    public void setLocalQueries(Duration maxAge) {
+        setLocalQueries(maxAge, Ticker.systemTicker());
+    }
+
+    /**
+     * Enables or disables local queries with the given time source, e.g. to test the expiry, see
+     * {@link #setLocalQueries(Duration)}.
+     */
+    void setLocalQueries(Duration maxAge, Ticker ticker) {
+        this.localIssueIndex.set(maxAge != null ? new LocalIssueIndex(maxAge, this::getIssueLevel, ticker) : null);
+    }
+
+    private List<Issue> syncIssues(String jql) {
+        return incrementalSync.search(jql, STORED_FIELDS);
+    }
+
+    /**
+     * @return hit, miss and eviction statistics of the issue cache
+     */
+    public IssueCache.Stats getIssueCacheStats() {
+        return issueCache.stats();
+    }
+
+    /**
+     * Records the JIRA requests (see {@link JiraApiConnector#setMetrics(Metrics)}) and the issue cache statistics
+     * ({@code issueCache.hits}, {@code issueCache.misses}, {@code issueCache.evictions}, {@code issueCache.size}) of
+     * this instance.
+     *
+     * @param metrics the metrics
+     */
+    public void setMetrics(Metrics metrics) {
+        getJiraApiConnector().setMetrics(metrics);
+        Metrics registered = getJiraApiConnector().getMetrics();
+        registered.gauge("issueCache.hits", () -> issueCache.stats().getHitCount());
+        registered.gauge("issueCache.misses", () -> issueCache.stats().getMissCount());
+        registered.gauge("issueCache.evictions", () -> issueCache.stats().getEvictionCount());
+        registered.gauge("issueCache.size", issueCache::size);
+    }
+
+    /**
+     * Looks up the current key of an Issue in JIRA.
      * This is useful for finding Issues that were moved from one project to another, because the key will have changed.
+     * <p>
+     * A cached issue is used if present, otherwise only the key is searched for, see
+     * {@link JiraApiConnector#searchKeys(String)}.
      *
      * @param key The requested key
      * @return the current key, or {@code key} if the issue can't be found}
      */
     @Nullable
     public String getCurrentKey(@NonNull String key) {
-        Issue issue = getIssueByKey(key);
-        if (issue != null) {
-            return issue.getKey();
+        Issue cached = issueCache.getIfPresent(key);
+        if (cached != null) {
+            return cached.getKey();
+        }
+        try {
+            List<String> keys = getJiraApiConnector().searchKeys(String.format("key = %s", key));
+            if (!keys.isEmpty()) {
+                return keys.get(0);
+            }
+        } catch (JiraSearchException e) {
+            if (!e.isInvalidQuery()) {
+                throw e;
+            }
+            // JIRA rejects queries for keys that don't exist
         }
         // TODO Maybe returning null if the key can't be found is better?
         return key;
     }
 
     /**
-     * Fetches an Issue from JIRA by it's key
+     * Checks whether an issue exists, without fetching it, see {@link JiraApiConnector#existsIssue(String)}.
+     *
+     * @param key the issue key
+     * @return {@code true} if the issue exists
+     */
+    public boolean existsIssue(@NonNull String key) {
+        Issue cached = issueCache.getIfPresent(key);
+        return cached != null || getJiraApiConnector().existsIssue(key);
+    }
+
+    /**
+     * Fetches an Issue from JIRA by it's key, with all fields JIRA returns by default. The issue isn't cached.
      *
      * @param key the issue key
      * @return the JIRA issue or null if the issue doesn't exist
      */
     @Nullable
     public Issue getIssueByKey(@NonNull String key) {
-        Iterable<Issue> issues = getJiraApiConnector().searchIssues(String.format("key = %s", key));
-        if (issues.iterator().hasNext()) {
-            return issues.iterator().next();
-        } else {
-            return null;
-        }
+        return getJiraApiConnector().fetchIssue(key, null);
+    }
+
+    /**
+     * Fetches an Issue from JIRA by it's key without blocking the calling thread, see {@link #getIssueByKey(String)}.
+     *
+     * @param key the issue key
+     * @return a future of the JIRA issue, completing with null if the issue doesn't exist
+     */
+    @NonNull
+    public CompletableFuture<Issue> getIssueByKeyAsync(@NonNull String key) {
+        return getJiraApiConnector().fetchIssueAsync(key, null);
+    }
+
+    /**
+     * Gets an issue for the release lookups from the issue cache, fetching it if it isn't cached yet. The issue only
+     * contains the {@link #STORED_FIELDS}.
+     *
+     * @param key the issue key
+     * @return the issue or null if the issue doesn't exist
+     */
+    @Nullable
+    Issue getCachedIssue(@NonNull String key) {
+        return issueCache.get(key);
     }
 
     /**
@@ -103,42 +367,127 @@ public class JiraTools {
 
     /**
      * Fetches all Issues from JIRA
+     * <p>
+     * By default one search per project is run, with the searches running concurrently. See
+     * {@link #setCombineProjectQueries(boolean)} to search all projects with a single query instead.
      *
      * @param versions  List of JIRA version to filter for
      * @param projects List of Projects to filter for
-     * @param status
-     * @param status
+     * @param status   List of status to filter for, no filter if empty
      * @return A map of issueKeys to issues
      */
     @NonNull
     public Map<String, Issue> getIssuesForVersion(@NonNull List<String> versions, @NonNull Iterable<String> projects, List<String> status) {
-        Map<String, Issue> result = new HashMap<>();
-        String fixedInTags = versions.stream()
-                        .map(s -> String.format("fixed-in-%s", s))
-                        .collect(Collectors.joining(","));
-        for (String project : projects) {
-            String jql = String.format("project IN (%1$s) ", project);
-            if (!versions.isEmpty()) {
-                jql += String.format("AND (labels IN (%1$s) OR fixVersion IN (%2$s)) ", fixedInTags, String.join(", ", versions));
-                jql += "AND (labels NOT IN (\"ignore-in-release-checklist\") OR labels is EMPTY) ";
-            }
-            if (!status.isEmpty()) {
-                String statusjoined = status.stream()
-                        .map(s -> "\"" + s + "\"")
-                        .collect(Collectors.joining(","));
-                jql += "AND status IN ( " + statusjoined + ")";
+        return join(getIssuesForVersionAsync(versions, projects, status));
+    }
+
+    /**
+     * Fetches all Issues from JIRA without blocking the calling thread, see
+     * {@link #getIssuesForVersion(List, Iterable, List)}.
+     *
+     * @param versions List of JIRA version to filter for
+     * @param projects List of Projects to filter for
+     * @param status   List of status to filter for, no filter if empty
+     * @return A future of the map of issueKeys to issues
+     */
+    @NonNull
+    public CompletableFuture<Map<String, Issue>> getIssuesForVersionAsync(@NonNull List<String> versions, @NonNull Iterable<String> projects, List<String> status) {
+        if (!projects.iterator().hasNext()) {
+            // "project IN ()" is no valid JQL
+            return CompletableFuture.completedFuture(new ConcurrentHashMap<>());
+        }
+        // an expired index is replaced, not cleared, so that queries still running on it see the scopes they loaded
+        LocalIssueIndex index = localIssueIndex.updateAndGet(
+                current -> current != null && current.isExpired() ? current.emptyCopy() : current);
+        if (index != null) {
+            return queryLocally(index, versions, projects, status);
+        }
+        List<String> queries = new ArrayList<>();
+        if (combineProjectQueries) {
+            queries.add(buildVersionJql(versions, String.join(", ", projects), status));
+        } else {
+            projects.forEach(project -> queries.add(buildVersionJql(versions, project, status)));
+        }
 
+        Map<String, Issue> result = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> searches = queries.stream()
+                .map(jql -> CompletableFuture.runAsync(() -> searchIssuesForVersion(jql, result), executor))
+                .collect(Collectors.toList());
+        return CompletableFuture.allOf(searches.toArray(new CompletableFuture[0])).thenApply(done -> result);
+    }
 
-            }
+    /**
+     * Sets whether {@link #getIssuesForVersion(List, Iterable, List)} searches all projects with a single
+     * {@code project IN (...)} query instead of one concurrent query per project. A single query is cheaper when the
+     * projects are small, separate queries finish faster when some projects are large.
+     *
+     * @param combineProjectQueries {@code true} to search all projects with one query
+     */
+    public void setCombineProjectQueries(boolean combineProjectQueries) {
+        this.combineProjectQueries = combineProjectQueries;
+    }
 
-            jql += " AND level = \"public\" ";
-            jql += "ORDER BY key ASC";
-            Iterable<Issue> issues = getJiraApiConnector().searchIssues(jql);
-            Map<String, Issue> issueMap = StreamSupport.stream(issues.spliterator(), false).collect(Collectors.toMap(BasicIssue::getKey, i -> i));
-            result.putAll(issueMap);
+    /**
+     * Loads the missing scopes of the query into the index, one search per project, and evaluates the query on the
+     * index.
+     */
+    private CompletableFuture<Map<String, Issue>> queryLocally(LocalIssueIndex index, List<String> versions,
+                                                              Iterable<String> projects, List<String> status) {
+        List<CompletableFuture<Void>> loads = index.getMissingScopes(versions, projects).entrySet().stream()
+                .map(scope -> CompletableFuture.runAsync(() -> {
+                    Map<String, Issue> loaded = new ConcurrentHashMap<>();
+                    searchIssuesForVersion(buildScopeJql(scope.getValue(), scope.getKey()) + "ORDER BY key ASC", loaded);
+                    index.add(scope.getKey(), scope.getValue(), loaded.values());
+                }, executor))
+                .collect(Collectors.toList());
+        return CompletableFuture.allOf(loads.toArray(new CompletableFuture[0])).thenApply(done -> {
+            long start = System.nanoTime();
+            Map<String, Issue> result = index.query(versions, projects, status);
+            getJiraApiConnector().getMetrics().recordTime("localQuery.time", System.nanoTime() - start);
+            return result;
+        });
+    }
+
+    private void searchIssuesForVersion(String jql, Map<String, Issue> result) {
+        Stream<Issue> issues = incrementalSync != null
+                ? syncIssues(jql).stream()
+                : getJiraApiConnector().streamIssues(jql, STORED_FIELDS);
+        issues.forEach(issue -> {
+            result.put(issue.getKey(), issue);
+            issueCache.put(issue);
+        });
+    }
+
+    private static String buildVersionJql(List<String> versions, String projects, List<String> status) {
+        String jql = buildScopeJql(versions, projects);
+        if (!versions.isEmpty()) {
+            jql += "AND (labels NOT IN (\"" + IGNORE_LABEL + "\") OR labels is EMPTY) ";
+        }
+        if (!status.isEmpty()) {
+            String statusjoined = status.stream()
+                    .map(s -> "\"" + s + "\"")
+                    .collect(Collectors.joining(","));
+            jql += "AND status IN ( " + statusjoined + ")";
         }
 
-        return result;
+        jql += " AND level = \"public\" ";
+        jql += "ORDER BY key ASC";
+        return jql;
+    }
+
+    /**
+     * Builds the conditions on project and version of {@link #buildVersionJql(List, String, List)}, which select the
+     * issues kept in the {@link LocalIssueIndex}.
+     */
+    private static String buildScopeJql(List<String> versions, String projects) {
+        String fixedInTags = versions.stream()
+                .map(s -> String.format("fixed-in-%s", s))
+                .collect(Collectors.joining(","));
+        String jql = String.format("project IN (%1$s) ", projects);
+        if (!versions.isEmpty()) {
+            jql += String.format("AND (labels IN (%1$s) OR fixVersion IN (%2$s)) ", fixedInTags, String.join(", ", versions));
+        }
+        return jql;
     }
 
     public Map<String, Issue> getIssuesForVersion(@NonNull List<String> versions, @NonNull Iterable<String> projects) {
@@ -146,31 +495,59 @@ public class JiraTools {
     }
 
 
-        /**
-         * Gets an issue from JIRA. Checks the {@code alreadyKnownIssues} first, before making an API request
-         *
-         * @param alreadyKnownIssues List of already known JIRA issues. The issue will be added if absent.
-         * @param key                The issue to find
-         * @return the issue.
-         */
+    /**
+     * Gets an issue from JIRA. Checks the {@code alreadyKnownIssues} and the issue cache first, before making an API
+     * request
+     *
+     * @param alreadyKnownIssues List of already known JIRA issues. The issue will be added if absent.
+     * @param key                The issue to find
+     * @return the issue.
+     */
     Issue getIssue(@NonNull Map<String, Issue> alreadyKnownIssues, @NonNull String key) {
-        return alreadyKnownIssues.computeIfAbsent(key, this::getIssueByKey);
+        return alreadyKnownIssues.computeIfAbsent(key, this::getCachedIssue);
     }
 
     /**
      * Creates a Map of issues and their "real" issue key. I.e. if an issue was moved to another Project the issue key
      * OLDPROJECT-123 might have a "real" issue key of NEWPROJECT-456
      * <p>
-     * Note: Due to JIRA API limitations we need to make one request for each issue key. Could be expensive!
+     * The keys are looked up in chunks with {@code key in (...)} searches, see {@link IssueKeyResolver}.
      *
      * @param gitIssueKeys A Set of issuekeys to look up
      * @return Map of old-keys to real-keys
      */
     @NonNull
     Map<String, String> findAliases(@NonNull Set<String> gitIssueKeys) {
-        return gitIssueKeys.stream()
-                .distinct()
-                .collect(Collectors.toMap(i -> i, this::getCurrentKey));
+        return join(findAliasesAsync(gitIssueKeys));
+    }
+
+    /**
+     * Creates a Map of issues and their "real" issue key without blocking the calling thread, see
+     * {@link #findAliases(Set)}.
+     *
+     * @param gitIssueKeys A Set of issuekeys to look up
+     * @return A future of the map of old-keys to real-keys
+     */
+    @NonNull
+    public CompletableFuture<Map<String, String>> findAliasesAsync(@NonNull Set<String> gitIssueKeys) {
+        return new IssueKeyResolver(getJiraApiConnector(), executor).resolveAsync(gitIssueKeys);
+    }
+
+    /**
+     * Fetches many issues by key with a few {@code key in (...)} searches, following moved issues like
+     * {@link #findAliasesAsync(Set)}. The issues are added to the issue cache.
+     *
+     * @param keys the issue keys
+     * @return A future of the map of requested keys to issues. The key of an issue differs from the requested key if
+     * the issue was moved; keys that can't be found are missing.
+     */
+    @NonNull
+    public CompletableFuture<Map<String, Issue>> findIssuesAsync(@NonNull Set<String> keys) {
+        return new IssueKeyResolver(getJiraApiConnector(), executor, STORED_FIELDS).findAsync(keys)
+                .thenApply(issues -> {
+                    issueCache.putAll(issues.values());
+                    return issues;
+                });
     }
 
     /**
@@ -207,4 +584,18 @@ public class JiraTools {
 
         return "";
     }
+
+    /**
+     * Waits for a future, rethrowing a failed search as {@link JiraSearchException}.
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
 }
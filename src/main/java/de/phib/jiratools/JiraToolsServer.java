@@ -0,0 +1,376 @@
+package de.phib.jiratools;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import de.phib.jgit.FetchPolicy;
+import de.phib.jgit.GitTools;
+import de.phib.jgit.MultiRepoGitTools;
+import de.phib.jiratools.tools.EstimateAggregator;
+import de.phib.jiratools.tools.EstimateAggregator.Dimension;
+import de.phib.jiratools.tools.ReleaseNotesFormat;
+import de.phib.metrics.InMemoryMetrics;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * A local HTTP server running the tools on behalf of other processes, e.g. CI jobs, so that they don't pay for the
+ * JVM startup, the JIRA client construction and cold caches on every call.
+ * <p>
+ * All requests share one {@link JiraTools} (with its connection pool and issue cache) and one {@link GitTools} per
+ * repository (with its commit index). The endpoints take their arguments as query parameters; repeated parameters
+ * are lists:
+ * <ul>
+ * <li>{@code GET /estimates?jql=...&groupBy=PROJECT&groupBy=STATUS}: the estimates as JSON, see
+ * {@link JiraTools#aggregateEstimates(String, EstimateAggregator)}</li>
+ * <li>{@code GET /release-notes?version=2019.2&project=BPA&status=Done&format=MARKDOWN}: the release notes, streamed,
+ * see {@link ReleaseNotesFormat}</li>
+ * <li>{@code GET /aliases?key=BPA-1&key=BPA-2}: the current keys of the given keys as JSON</li>
+ * <li>{@code GET /reconcile?version=2019.2&project=BPA&repo=dxp:blueprint-2019.1.5..blueprint-2019.2}: the
+ * {@link ReleaseReport} as text; the repositories are referred to by the names they were registered with</li>
+ * <li>{@code GET /metrics}: the metrics of all requests so far, see {@link InMemoryMetrics#report()}</li>
+ * <li>{@code GET /health}</li>
+ * </ul>
+ * The server only listens on the loopback interface by default; it has no authentication of its own.
+ */
+public class JiraToolsServer implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JiraToolsServer.class);
+
+    /**
+     * The default number of requests handled at the same time.
+     */
+    public static final int DEFAULT_THREADS = 8;
+
+    /**
+     * The default minimum time between two fetches of a repository.
+     */
+    public static final Duration DEFAULT_FETCH_INTERVAL = Duration.ofMinutes(5);
+
+    private final JiraTools jiraTools;
+    private final Map<String, GitTools> repositories;
+    private final InMemoryMetrics metrics = new InMemoryMetrics();
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a server on the given address. The metrics of the tools are replaced by the metrics of the server.
+     *
+     * @param jiraTools    the JIRA tools shared by all requests
+     * @param repositories the git repositories by name, see the {@code repo} parameter of {@code /reconcile}
+     * @param address      the address to listen on, e.g. port 0 of the loopback address for any free port
+     * @param threads      the number of requests handled at the same time
+     * @throws IOException if the server can't listen on the address
+     */
+    public JiraToolsServer(@NonNull JiraTools jiraTools, @NonNull Map<String, GitTools> repositories,
+                           @NonNull InetSocketAddress address, int threads) throws IOException {
+        this.jiraTools = jiraTools;
+        this.repositories = Collections.unmodifiableMap(new LinkedHashMap<>(repositories));
+        jiraTools.setMetrics(metrics);
+        this.repositories.values().forEach(gitTools -> gitTools.setMetrics(metrics));
+
+        this.executor = Executors.newFixedThreadPool(threads, new JiraApiConnector.DaemonThreadFactory("jira-tools-server"));
+        this.server = HttpServer.create(address, 0);
+        this.server.setExecutor(executor);
+        context("/health", (exchange, parameters) -> respond(exchange, 200, "text/plain", "ok\n"));
+        context("/metrics", (exchange, parameters) -> respond(exchange, 200, "text/plain", metrics.report()));
+        context("/estimates", this::estimates);
+        context("/release-notes", this::releaseNotes);
+        context("/aliases", this::aliases);
+        context("/reconcile", this::reconcile);
+    }
+
+    /**
+     * Starts handling requests.
+     *
+     * @return this server
+     */
+    public JiraToolsServer start() {
+        server.start();
+        LOG.info("Listening on {} with the repositories {}", getUri(), repositories.keySet());
+        return this;
+    }
+
+    /**
+     * @return the base URI of the server
+     */
+    public URI getUri() {
+        InetSocketAddress address = server.getAddress();
+        return URI.create("http://" + address.getAddress().getHostAddress() + ":" + address.getPort());
+    }
+
+    /**
+     * Stops the server, waiting at most a second for running requests.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdownNow();
+    }
+
+    private void estimates(HttpExchange exchange, Map<String, List<String>> parameters) throws IOException, JSONException {
+        String jql = single(parameters, "jql");
+        List<Dimension> dimensions = new ArrayList<>();
+        for (String dimension : parameters.getOrDefault("groupBy", Collections.emptyList())) {
+            dimensions.add(Dimension.valueOf(dimension.toUpperCase(Locale.ROOT)));
+        }
+
+        SortedMap<List<String>, EstimateAggregator.Estimates> estimates = jiraTools.aggregateEstimates(jql,
+                EstimateAggregator.groupBy(dimensions.toArray(new Dimension[0])));
+
+        JSONArray groups = new JSONArray();
+        for (Map.Entry<List<String>, EstimateAggregator.Estimates> entry : estimates.entrySet()) {
+            groups.put(toJson(entry.getValue()).put("group", new JSONArray(entry.getKey())));
+        }
+        JSONObject json = new JSONObject()
+                .put("groupBy", new JSONArray(dimensions.stream().map(Dimension::name).collect(Collectors.toList())))
+                .put("groups", groups)
+                .put("total", toJson(EstimateAggregator.total(estimates)));
+        respond(exchange, 200, "application/json", json.toString());
+    }
+
+    private void releaseNotes(HttpExchange exchange, Map<String, List<String>> parameters) throws IOException {
+        ReleaseNotesFormat format = ReleaseNotesFormat.valueOf(
+                single(parameters, "format", ReleaseNotesFormat.PLAIN.name()).toUpperCase(Locale.ROOT));
+        Map<String, Issue> issues = jiraTools.getIssuesForVersion(list(parameters, "version"),
+                list(parameters, "project"), parameters.getOrDefault("status", Collections.emptyList()));
+
+        exchange.getResponseHeaders().set("Content-Type", contentType(format));
+        exchange.sendResponseHeaders(200, 0);
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8))) {
+            jiraTools.writeReleaseNotes(issues.values(), format, out);
+        }
+    }
+
+    private void aliases(HttpExchange exchange, Map<String, List<String>> parameters) throws IOException {
+        Map<String, String> aliases = new TreeMap<>(jiraTools.findAliases(new HashSet<>(list(parameters, "key"))));
+        respond(exchange, 200, "application/json", new JSONObject(aliases).toString());
+    }
+
+    private void reconcile(HttpExchange exchange, Map<String, List<String>> parameters) throws IOException {
+        MultiRepoGitTools gitTools = new MultiRepoGitTools();
+        for (String repo : list(parameters, "repo")) {
+            int colon = repo.indexOf(':');
+            int dots = repo.indexOf("..", colon + 1);
+            GitTools repository = colon > 0 ? repositories.get(repo.substring(0, colon)) : null;
+            if (repository == null || dots < 0) {
+                throw new IllegalArgumentException("Expected repo=<name>:<lastReleaseTag>..<currentReleaseTag> with "
+                        + "one of the repositories " + repositories.keySet() + ", got " + repo);
+            }
+            gitTools.add(repository, repo.substring(colon + 1, dots), repo.substring(dots + 2));
+        }
+
+        ReleaseReport report = new ReleaseReconciler(jiraTools, gitTools).reconcile(list(parameters, "version"),
+                list(parameters, "project"), parameters.getOrDefault("status", Collections.emptyList()));
+        respond(exchange, 200, "text/plain", report.format());
+    }
+
+    private static JSONObject toJson(EstimateAggregator.Estimates estimates) throws JSONException {
+        return new JSONObject()
+                .put("remaining", estimates.getRemaining())
+                .put("original", estimates.getOriginal())
+                .put("spent", estimates.getSpent())
+                .put("issues", estimates.getIssueCount());
+    }
+
+    private static String contentType(ReleaseNotesFormat format) {
+        switch (format) {
+            case HTML:
+                return "text/html; charset=utf-8";
+            case CSV:
+                return "text/csv; charset=utf-8";
+            case MARKDOWN:
+                return "text/markdown; charset=utf-8";
+            default:
+                return "text/plain; charset=utf-8";
+        }
+    }
+
+    /**
+     * An endpoint, called with the decoded query parameters.
+     */
+    private interface Endpoint {
+        void handle(HttpExchange exchange, Map<String, List<String>> parameters) throws IOException, JSONException;
+    }
+
+    private void context(String path, Endpoint endpoint) {
+        HttpHandler handler = exchange -> {
+            long start = System.nanoTime();
+            try {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    respond(exchange, 405, "text/plain", "Only GET is supported\n");
+                } else if (!path.equals(exchange.getRequestURI().getPath())) {
+                    respond(exchange, 404, "text/plain", "Not found\n");
+                } else {
+                    endpoint.handle(exchange, parseQuery(exchange.getRequestURI().getRawQuery()));
+                }
+            } catch (IllegalArgumentException e) {
+                respondQuietly(exchange, 400, e.getMessage());
+            } catch (JiraSearchException e) {
+                LOG.warn("JIRA search of {} failed", exchange.getRequestURI(), e);
+                respondQuietly(exchange, 502, e.getMessage());
+            } catch (Exception e) {
+                LOG.error("Request {} failed", exchange.getRequestURI(), e);
+                respondQuietly(exchange, 500, String.valueOf(e.getMessage()));
+            } finally {
+                exchange.close();
+                metrics.recordTime("server" + path + ".time", System.nanoTime() - start);
+            }
+        };
+        server.createContext(path, handler);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType.contains("charset") ? contentType : contentType + "; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Reports an error, unless the response was already started, e.g. by streaming release notes.
+     */
+    private static void respondQuietly(HttpExchange exchange, int status, String message) {
+        if (exchange.getResponseCode() != -1) {
+            return;
+        }
+        try {
+            respond(exchange, status, "text/plain", message + "\n");
+        } catch (IOException e) {
+            LOG.debug("Couldn't send the error response", e);
+        }
+    }
+
+    private static Map<String, List<String>> parseQuery(String query) throws UnsupportedEncodingException {
+        Map<String, List<String>> parameters = new LinkedHashMap<>();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), "UTF-8");
+            String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), "UTF-8");
+            parameters.computeIfAbsent(name, key -> new ArrayList<>()).add(value);
+        }
+        return parameters;
+    }
+
+    private static List<String> list(Map<String, List<String>> parameters, String name) {
+        List<String> values = parameters.get(name);
+        if (values == null || values.isEmpty()) {
+            throw new IllegalArgumentException("Missing parameter " + name);
+        }
+        return values;
+    }
+
+    private static String single(Map<String, List<String>> parameters, String name) {
+        return list(parameters, name).get(0);
+    }
+
+    private static String single(Map<String, List<String>> parameters, String name, String defaultValue) {
+        List<String> values = parameters.get(name);
+        return values == null || values.isEmpty() ? defaultValue : values.get(0);
+    }
+
+    /**
+     * Runs the server until the process is stopped.
+     * <p>
+     * Usage: {@code JiraToolsServer [--port 8090] [--threads 8] [--fetch-interval-minutes 5] [--store <directory>]
+     * [--local-query-minutes 5] [--repo <name> <path> ...]}
+     * <p>
+     * With {@code --store}, issues are kept in a local {@link IssueStore} and searches are synced incrementally. With
+     * {@code --local-query-minutes}, release queries are answered from a local index of the issues searched within that
+     * time, see {@link JiraTools#setLocalQueries(Duration)}. The
+     * JIRA url and credentials are read from the environment variables {@code JIRA_URL}, {@code JIRA_USERNAME} and
+     * {@code JIRA_PASSWORD}, falling back to {@code ToolDataConstants}, see {@link JiraTools#fromEnvironment()}.
+     *
+     * @param args the command line arguments
+     * @throws IOException if the server or the issue store can't be started
+     */
+    public static void main(String[] args) throws IOException {
+        int port = 8090;
+        int threads = DEFAULT_THREADS;
+        Duration fetchInterval = DEFAULT_FETCH_INTERVAL;
+        String store = null;
+        Duration localQueryAge = null;
+        Map<String, GitTools> repositories = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(argument(args, ++i));
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(argument(args, ++i));
+                    break;
+                case "--fetch-interval-minutes":
+                    fetchInterval = Duration.ofMinutes(Long.parseLong(argument(args, ++i)));
+                    break;
+                case "--store":
+                    store = argument(args, ++i);
+                    break;
+                case "--local-query-minutes":
+                    localQueryAge = Duration.ofMinutes(Long.parseLong(argument(args, ++i)));
+                    break;
+                case "--repo":
+                    repositories.put(argument(args, ++i), new GitTools(argument(args, ++i)));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        FetchPolicy fetchPolicy = FetchPolicy.ifOlderThan(fetchInterval);
+        repositories.values().forEach(gitTools -> gitTools.setFetchPolicy(fetchPolicy));
+
+        JiraTools jiraTools = JiraTools.fromEnvironment();
+        if (store != null) {
+            jiraTools.setIssueStore(new IssueStore(Paths.get(store)));
+            jiraTools.setIncrementalSync(true);
+        }
+        jiraTools.setLocalQueries(localQueryAge);
+
+        JiraToolsServer server = new JiraToolsServer(jiraTools, repositories,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port), threads).start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "jira-tools-server-shutdown"));
+    }
+
+    private static String argument(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[args.length - 1]);
+        }
+        return args[i];
+    }
+}
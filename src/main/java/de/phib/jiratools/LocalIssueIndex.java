@@ -0,0 +1,235 @@
+package de.phib.jiratools;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.api.domain.Version;
+import com.google.common.base.Ticker;
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * The issues of recently searched releases, with secondary indexes on project, fix version, labels, status and
+ * security level, so that the queries of {@link JiraTools#getIssuesForVersion(List, Iterable, List)} can be answered
+ * locally.
+ * <p>
+ * Issues are loaded per scope, i.e. the issues of a project with one of the given fix versions or {@code fixed-in}
+ * labels, or all issues of a project. Any query within loaded scopes, e.g. with another status filter or a subset of
+ * the versions, is evaluated on the indexes with bit set operations. The index expires once its oldest scope is older
+ * than the maximum age; it is then replaced by an {@link #emptyCopy()}, so that a new query never sees issues older
+ * than that, while queries still running on the expired index keep the scopes they loaded.
+ * <p>
+ * The index evaluates the conditions of {@code buildVersionJql} in JiraTools; values are compared ignoring case, like
+ * JQL does. Unlike JQL, projects only match by key, not by name.
+ */
+final class LocalIssueIndex {
+
+    /**
+     * The scope version of all issues of a project.
+     */
+    private static final String ALL_VERSIONS = "";
+
+    private final Duration maxAge;
+    private final Function<Issue, String> levelOf;
+    private final Ticker ticker;
+
+    private long loadedAt;
+    private final Set<String> scopes = new HashSet<>();
+
+    /**
+     * The issues by id; an issue loaded again gets a new id, the old id is removed from {@link #live}.
+     */
+    private final List<Issue> issues = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final BitSet live = new BitSet();
+
+    private final Map<String, BitSet> byProject = new HashMap<>();
+    private final Map<String, BitSet> byFixVersion = new HashMap<>();
+    private final Map<String, BitSet> byLabel = new HashMap<>();
+    private final Map<String, BitSet> byStatus = new HashMap<>();
+    private final Map<String, BitSet> byLevel = new HashMap<>();
+
+    /**
+     * @param maxAge  the time after which the issues are searched again
+     * @param levelOf reads the security level of an issue
+     */
+    LocalIssueIndex(@NonNull Duration maxAge, @NonNull Function<Issue, String> levelOf) {
+        this(maxAge, levelOf, Ticker.systemTicker());
+    }
+
+    /**
+     * @param maxAge  the time after which the issues are searched again
+     * @param levelOf reads the security level of an issue
+     * @param ticker  the time source of the age, e.g. to test the expiry
+     */
+    LocalIssueIndex(@NonNull Duration maxAge, @NonNull Function<Issue, String> levelOf, @NonNull Ticker ticker) {
+        this.maxAge = maxAge;
+        this.levelOf = levelOf;
+        this.ticker = ticker;
+    }
+
+    /**
+     * @return a new, empty index with the same maximum age
+     */
+    LocalIssueIndex emptyCopy() {
+        return new LocalIssueIndex(maxAge, levelOf, ticker);
+    }
+
+    /**
+     * @return whether the oldest loaded scope is older than the maximum age
+     */
+    synchronized boolean isExpired() {
+        return !scopes.isEmpty() && ticker.read() - loadedAt > maxAge.toNanos();
+    }
+
+    /**
+     * Determines the scopes that need to be loaded before the given query can be answered.
+     *
+     * @param versions the versions of the query, all versions if empty
+     * @param projects the project keys of the query
+     * @return the versions to load by project, an empty list for all issues of a project
+     */
+    synchronized Map<String, List<String>> getMissingScopes(List<String> versions, Iterable<String> projects) {
+        Map<String, List<String>> missing = new LinkedHashMap<>();
+        for (String project : projects) {
+            if (scopes.contains(scope(project, ALL_VERSIONS))) {
+                continue;
+            }
+            if (versions.isEmpty()) {
+                missing.put(project, new ArrayList<>());
+                continue;
+            }
+            for (String version : versions) {
+                if (!scopes.contains(scope(project, version))) {
+                    missing.computeIfAbsent(project, key -> new ArrayList<>()).add(version);
+                }
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Adds the issues of a scope.
+     *
+     * @param project  the project
+     * @param versions the versions of the scope, all versions if empty
+     * @param loaded   all issues of the scope
+     */
+    synchronized void add(String project, List<String> versions, Collection<Issue> loaded) {
+        if (scopes.isEmpty()) {
+            loadedAt = ticker.read();
+        }
+        for (Issue issue : loaded) {
+            Integer previous = ids.get(issue.getKey());
+            if (previous != null) {
+                live.clear(previous);
+            }
+            int id = issues.size();
+            issues.add(issue);
+            ids.put(issue.getKey(), id);
+            live.set(id);
+            index(byProject, issue.getProject() != null ? issue.getProject().getKey() : null, id);
+            if (issue.getFixVersions() != null) {
+                for (Version version : issue.getFixVersions()) {
+                    index(byFixVersion, version.getName(), id);
+                }
+            }
+            if (issue.getLabels() != null) {
+                for (String label : issue.getLabels()) {
+                    index(byLabel, label, id);
+                }
+            }
+            index(byStatus, issue.getStatus() != null ? issue.getStatus().getName() : null, id);
+            index(byLevel, levelOf.apply(issue), id);
+        }
+        if (versions.isEmpty()) {
+            scopes.add(scope(project, ALL_VERSIONS));
+        } else {
+            versions.forEach(version -> scopes.add(scope(project, version)));
+        }
+    }
+
+    /**
+     * Evaluates the query of {@link JiraTools#getIssuesForVersion(List, Iterable, List)} on the loaded issues. The
+     * scopes of the query must have been loaded, see {@link #getMissingScopes(List, Iterable)}.
+     *
+     * @param versions the versions, all versions if empty
+     * @param projects the project keys
+     * @param status   the status to filter for, no filter if empty
+     * @return the matching issues by key
+     */
+    synchronized Map<String, Issue> query(List<String> versions, Iterable<String> projects, List<String> status) {
+        BitSet result = union(byProject, projects);
+        result.and(live);
+        if (!versions.isEmpty()) {
+            BitSet fixed = union(byFixVersion, versions);
+            for (String version : versions) {
+                BitSet labeled = byLabel.get(normalize(String.format("fixed-in-%s", version)));
+                if (labeled != null) {
+                    fixed.or(labeled);
+                }
+            }
+            result.and(fixed);
+            BitSet ignored = byLabel.get(normalize(JiraTools.IGNORE_LABEL));
+            if (ignored != null) {
+                result.andNot(ignored);
+            }
+        }
+        if (!status.isEmpty()) {
+            result.and(union(byStatus, status));
+        }
+        BitSet publicIssues = byLevel.get(normalize(JiraTools.SECURITY_LEVEL_PUBLIC));
+        if (publicIssues == null) {
+            return new HashMap<>();
+        }
+        result.and(publicIssues);
+
+        Map<String, Issue> matches = new HashMap<>();
+        for (int id = result.nextSetBit(0); id >= 0; id = result.nextSetBit(id + 1)) {
+            matches.put(issues.get(id).getKey(), issues.get(id));
+        }
+        return matches;
+    }
+
+    /**
+     * @return the number of loaded issues
+     */
+    synchronized int size() {
+        return ids.size();
+    }
+
+    private static void index(Map<String, BitSet> index, String value, int id) {
+        if (value != null) {
+            index.computeIfAbsent(normalize(value), key -> new BitSet()).set(id);
+        }
+    }
+
+    private static BitSet union(Map<String, BitSet> index, Iterable<String> values) {
+        BitSet union = new BitSet();
+        for (String value : values) {
+            BitSet ids = index.get(normalize(value));
+            if (ids != null) {
+                union.or(ids);
+            }
+        }
+        return union;
+    }
+
+    private static String scope(String project, String version) {
+        return normalize(project) + '\u0000' + normalize(version);
+    }
+
+    private static String normalize(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,174 @@
+package de.phib.jiratools;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.api.domain.SearchResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Lazily iterates over the result of a JQL search page by page.
+ * <p>
+ * While the caller consumes the current page, the following pages are already fetched in the background. At most
+ * {@code maxBufferedPages} pages (including the current one, but at least two) are held in memory at any time.
+ * A failing page ends the iteration with a {@link JiraSearchException}, so that a partial result isn't mistaken for
+ * the complete one.
+ */
+class PagedIssueIterator implements Iterator<Issue> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PagedIssueIterator.class);
+
+    /**
+     * Loads a single page of a search.
+     */
+    interface PageLoader {
+        SearchResult load(int startAt, int maxResults) throws Exception;
+    }
+
+    private final String jql;
+    private final PageLoader loader;
+    private final ExecutorService executor;
+    private final int requestedPageSize;
+    private final int maxBufferedPages;
+
+    private final Deque<PendingPage> pendingPages = new ArrayDeque<>();
+    private Iterator<Issue> currentPage = Collections.emptyIterator();
+    private boolean started = false;
+    private boolean finished = false;
+    private int total;
+    private int pageSize;
+    private int nextStartAt;
+
+    PagedIssueIterator(String jql, PageLoader loader, ExecutorService executor, int pageSize, int maxBufferedPages) {
+        this.jql = jql;
+        this.loader = loader;
+        this.executor = executor;
+        this.requestedPageSize = pageSize;
+        this.maxBufferedPages = Math.max(2, maxBufferedPages);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (currentPage.hasNext()) {
+            return true;
+        }
+
+        try {
+            if (!started) {
+                started = true;
+                fetchFirstPage();
+            }
+            while (!currentPage.hasNext() && !finished) {
+                advance();
+            }
+        } catch (Exception e) {
+            finish();
+            Throwable cause = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            throw cause instanceof JiraSearchException
+                    ? (JiraSearchException) cause
+                    : new JiraSearchException(jql, cause);
+        }
+
+        return currentPage.hasNext();
+    }
+
+    @Override
+    public Issue next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return currentPage.next();
+    }
+
+    private void fetchFirstPage() throws Exception {
+        SearchResult firstPage = loader.load(0, requestedPageSize);
+        total = firstPage.getTotal();
+        int received = count(firstPage);
+
+        // the server may grant less than the requested page size
+        pageSize = Math.max(1, Math.min(firstPage.getMaxResults(), requestedPageSize));
+        if (received > 0) {
+            pageSize = Math.min(pageSize, received);
+        }
+
+        LOG.debug("Streaming {} issues in pages of {}.", total, pageSize);
+
+        currentPage = firstPage.getIssues().iterator();
+        nextStartAt = received;
+        if (received == 0) {
+            finished = true;
+        }
+        schedulePages();
+    }
+
+    private void advance() throws Exception {
+        PendingPage pendingPage = pendingPages.poll();
+        if (pendingPage == null) {
+            finish();
+            return;
+        }
+
+        SearchResult page = pendingPage.result.get();
+        int received = count(page);
+        if (received == 0) {
+            // the result set shrank while we were paging
+            finish();
+            return;
+        }
+        if (received < pendingPage.size) {
+            // the server returned a short page, fetch the rest of the window before continuing
+            int startAt = pendingPage.startAt + received;
+            int size = pendingPage.size - received;
+            pendingPages.addFirst(new PendingPage(startAt, size, executor.submit(() -> loader.load(startAt, size))));
+        }
+
+        currentPage = page.getIssues().iterator();
+        schedulePages();
+    }
+
+    /**
+     * Fills the prefetch buffer, keeping one slot for the page currently consumed.
+     */
+    private void schedulePages() {
+        while (!finished && nextStartAt < total && pendingPages.size() < maxBufferedPages - 1) {
+            int startAt = nextStartAt;
+            int size = Math.min(pageSize, total - startAt);
+            pendingPages.addLast(new PendingPage(startAt, size, executor.submit(() -> loader.load(startAt, size))));
+            nextStartAt += size;
+        }
+    }
+
+    private void finish() {
+        finished = true;
+        pendingPages.forEach(p -> p.result.cancel(true));
+        pendingPages.clear();
+    }
+
+    private static int count(SearchResult page) {
+        int count = 0;
+        for (Issue ignored : page.getIssues()) {
+            count++;
+        }
+        return count;
+    }
+
+    private static class PendingPage {
+        final int startAt;
+        final int size;
+        final Future<SearchResult> result;
+
+        PendingPage(int startAt, int size, Future<SearchResult> result) {
+            this.startAt = startAt;
+            this.size = size;
+            this.result = result;
+        }
+    }
+}
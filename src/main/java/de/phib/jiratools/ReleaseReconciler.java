@@ -0,0 +1,224 @@
+package de.phib.jiratools;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import de.phib.jgit.GitTools;
+import de.phib.jgit.IssueCommitMap;
+import de.phib.jgit.MultiRepoGitTools;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compares the issues mentioned in the commits of a release with the issues fixed in the release according to JIRA.
+ * <p>
+ * The git analysis and the JIRA searches run concurrently. Afterwards the issues mentioned only in commits are
+ * fetched in bulk, to follow moved issues and to report their fix versions and status. See {@link ReleaseReport}.
+ * <p>
+ * Example:
+ * <pre>
+ * ReleaseReport report = new ReleaseReconciler(jiraTools, gitTools)
+ *         .reconcile(Arrays.asList("2019.2"), Arrays.asList("BPA", "BREGNEU"), Collections.emptyList());
+ * </pre>
+ * The reconciler can also be run from the command line, see {@link #main(String[])}.
+ */
+public class ReleaseReconciler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReleaseReconciler.class);
+
+    static final String PHASE_GIT = "git";
+    static final String PHASE_JIRA = "jira";
+    static final String PHASE_ALIASES = "aliases";
+    static final String PHASE_TOTAL = "total";
+
+    private final JiraTools jiraTools;
+    private final MultiRepoGitTools gitTools;
+
+    /**
+     * @param jiraTools the JIRA to query
+     * @param gitTools  the repositories of the release, with their release tags
+     */
+    public ReleaseReconciler(@NonNull JiraTools jiraTools, @NonNull MultiRepoGitTools gitTools) {
+        this.jiraTools = jiraTools;
+        this.gitTools = gitTools;
+    }
+
+    /**
+     * Compares the issues mentioned in the commits of the release with the issues fixed in the release according to
+     * JIRA.
+     *
+     * @param versions List of JIRA versions of the release
+     * @param projects List of JIRA projects to search
+     * @param status   List of status to filter the JIRA issues for, no filter if empty
+     * @return the report
+     */
+    @NonNull
+    public ReleaseReport reconcile(@NonNull List<String> versions, @NonNull List<String> projects, @NonNull List<String> status) {
+        try {
+            return reconcileAsync(versions, projects, status).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Compares the issues of the release without blocking the calling thread, see
+     * {@link #reconcile(List, List, List)}.
+     *
+     * @param versions List of JIRA versions of the release
+     * @param projects List of JIRA projects to search
+     * @param status   List of status to filter the JIRA issues for, no filter if empty
+     * @return A future of the report
+     */
+    @NonNull
+    public CompletableFuture<ReleaseReport> reconcileAsync(@NonNull List<String> versions, @NonNull List<String> projects, @NonNull List<String> status) {
+        long start = System.nanoTime();
+        Map<String, Long> phaseNanos = new ConcurrentHashMap<>();
+
+        CompletableFuture<IssueCommitMap> git = timed(PHASE_GIT, gitTools.getEffectedIssuesAsync(), phaseNanos);
+        CompletableFuture<Map<String, Issue>> jira = timed(PHASE_JIRA,
+                jiraTools.getIssuesForVersionAsync(versions, projects, status), phaseNanos);
+
+        return git.thenCombine(jira, Phase::new)
+                .thenCompose(phase -> {
+                    // only the keys unknown to the release need a lookup, the others are current anyway
+                    Set<String> unknownKeys = new HashSet<>(phase.git.difference(phase.jira.keySet()).keySet());
+                    return timed(PHASE_ALIASES, jiraTools.findIssuesAsync(unknownKeys), phaseNanos)
+                            .thenApply(found -> {
+                                long total = System.nanoTime() - start;
+                                record(PHASE_TOTAL, total);
+                                Map<String, Duration> phaseTimes = new LinkedHashMap<>();
+                                for (String name : new String[]{PHASE_GIT, PHASE_JIRA, PHASE_ALIASES}) {
+                                    phaseTimes.put(name, Duration.ofNanos(phaseNanos.get(name)));
+                                }
+                                phaseTimes.put(PHASE_TOTAL, Duration.ofNanos(total));
+                                return buildReport(versions, phase.git, phase.jira, found, phaseTimes);
+                            });
+                });
+    }
+
+    private ReleaseReport buildReport(List<String> versions, IssueCommitMap git, Map<String, Issue> jira,
+                                      Map<String, Issue> found, Map<String, Duration> phaseTimes) {
+        // keys mentioned in commits, which are fixed in the release under another key
+        Map<String, String> movedKeys = new TreeMap<>();
+        List<ReleaseReport.Change> commitsWithoutTicket = new ArrayList<>();
+        for (String key : git.difference(jira.keySet()).keySet()) {
+            Issue issue = found.get(key);
+            if (issue != null && jira.containsKey(issue.getKey())) {
+                movedKeys.put(key, issue.getKey());
+            } else {
+                commitsWithoutTicket.add(new ReleaseReport.Change(key, git.getAbbrCommitList(key), issue));
+            }
+        }
+
+        Set<String> mentioned = new HashSet<>(movedKeys.values());
+        List<Issue> ticketsWithoutCommits = new ArrayList<>();
+        new TreeMap<>(jira).forEach((key, issue) -> {
+            if (!git.containsKey(key) && !mentioned.contains(key)) {
+                ticketsWithoutCommits.add(issue);
+            }
+        });
+
+        Map<String, ReleaseReport.Change> publicIssues = new TreeMap<>();
+        for (String key : git.intersection(jira.keySet()).keySet()) {
+            publicIssues.put(key, new ReleaseReport.Change(key, git.getAbbrCommitList(key), jira.get(key)));
+        }
+        movedKeys.forEach((key, currentKey) -> publicIssues.putIfAbsent(currentKey,
+                new ReleaseReport.Change(key, git.getAbbrCommitList(key), jira.get(currentKey))));
+        publicIssues.values().removeIf(change -> !jiraTools.isPublicIssue(change.getIssue()));
+
+        LOG.info("Release {}: {} commits without ticket, {} tickets without commits, {} public issues with code changes",
+                versions, commitsWithoutTicket.size(), ticketsWithoutCommits.size(), publicIssues.size());
+        return new ReleaseReport(versions, commitsWithoutTicket, ticketsWithoutCommits,
+                new ArrayList<>(publicIssues.values()), phaseTimes);
+    }
+
+    private <T> CompletableFuture<T> timed(String phase, CompletableFuture<T> future, Map<String, Long> phaseNanos) {
+        long start = System.nanoTime();
+        return future.whenComplete((result, e) -> {
+            long nanos = System.nanoTime() - start;
+            phaseNanos.put(phase, nanos);
+            record(phase, nanos);
+        });
+    }
+
+    private void record(String phase, long nanos) {
+        jiraTools.getJiraApiConnector().getMetrics().recordTime("reconcile." + phase + ".time", nanos);
+    }
+
+    private static class Phase {
+        private final IssueCommitMap git;
+        private final Map<String, Issue> jira;
+
+        Phase(IssueCommitMap git, Map<String, Issue> jira) {
+            this.git = git;
+            this.jira = jira;
+        }
+    }
+
+    /**
+     * Runs the reconciler and prints the report to stdout.
+     * <p>
+     * Usage: {@code ReleaseReconciler --version 2019.2 --project BPA --project BREGNEU [--status Done]
+     * --repo <path> <lastReleaseTag> <currentReleaseTag> [--repo ...]}
+     * <p>
+     * The JIRA url and credentials are read from the environment variables {@code JIRA_URL}, {@code JIRA_USERNAME}
+     * and {@code JIRA_PASSWORD}, falling back to {@code ToolDataConstants}, see {@link JiraTools#fromEnvironment()}.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        List<String> versions = new ArrayList<>();
+        List<String> projects = new ArrayList<>();
+        List<String> status = new ArrayList<>();
+        MultiRepoGitTools gitTools = new MultiRepoGitTools();
+        int repos = 0;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--version":
+                    versions.add(argument(args, ++i));
+                    break;
+                case "--project":
+                    projects.add(argument(args, ++i));
+                    break;
+                case "--status":
+                    status.add(argument(args, ++i));
+                    break;
+                case "--repo":
+                    gitTools.add(new GitTools(argument(args, ++i)), argument(args, ++i), argument(args, ++i));
+                    repos++;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown argument: " + args[i]);
+            }
+        }
+        if (versions.isEmpty() || projects.isEmpty() || repos == 0) {
+            throw new IllegalArgumentException("Usage: ReleaseReconciler --version <version> --project <project> "
+                    + "[--status <status>] --repo <path> <lastReleaseTag> <currentReleaseTag>");
+        }
+
+        JiraTools jiraTools = JiraTools.fromEnvironment();
+        System.out.print(new ReleaseReconciler(jiraTools, gitTools).reconcile(versions, projects, status).format());
+    }
+
+    private static String argument(String[] args, int i) {
+        if (i >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[args.length - 1]);
+        }
+        return args[i];
+    }
+}
@@ -0,0 +1,161 @@
+package de.phib.jiratools;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.api.domain.Version;
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+/**
+ * The result of a {@link ReleaseReconciler} run: the differences between the issues mentioned in the commits of a
+ * release and the issues fixed in the release according to JIRA, and the time spent in each phase.
+ */
+public final class ReleaseReport {
+
+    private final List<String> versions;
+    private final List<Change> commitsWithoutTicket;
+    private final List<Issue> ticketsWithoutCommits;
+    private final List<Change> publicIssuesWithCodeChanges;
+    private final Map<String, Duration> phaseTimes;
+
+    ReleaseReport(List<String> versions, List<Change> commitsWithoutTicket, List<Issue> ticketsWithoutCommits,
+                  List<Change> publicIssuesWithCodeChanges, Map<String, Duration> phaseTimes) {
+        this.versions = Collections.unmodifiableList(versions);
+        this.commitsWithoutTicket = Collections.unmodifiableList(commitsWithoutTicket);
+        this.ticketsWithoutCommits = Collections.unmodifiableList(ticketsWithoutCommits);
+        this.publicIssuesWithCodeChanges = Collections.unmodifiableList(publicIssuesWithCodeChanges);
+        this.phaseTimes = Collections.unmodifiableMap(phaseTimes);
+    }
+
+    /**
+     * @return the JIRA versions of the release
+     */
+    public List<String> getVersions() {
+        return versions;
+    }
+
+    /**
+     * @return the issues mentioned in commits but not fixed in the release according to JIRA, sorted by key
+     */
+    public List<Change> getCommitsWithoutTicket() {
+        return commitsWithoutTicket;
+    }
+
+    /**
+     * @return the issues fixed in the release according to JIRA but not mentioned in any commit, sorted by key
+     */
+    public List<Issue> getTicketsWithoutCommits() {
+        return ticketsWithoutCommits;
+    }
+
+    /**
+     * @return the public issues of the release mentioned in commits, sorted by key
+     */
+    public List<Change> getPublicIssuesWithCodeChanges() {
+        return publicIssuesWithCodeChanges;
+    }
+
+    /**
+     * @return the duration of each phase ({@code git}, {@code jira}, {@code aliases}) and of the whole run
+     * ({@code total}). The git and jira phases run concurrently.
+     */
+    public Map<String, Duration> getPhaseTimes() {
+        return phaseTimes;
+    }
+
+    /**
+     * @return the report as plain text, one line per issue
+     */
+    public String format() {
+        String fixVersions = String.join(",", versions);
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Release %s%n", fixVersions));
+
+        sb.append(String.format("%n*Commits without ticket*%n"));
+        for (Change change : commitsWithoutTicket) {
+            sb.append(String.format("%s: mentioned in commit(s) %s but not tagged as fixed in version(s) %s in JIRA. Set FixVersions: %s. Status: %s%n",
+                    change.getKey(), change.getCommits(), fixVersions, change.getFixVersions(),
+                    change.getIssue() != null ? change.getIssue().getStatus().getName() : "doesn't exist"));
+        }
+
+        sb.append(String.format("%n*Tickets without commits*%n"));
+        for (Issue issue : ticketsWithoutCommits) {
+            sb.append(String.format("%s mentioned as fixed in JIRA but no commits found%n", issue.getKey()));
+        }
+
+        sb.append(String.format("%n*Public issues with code changes*%n"));
+        for (Change change : publicIssuesWithCodeChanges) {
+            Issue issue = change.getIssue();
+            sb.append(String.format("%s;\"%s\";%s;%s;%s%n", issue.getKey(), issue.getSummary(),
+                    issue.getIssueType().getName(), issue.getStatus().getName(),
+                    issue.getAssignee() != null ? issue.getAssignee().getDisplayName() : "Nicht zugewiesen"));
+        }
+
+        sb.append(String.format("%n*Phases*%n"));
+        phaseTimes.forEach((phase, time) -> sb.append(String.format("%s: %d ms%n", phase, time.toMillis())));
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+
+    /**
+     * An issue key mentioned in commits, with the JIRA issue it refers to.
+     */
+    public static final class Change {
+        private final String key;
+        private final String commits;
+        private final Issue issue;
+
+        Change(String key, String commits, @Nullable Issue issue) {
+            this.key = key;
+            this.commits = commits;
+            this.issue = issue;
+        }
+
+        /**
+         * @return the key as mentioned in the commits, which differs from the key of the issue if it was moved
+         */
+        @NonNull
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * @return the abbreviated ids of the commits, comma separated
+         */
+        @NonNull
+        public String getCommits() {
+            return commits;
+        }
+
+        /**
+         * @return the JIRA issue, or null if it doesn't exist
+         */
+        @Nullable
+        public Issue getIssue() {
+            return issue;
+        }
+
+        /**
+         * @return the fixVersion(s) of the issue joined by {@code ', '}, empty if the issue doesn't exist
+         */
+        @NonNull
+        public String getFixVersions() {
+            if (issue == null || issue.getFixVersions() == null) {
+                return "";
+            }
+            return StreamSupport.stream(issue.getFixVersions().spliterator(), false)
+                    .map(Version::getName)
+                    .collect(Collectors.joining(", "));
+        }
+    }
+}
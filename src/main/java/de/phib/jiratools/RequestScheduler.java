@@ -0,0 +1,301 @@
+package de.phib.jiratools;
+
+import com.atlassian.jira.rest.client.api.RestClientException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Schedules requests to JIRA, so that parallel searches don't get the service account throttled or blocked.
+ * <p>
+ * The scheduler limits the number of concurrent requests and the request rate (token bucket), and retries transient
+ * failures (HTTP 429, 502, 503, 504 and I/O errors) with jittered exponential backoff. Both limits adapt to the server:
+ * a throttled request halves the rate and pauses all requests for the backoff delay, every successful request raises
+ * the rate again (up to the configured maximum). The concurrency limit is lowered while the latency is well above the
+ * best latency observed so far, and raised again once it recovers. Latencies are only compared between requests of
+ * similar size, e.g. a count with {@code maxResults=0} doesn't set the baseline for full pages, and the baseline slowly
+ * follows the average latency, so that a single fast response doesn't lower the limit for good.
+ * <p>
+ * The JIRA REST client doesn't expose response headers, so a {@code Retry-After} header can't be honored directly;
+ * the backoff delay is used instead.
+ */
+public class RequestScheduler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RequestScheduler.class);
+
+    public static final double DEFAULT_REQUESTS_PER_SECOND = 10;
+    public static final int DEFAULT_MAX_RETRIES = 5;
+
+    /**
+     * The size of requests executed without one.
+     */
+    public static final int UNKNOWN_SIZE = -1;
+
+    private static final long BASE_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+    private static final double MIN_REQUESTS_PER_SECOND = 0.5;
+    private static final double RATE_INCREASE_PER_SUCCESS = 0.1;
+    private static final double LATENCY_SMOOTHING = 0.2;
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final double BASELINE_DECAY = 0.01;
+
+    private final int maxConcurrency;
+    private final double maxRequestsPerSecond;
+    private final int maxRetries;
+
+    private int concurrencyLimit;
+    private int running = 0;
+
+    private double requestsPerSecond;
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+    private long pausedUntilNanos = 0;
+
+    /**
+     * The latencies by size class of the requests, see {@link #sizeClass(int)}.
+     */
+    private final Map<Integer, Latency> latencies = new HashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+
+    /**
+     * Creates a new scheduler.
+     *
+     * @param maxConcurrency       the maximum number of requests running at the same time
+     * @param maxRequestsPerSecond the maximum number of requests started per second
+     * @param maxRetries           the number of retries of a request failing with a transient error
+     */
+    public RequestScheduler(int maxConcurrency, double maxRequestsPerSecond, int maxRetries) {
+        if (maxConcurrency < 1 || maxRequestsPerSecond <= 0 || maxRetries < 0) {
+            throw new IllegalArgumentException("Invalid scheduler limits");
+        }
+        this.maxConcurrency = maxConcurrency;
+        this.maxRequestsPerSecond = maxRequestsPerSecond;
+        this.maxRetries = maxRetries;
+        this.concurrencyLimit = maxConcurrency;
+        this.requestsPerSecond = maxRequestsPerSecond;
+        this.tokens = Math.max(1, maxRequestsPerSecond);
+    }
+
+    /**
+     * Executes a request as soon as the limits allow it, retrying it on transient failures.
+     *
+     * @param request the request
+     * @param <T>     the type of the response
+     * @return the response
+     * @throws Exception the failure of the last attempt
+     */
+    public <T> T execute(Callable<T> request) throws Exception {
+        return execute(request, UNKNOWN_SIZE);
+    }
+
+    /**
+     * Executes a request as soon as the limits allow it, retrying it on transient failures.
+     *
+     * @param request the request
+     * @param size    the size of the request, e.g. the number of requested issues; only the latencies of requests of
+     *                similar size are compared to adapt the concurrency limit
+     * @param <T>     the type of the response
+     * @return the response
+     * @throws Exception the failure of the last attempt
+     */
+    public <T> T execute(Callable<T> request, int size) throws Exception {
+        for (int attempt = 0; ; attempt++) {
+            acquire();
+            long start = System.nanoTime();
+            requests.incrementAndGet();
+            try {
+                T result = request.call();
+                release(size, System.nanoTime() - start, true);
+                return result;
+            } catch (Exception e) {
+                release(size, System.nanoTime() - start, false);
+                if (attempt >= maxRetries || !isTransient(e)) {
+                    throw e;
+                }
+                long backoff = backoffMillis(attempt);
+                retries.incrementAndGet();
+                if (isThrottled(e)) {
+                    throttled.incrementAndGet();
+                    throttle(backoff);
+                }
+                LOG.debug("Request failed with a transient error, retrying in {} ms (attempt {} of {})",
+                        backoff, attempt + 1, maxRetries, e);
+                TimeUnit.MILLISECONDS.sleep(backoff);
+            }
+        }
+    }
+
+    /**
+     * @return the number of requests sent, including retries
+     */
+    public long getRequestCount() {
+        return requests.get();
+    }
+
+    /**
+     * @return the number of retried requests
+     */
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    /**
+     * @return the number of requests rejected by the server because of rate limiting
+     */
+    public long getThrottledCount() {
+        return throttled.get();
+    }
+
+    /**
+     * @return the current request rate limit
+     */
+    public synchronized double getRequestsPerSecond() {
+        return requestsPerSecond;
+    }
+
+    /**
+     * @return the current concurrency limit
+     */
+    public synchronized int getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    private synchronized void acquire() throws InterruptedException {
+        while (true) {
+            long now = System.nanoTime();
+            refill(now);
+            if (running < concurrencyLimit && tokens >= 1 && now >= pausedUntilNanos) {
+                tokens -= 1;
+                running++;
+                return;
+            }
+
+            long waitNanos;
+            if (now < pausedUntilNanos) {
+                waitNanos = pausedUntilNanos - now;
+            } else if (tokens < 1) {
+                waitNanos = (long) ((1 - tokens) / requestsPerSecond * TimeUnit.SECONDS.toNanos(1));
+            } else {
+                // waiting for a running request to finish
+                waitNanos = TimeUnit.SECONDS.toNanos(1);
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, Math.max(waitNanos, TimeUnit.MILLISECONDS.toNanos(1)));
+        }
+    }
+
+    private synchronized void release(int size, long latencyNanos, boolean success) {
+        running--;
+        if (success) {
+            requestsPerSecond = Math.min(maxRequestsPerSecond, requestsPerSecond + RATE_INCREASE_PER_SUCCESS);
+            adaptConcurrency(latencies.computeIfAbsent(sizeClass(size), key -> new Latency()),
+                    latencyNanos / 1_000_000.0);
+        }
+        notifyAll();
+    }
+
+    private void refill(long now) {
+        double elapsedSeconds = (now - lastRefillNanos) / (double) TimeUnit.SECONDS.toNanos(1);
+        tokens = Math.min(Math.max(1, requestsPerSecond), tokens + elapsedSeconds * requestsPerSecond);
+        lastRefillNanos = now;
+    }
+
+    private void adaptConcurrency(Latency latency, double latencyMillis) {
+        latency.add(latencyMillis);
+        if (latency.average > LATENCY_TOLERANCE * latency.baseline) {
+            concurrencyLimit = Math.max(1, concurrencyLimit - 1);
+        } else if (concurrencyLimit < maxConcurrency) {
+            concurrencyLimit++;
+        }
+    }
+
+    /**
+     * @return the size class of a request: sizes up to 0 as they are, otherwise one class per power of two
+     */
+    private static int sizeClass(int size) {
+        return size <= 0 ? size : 32 - Integer.numberOfLeadingZeros(size);
+    }
+
+    private synchronized void throttle(long pauseMillis) {
+        requestsPerSecond = Math.max(MIN_REQUESTS_PER_SECOND, requestsPerSecond / 2);
+        pausedUntilNanos = Math.max(pausedUntilNanos, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(pauseMillis));
+        LOG.info("JIRA is throttling requests, lowering the rate to {} requests per second", requestsPerSecond);
+    }
+
+    /**
+     * Exponential backoff with full jitter.
+     */
+    private static long backoffMillis(int attempt) {
+        long maxBackoff = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt, 16));
+        return ThreadLocalRandom.current().nextLong(BASE_BACKOFF_MILLIS / 2, maxBackoff + 1);
+    }
+
+    /**
+     * Returns the HTTP status code of a failed request, if known.
+     *
+     * @param failure the failure
+     * @return the status code, or {@code null} if the failure isn't an HTTP error
+     */
+    static Integer getStatusCode(Throwable failure) {
+        Throwable cause = unwrap(failure);
+        while (cause != null) {
+            if (cause instanceof RestClientException && ((RestClientException) cause).getStatusCode().isPresent()) {
+                return ((RestClientException) cause).getStatusCode().get();
+            }
+            cause = cause.getCause();
+        }
+        return null;
+    }
+
+    private static boolean isThrottled(Throwable failure) {
+        Integer status = getStatusCode(failure);
+        return status != null && (status == 429 || status == 503);
+    }
+
+    private static boolean isTransient(Throwable failure) {
+        Integer status = getStatusCode(failure);
+        if (status != null) {
+            return status == 429 || status == 502 || status == 503 || status == 504;
+        }
+        for (Throwable cause = unwrap(failure); cause != null; cause = cause.getCause()) {
+            if (cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The smoothed latency of requests of one size class, and the best smoothed latency as baseline.
+     */
+    private static class Latency {
+        double average = -1;
+        double baseline = Double.MAX_VALUE;
+
+        void add(double latencyMillis) {
+            average = average < 0
+                    ? latencyMillis
+                    : LATENCY_SMOOTHING * latencyMillis + (1 - LATENCY_SMOOTHING) * average;
+            baseline = Math.min(average, baseline + BASELINE_DECAY * (average - baseline));
+        }
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        Throwable cause = failure;
+        while ((cause instanceof ExecutionException || cause instanceof CompletionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
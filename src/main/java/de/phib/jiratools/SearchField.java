@@ -0,0 +1,65 @@
+package de.phib.jiratools;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The issue fields that can be requested in a search. Restricting a search to the fields a tool actually uses keeps
+ * the responses small, because JIRA returns all navigable fields (including description and custom fields) otherwise.
+ */
+public enum SearchField {
+    KEY("key"),
+    SUMMARY("summary"),
+    ISSUE_TYPE("issuetype"),
+    STATUS("status"),
+    PROJECT("project"),
+    CREATED("created"),
+    UPDATED("updated"),
+    ASSIGNEE("assignee"),
+    REPORTER("reporter"),
+    FIX_VERSIONS("fixVersions"),
+    COMPONENTS("components"),
+    LABELS("labels"),
+    SECURITY("security"),
+    TIME_ESTIMATE("timeestimate"),
+    TIME_ORIGINAL_ESTIMATE("timeoriginalestimate"),
+    TIME_SPENT("timespent");
+
+    /**
+     * The fields the JIRA REST client needs to parse an issue at all. They are always part of a restricted search.
+     */
+    public static final Set<SearchField> REQUIRED = Collections.unmodifiableSet(
+            EnumSet.of(SUMMARY, ISSUE_TYPE, STATUS, PROJECT, CREATED, UPDATED));
+
+    private final String id;
+
+    SearchField(String id) {
+        this.id = id;
+    }
+
+    /**
+     * @return the id of the field in the JIRA REST API
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Converts the given fields to the field ids expected by the JIRA REST API, including the {@link #REQUIRED} ones.
+     *
+     * @param fields the requested fields, or {@code null} for all fields
+     * @return the field ids, or {@code null} if all fields are requested
+     */
+    static Set<String> toFieldIds(Collection<SearchField> fields) {
+        if (fields == null) {
+            return null;
+        }
+        Set<String> ids = new LinkedHashSet<>();
+        REQUIRED.forEach(field -> ids.add(field.getId()));
+        fields.forEach(field -> ids.add(field.getId()));
+        return ids;
+    }
+}
@@ -1,10 +1,14 @@
 package de.phib.jiratools.tools;
 
 import com.atlassian.jira.rest.client.api.domain.Issue;
-import com.atlassian.jira.rest.client.api.domain.IssueField;
+import de.phib.jiratools.SearchField;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
 /**
  * Provides the functionality to return the sum of the remaining estimates of a given list of issues.
  */
@@ -12,21 +16,27 @@ public class CalculateRemainingEstimates {
 
     private static final Logger LOG = LoggerFactory.getLogger(CalculateRemainingEstimates.class);
 
+    /**
+     * The issue fields read by this tool.
+     */
+    public static final Set<SearchField> REQUIRED_FIELDS = Collections.unmodifiableSet(
+            EnumSet.of(SearchField.TIME_ESTIMATE));
+
     private CalculateRemainingEstimates() {
         // no op
     }
 
     /**
-     * Returns the sum of the remaining estimates of the given issues.
+     * Returns the sum of the remaining estimates of the given issues. See {@link EstimateAggregator} for further
+     * estimates and breakdowns.
      *
      * @param issues a list of issues
-     * @return the sum of the remaining estimates of the issues
+     * @return the sum of the remaining estimates of the issues in seconds
      */
-    public static int getRemainingEstimates(Iterable<Issue> issues) {
-
-        int estimates = 0;
+    public static long getRemainingEstimates(Iterable<Issue> issues) {
+        long estimates = 0;
         for (Issue issue : issues) {
-            estimates += getRemainingEstimateFromField(issue);
+            estimates = Math.addExact(estimates, EstimateAggregator.getSeconds(issue, SearchField.TIME_ESTIMATE));
         }
 
         LOG.info("Remaining estimates (in seconds): {}", estimates);
@@ -34,26 +44,4 @@ public class CalculateRemainingEstimates {
 
         return estimates;
     }
-
-    /**
-     * Retrieves the value of the field containing the remaining estimate of a given issue
-     *
-     * @param issue an issue
-     * @return the value of the field containing the remaining estimate of the issue
-     */
-    private static int getRemainingEstimateFromField(Issue issue) {
-        IssueField estimateField = issue.getField("timeestimate");
-
-        if (estimateField != null) {
-            Integer estimateValue = (Integer) estimateField.getValue();
-
-            if (estimateValue != null) {
-                return estimateValue;
-            }
-        }
-
-        return 0;
-    }
-
-
-}
\ No newline at end of file
+}
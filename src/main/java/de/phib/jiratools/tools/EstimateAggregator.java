@@ -0,0 +1,314 @@
+package de.phib.jiratools.tools;
+
+import com.atlassian.jira.rest.client.api.domain.BasicComponent;
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.api.domain.IssueField;
+import com.atlassian.jira.rest.client.api.domain.User;
+import com.atlassian.jira.rest.client.api.domain.Version;
+import de.phib.jiratools.SearchField;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import org.codehaus.jettison.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collector;
+
+/**
+ * Sums up the remaining, original and spent estimates of issues in a single pass, grouped by any combination of
+ * {@link Dimension}s.
+ * <p>
+ * Each group is accumulated in a {@code long[]}, the sums are checked for overflow. The aggregation is available as a
+ * {@link Collector}, so that the issues of several pages or searches can be aggregated in parallel and merged.
+ * <p>
+ * Example:
+ * <pre>
+ * SortedMap&lt;List&lt;String&gt;, Estimates&gt; estimates = EstimateAggregator
+ *         .groupBy(Dimension.PROJECT, Dimension.FIX_VERSION)
+ *         .aggregate(issues);
+ * </pre>
+ * An issue with several values of a dimension, e.g. several fix versions, is counted in the group of each value.
+ * Issues without a value are counted in the group {@link #NONE}.
+ */
+public final class EstimateAggregator {
+
+    /**
+     * The group value of issues without a value for a dimension.
+     */
+    public static final String NONE = "(none)";
+
+    /**
+     * The issue fields read for the estimates.
+     */
+    public static final Set<SearchField> ESTIMATE_FIELDS = Collections.unmodifiableSet(EnumSet.of(
+            SearchField.TIME_ESTIMATE, SearchField.TIME_ORIGINAL_ESTIMATE, SearchField.TIME_SPENT));
+
+    private static final String EPIC_LINK = "Epic Link";
+
+    private static final int REMAINING = 0;
+    private static final int ORIGINAL = 1;
+    private static final int SPENT = 2;
+    private static final int ISSUES = 3;
+
+    private static final Comparator<List<String>> GROUP_ORDER = (a, b) -> {
+        for (int i = 0; i < a.size() && i < b.size(); i++) {
+            int comparison = a.get(i).compareTo(b.get(i));
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(a.size(), b.size());
+    };
+
+    /**
+     * The issue attributes estimates can be grouped by.
+     */
+    public enum Dimension {
+        PROJECT(SearchField.PROJECT),
+        ASSIGNEE(SearchField.ASSIGNEE),
+        FIX_VERSION(SearchField.FIX_VERSIONS),
+        COMPONENT(SearchField.COMPONENTS),
+        STATUS(SearchField.STATUS),
+        /**
+         * The epic of an issue, read from the {@code Epic Link} field if the issue has it, otherwise from the parent
+         * issue. The {@code Epic Link} is a custom field, which is only part of searches requesting all fields.
+         */
+        EPIC(null);
+
+        private final SearchField field;
+
+        Dimension(SearchField field) {
+            this.field = field;
+        }
+
+        List<String> getValues(Issue issue) {
+            switch (this) {
+                case PROJECT:
+                    return value(issue.getProject() != null ? issue.getProject().getKey() : null);
+                case ASSIGNEE:
+                    User assignee = issue.getAssignee();
+                    return value(assignee != null ? assignee.getName() : null);
+                case FIX_VERSION:
+                    List<String> versions = new ArrayList<>();
+                    if (issue.getFixVersions() != null) {
+                        for (Version version : issue.getFixVersions()) {
+                            versions.add(version.getName());
+                        }
+                    }
+                    return versions.isEmpty() ? value(null) : versions;
+                case COMPONENT:
+                    List<String> components = new ArrayList<>();
+                    if (issue.getComponents() != null) {
+                        for (BasicComponent component : issue.getComponents()) {
+                            components.add(component.getName());
+                        }
+                    }
+                    return components.isEmpty() ? value(null) : components;
+                case STATUS:
+                    return value(issue.getStatus() != null ? issue.getStatus().getName() : null);
+                case EPIC:
+                    return value(getEpic(issue));
+                default:
+                    throw new IllegalStateException("Unknown dimension " + this);
+            }
+        }
+
+        private static List<String> value(@Nullable String value) {
+            return Collections.singletonList(value != null ? value : NONE);
+        }
+    }
+
+    private final List<Dimension> dimensions;
+
+    private EstimateAggregator(List<Dimension> dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    /**
+     * @param dimensions the dimensions to group by, none for a single total
+     * @return an aggregator grouping by the given dimensions, in the given order
+     */
+    public static EstimateAggregator groupBy(Dimension... dimensions) {
+        return new EstimateAggregator(Collections.unmodifiableList(new ArrayList<>(Arrays.asList(dimensions))));
+    }
+
+    /**
+     * @return the dimensions, in the order of the group values
+     */
+    public List<Dimension> getDimensions() {
+        return dimensions;
+    }
+
+    /**
+     * @return the issue fields to search for, or {@code null} if all fields are needed (for {@link Dimension#EPIC})
+     */
+    @Nullable
+    public Set<SearchField> getFields() {
+        Set<SearchField> fields = EnumSet.copyOf(ESTIMATE_FIELDS);
+        for (Dimension dimension : dimensions) {
+            if (dimension.field == null) {
+                return null;
+            }
+            fields.add(dimension.field);
+        }
+        return fields;
+    }
+
+    /**
+     * Aggregates the estimates of the given issues in the calling thread.
+     *
+     * @param issues the issues
+     * @return the estimates by group values, sorted
+     */
+    public SortedMap<List<String>, Estimates> aggregate(Iterable<Issue> issues) {
+        Accumulator accumulator = new Accumulator();
+        issues.forEach(accumulator::add);
+        return accumulator.finish();
+    }
+
+    /**
+     * @return a collector aggregating the estimates of a stream of issues, which may be parallel
+     */
+    public Collector<Issue, ?, SortedMap<List<String>, Estimates>> toCollector() {
+        return Collector.of(Accumulator::new, Accumulator::add, Accumulator::merge, Accumulator::finish,
+                Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * The sums of the estimates of all given groups, e.g. the total over all projects. An issue counted in several
+     * groups, e.g. of several fix versions, is summed up several times.
+     *
+     * @param estimates estimates by group
+     * @return the sums of the estimates
+     */
+    public static Estimates total(Map<List<String>, Estimates> estimates) {
+        long[] sums = new long[4];
+        estimates.values().forEach(e -> add(sums, e.sums));
+        return new Estimates(sums);
+    }
+
+    private final class Accumulator {
+        private final Map<List<String>, long[]> groups = new HashMap<>();
+
+        void add(Issue issue) {
+            long remaining = getSeconds(issue, SearchField.TIME_ESTIMATE);
+            long original = getSeconds(issue, SearchField.TIME_ORIGINAL_ESTIMATE);
+            long spent = getSeconds(issue, SearchField.TIME_SPENT);
+            addGroups(issue, 0, new String[dimensions.size()], remaining, original, spent);
+        }
+
+        /**
+         * Adds the estimates to the groups of all combinations of the values of the dimensions from {@code d} on.
+         */
+        private void addGroups(Issue issue, int d, String[] group, long remaining, long original, long spent) {
+            if (d == dimensions.size()) {
+                long[] sums = groups.computeIfAbsent(Arrays.asList(group.clone()), key -> new long[4]);
+                sums[REMAINING] = Math.addExact(sums[REMAINING], remaining);
+                sums[ORIGINAL] = Math.addExact(sums[ORIGINAL], original);
+                sums[SPENT] = Math.addExact(sums[SPENT], spent);
+                sums[ISSUES]++;
+                return;
+            }
+            for (String value : dimensions.get(d).getValues(issue)) {
+                group[d] = value;
+                addGroups(issue, d + 1, group, remaining, original, spent);
+            }
+        }
+
+        Accumulator merge(Accumulator other) {
+            other.groups.forEach((group, sums) -> {
+                long[] merged = groups.putIfAbsent(group, sums);
+                if (merged != null) {
+                    EstimateAggregator.add(merged, sums);
+                }
+            });
+            return this;
+        }
+
+        SortedMap<List<String>, Estimates> finish() {
+            SortedMap<List<String>, Estimates> estimates = new TreeMap<>(GROUP_ORDER);
+            groups.forEach((group, sums) -> estimates.put(Collections.unmodifiableList(group), new Estimates(sums)));
+            return estimates;
+        }
+    }
+
+    private static void add(long[] sums, long[] other) {
+        for (int i = 0; i < sums.length; i++) {
+            sums[i] = Math.addExact(sums[i], other[i]);
+        }
+    }
+
+    /**
+     * Retrieves the value of a time tracking field of an issue.
+     *
+     * @return the value in seconds, 0 if the issue has none
+     */
+    static long getSeconds(Issue issue, SearchField field) {
+        IssueField issueField = issue.getField(field.getId());
+        if (issueField != null && issueField.getValue() instanceof Number) {
+            return ((Number) issueField.getValue()).longValue();
+        }
+        return 0;
+    }
+
+    @Nullable
+    private static String getEpic(Issue issue) {
+        Iterable<IssueField> fields = issue.getFields();
+        if (fields != null) {
+            for (IssueField field : fields) {
+                if (EPIC_LINK.equals(field.getName()) && field.getValue() instanceof String) {
+                    return (String) field.getValue();
+                }
+            }
+        }
+        IssueField parent = issue.getField("parent");
+        if (parent != null && parent.getValue() instanceof JSONObject) {
+            return ((JSONObject) parent.getValue()).optString("key", null);
+        }
+        return null;
+    }
+
+    /**
+     * The estimates of a group of issues, in seconds.
+     */
+    public static final class Estimates {
+        private final long[] sums;
+
+        private Estimates(long[] sums) {
+            this.sums = sums.clone();
+        }
+
+        public long getRemaining() {
+            return sums[REMAINING];
+        }
+
+        public long getOriginal() {
+            return sums[ORIGINAL];
+        }
+
+        public long getSpent() {
+            return sums[SPENT];
+        }
+
+        /**
+         * @return the number of issues of the group
+         */
+        public long getIssueCount() {
+            return sums[ISSUES];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("remaining=%d, original=%d, spent=%d, issues=%d",
+                    getRemaining(), getOriginal(), getSpent(), getIssueCount());
+        }
+    }
+}
@@ -1,15 +1,24 @@
 package de.phib.jiratools.tools;
 
 import com.atlassian.jira.rest.client.api.domain.Issue;
-import com.atlassian.jira.rest.client.api.domain.IssueType;
-import com.atlassian.jira.rest.client.api.domain.User;
+import de.phib.jiratools.SearchField;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * Provides the functionality to generate release notes fora given list of issues.
@@ -18,72 +27,110 @@ public class GenerateReleaseNotes {
 
     private static final Logger LOG = LoggerFactory.getLogger(GenerateReleaseNotes.class);
 
+    /**
+     * The issue fields read by this tool.
+     */
+    public static final Set<SearchField> REQUIRED_FIELDS = Collections.unmodifiableSet(
+            EnumSet.of(SearchField.SUMMARY, SearchField.ISSUE_TYPE, SearchField.ASSIGNEE, SearchField.STATUS));
+
     private GenerateReleaseNotes() {
         // static utility class without constructor
     }
 
+    /**
+     * Orders issues by type, then by project and number.
+     */
+    static final Comparator<Issue> RELEASE_NOTES_ORDER = Comparator
+            .comparing((Issue issue) -> issue.getIssueType().getName())
+            .thenComparing(GenerateReleaseNotes::getProject)
+            .thenComparingLong(GenerateReleaseNotes::getNumber)
+            .thenComparing(Issue::getKey);
+
+    /**
+     * Generates the release notes of the given issues in the plain format, see {@link ReleaseNotesFormat#PLAIN}. For
+     * many issues prefer {@link #writeReleaseNotes(Collection, ReleaseNotesFormat, Writer)}, which doesn't keep the
+     * notes in memory.
+     *
+     * @param issues the issues
+     * @return the release notes
+     */
     public static String getReleaseNotes(Collection<Issue> issues) {
-        final StringBuilder releaseNotes = new StringBuilder();
-
-        ReleaseNoteFormatter releaseNoteFormatter = new ReleaseNoteFormatter()
-                .withStatus()
-                .withAssignee()
-                .withIssueType();
-
-        Map<IssueType, List<Issue>> issuesByType = issues.stream()
-                .collect(Collectors.groupingBy(Issue::getIssueType));
-        issuesByType.forEach((issueType, issuesList) -> {
-            releaseNotes.append(String.format("%n*%1$s*%n%n", issueType.getName()));
-            for (Issue issue : issuesList) {
-                releaseNotes.append(releaseNoteFormatter.format(issue));
-            }
-        });
+        StringWriter releaseNotes = new StringWriter();
+        try {
+            writeReleaseNotes(issues, ReleaseNotesFormat.PLAIN, releaseNotes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
 
         String result = releaseNotes.toString();
-        LOG.info("Release Notes:\n\n{}", result);
+        LOG.debug("Release Notes:\n\n{}", result);
 
         return result;
     }
 
-    private static class ReleaseNoteFormatter {
-        static final String FIELD_DELIMITER = "; ";
-        private boolean showAssignee = false;
-        private boolean showStatus = false;
-        private boolean showIssueType = false;
-
-        ReleaseNoteFormatter withAssignee() {
-            this.showAssignee = true;
-            return this;
+    /**
+     * Writes the release notes of the given issues, grouped by issue type. The issues are sorted once by type and key
+     * and written in a single pass, so the output is the same for any order of the given issues.
+     *
+     * @param issues the issues
+     * @param format the output format
+     * @param out    the writer, which is neither flushed nor closed
+     * @throws IOException if the writer fails
+     */
+    public static void writeReleaseNotes(Collection<Issue> issues, ReleaseNotesFormat format, Writer out) throws IOException {
+        Issue[] sorted = issues.toArray(new Issue[0]);
+        Arrays.sort(sorted, RELEASE_NOTES_ORDER);
+
+        format.writeHeader(out);
+        for (int i = 0; i < sorted.length; i++) {
+            Issue issue = sorted[i];
+            if (i == 0 || !isSameType(sorted[i - 1], issue)) {
+                format.writeTypeHeader(out, issue);
+            }
+            format.writeIssue(out, issue);
+            if (i == sorted.length - 1 || !isSameType(issue, sorted[i + 1])) {
+                format.writeTypeFooter(out, issue);
+            }
         }
+        format.writeFooter(out);
 
-        ReleaseNoteFormatter withStatus() {
-            this.showStatus = true;
-            return this;
-        }
+        LOG.info("Release Notes: {} issues written as {}", sorted.length, format);
+    }
 
-        ReleaseNoteFormatter withIssueType() {
-            this.showIssueType = true;
-            return this;
-        }
+    /**
+     * Writes the release notes of the given issues as UTF-8, see
+     * {@link #writeReleaseNotes(Collection, ReleaseNotesFormat, Writer)}.
+     *
+     * @param issues the issues
+     * @param format the output format
+     * @param out    the stream, which is flushed but not closed
+     * @throws IOException if the stream fails
+     */
+    public static void writeReleaseNotes(Collection<Issue> issues, ReleaseNotesFormat format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writeReleaseNotes(issues, format, writer);
+        writer.flush();
+    }
 
-        String format(Issue issue) {
-            StringBuilder sb = new StringBuilder();
-            sb.append(issue.getKey())
-                    .append(": ")
-                    .append(issue.getSummary());
-            if (showIssueType) {
-                sb.append(FIELD_DELIMITER).append(issue.getIssueType().getName());
-            }
-            if (showAssignee) {
-                User assignee = issue.getAssignee();
-                sb.append(FIELD_DELIMITER).append(assignee != null ? assignee.getDisplayName() : "Unassigned");
-            }
-            if (showStatus) {
-                sb.append(FIELD_DELIMITER).append(issue.getStatus().getName());
+    private static boolean isSameType(Issue issue, Issue other) {
+        return issue.getIssueType().getName().equals(other.getIssueType().getName());
+    }
+
+    private static String getProject(Issue issue) {
+        int dash = issue.getKey().lastIndexOf('-');
+        return dash < 0 ? issue.getKey() : issue.getKey().substring(0, dash);
+    }
+
+    private static long getNumber(Issue issue) {
+        String key = issue.getKey();
+        long number = 0;
+        for (int i = key.lastIndexOf('-') + 1; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9' || number > Long.MAX_VALUE / 10 - 9) {
+                return 0;
             }
-            sb.append("\n");
-            return sb.toString();
+            number = number * 10 + (c - '0');
         }
+        return number;
     }
-
 }
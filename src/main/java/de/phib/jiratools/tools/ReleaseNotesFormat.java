@@ -0,0 +1,221 @@
+package de.phib.jiratools.tools;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import com.atlassian.jira.rest.client.api.domain.User;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The output formats of {@link GenerateReleaseNotes}.
+ * <p>
+ * Each format consists of templates for the start and end of the notes, the start and end of a group of issues of the
+ * same type, and a single issue. The templates contain placeholders like {@code ${key}}, see {@link Field}. They are
+ * compiled once into literal and field parts, so writing an issue only copies the literals and the escaped field
+ * values to the writer.
+ */
+public enum ReleaseNotesFormat {
+
+    /**
+     * Plain text with the type as JIRA bold heading, the format of {@link GenerateReleaseNotes#getReleaseNotes}.
+     */
+    PLAIN(Escaping.NONE, "", "", System.lineSeparator() + "*${type}*" + System.lineSeparator() + System.lineSeparator(), "",
+            "${key}: ${summary}; ${type}; ${assignee}; ${status}\n"),
+
+    MARKDOWN(Escaping.MARKDOWN, "", "", "\n## ${type}\n\n", "",
+            "- **${key}**: ${summary} (${assignee}, ${status})\n"),
+
+    JIRA_WIKI(Escaping.JIRA_WIKI, "", "", "\nh3. ${type}\n||Key||Summary||Assignee||Status||\n", "",
+            "|${key}|${summary}|${assignee}|${status}|\n"),
+
+    HTML(Escaping.HTML, "<div class=\"release-notes\">\n", "</div>\n", "<h3>${type}</h3>\n<ul>\n", "</ul>\n",
+            "<li><strong>${key}</strong>: ${summary} (${assignee}, ${status})</li>\n"),
+
+    /**
+     * Comma separated values with a header row, see RFC 4180.
+     */
+    CSV(Escaping.CSV, "Key,Summary,Issue Type,Assignee,Status\r\n", "", "", "",
+            "${key},${summary},${type},${assignee},${status}\r\n");
+
+    private final Template header;
+    private final Template footer;
+    private final Template typeHeader;
+    private final Template typeFooter;
+    private final Template issue;
+
+    ReleaseNotesFormat(Escaping escaping, String header, String footer, String typeHeader, String typeFooter,
+                       String issue) {
+        this.header = Template.compile(header, escaping);
+        this.footer = Template.compile(footer, escaping);
+        this.typeHeader = Template.compile(typeHeader, escaping);
+        this.typeFooter = Template.compile(typeFooter, escaping);
+        this.issue = Template.compile(issue, escaping);
+    }
+
+    void writeHeader(Writer out) throws IOException {
+        header.write(out, null);
+    }
+
+    void writeFooter(Writer out) throws IOException {
+        footer.write(out, null);
+    }
+
+    /**
+     * @param first the first issue of the type
+     */
+    void writeTypeHeader(Writer out, Issue first) throws IOException {
+        typeHeader.write(out, first);
+    }
+
+    /**
+     * @param last the last issue of the type
+     */
+    void writeTypeFooter(Writer out, Issue last) throws IOException {
+        typeFooter.write(out, last);
+    }
+
+    void writeIssue(Writer out, Issue issue) throws IOException {
+        this.issue.write(out, issue);
+    }
+
+    /**
+     * The placeholders of the templates.
+     */
+    enum Field {
+        KEY("key"),
+        SUMMARY("summary"),
+        TYPE("type"),
+        ASSIGNEE("assignee"),
+        STATUS("status");
+
+        private final String placeholder;
+
+        Field(String name) {
+            this.placeholder = "${" + name + "}";
+        }
+
+        String getValue(Issue issue) {
+            switch (this) {
+                case KEY:
+                    return issue.getKey();
+                case SUMMARY:
+                    return issue.getSummary();
+                case TYPE:
+                    return issue.getIssueType().getName();
+                case ASSIGNEE:
+                    User assignee = issue.getAssignee();
+                    return assignee != null ? assignee.getDisplayName() : "Unassigned";
+                case STATUS:
+                    return issue.getStatus().getName();
+                default:
+                    throw new IllegalStateException("Unknown field " + this);
+            }
+        }
+    }
+
+    /**
+     * A template compiled into literal parts and fields.
+     */
+    private static final class Template {
+        private final String[] literals;
+        private final Field[] fields;
+        private final Escaping escaping;
+
+        private Template(String[] literals, Field[] fields, Escaping escaping) {
+            this.literals = literals;
+            this.fields = fields;
+            this.escaping = escaping;
+        }
+
+        /**
+         * @return a template writing {@code literals[0]}, then {@code fields[i]} followed by {@code literals[i + 1]}
+         * for each field
+         */
+        static Template compile(String template, Escaping escaping) {
+            List<String> literals = new ArrayList<>();
+            List<Field> fields = new ArrayList<>();
+            int start = 0;
+            for (int i = template.indexOf("${"); i >= 0; i = template.indexOf("${", start)) {
+                Field field = null;
+                for (Field candidate : Field.values()) {
+                    if (template.startsWith(candidate.placeholder, i)) {
+                        field = candidate;
+                    }
+                }
+                if (field == null) {
+                    throw new IllegalArgumentException("Unknown placeholder at " + i + " in " + template);
+                }
+                literals.add(template.substring(start, i));
+                fields.add(field);
+                start = i + field.placeholder.length();
+            }
+            literals.add(template.substring(start));
+            return new Template(literals.toArray(new String[0]), fields.toArray(new Field[0]), escaping);
+        }
+
+        void write(Writer out, Issue issue) throws IOException {
+            out.write(literals[0]);
+            for (int i = 0; i < fields.length; i++) {
+                escaping.write(out, fields[i].getValue(issue));
+                out.write(literals[i + 1]);
+            }
+        }
+    }
+
+    /**
+     * Escapes field values, so that they can't break the markup of a format.
+     */
+    private enum Escaping {
+        NONE(""),
+        MARKDOWN("\\`*_[]<>#|"),
+        JIRA_WIKI("\\|[]{}*"),
+        HTML("&<>\""),
+        CSV(",\"\r\n");
+
+        private final String specialChars;
+
+        Escaping(String specialChars) {
+            this.specialChars = specialChars;
+        }
+
+        void write(Writer out, String value) throws IOException {
+            if (value == null) {
+                // the plain format kept the output of the former formatter, which appended missing values as "null"
+                out.write(this == NONE ? "null" : "");
+                return;
+            }
+            if (!needsEscaping(value)) {
+                out.write(value);
+                return;
+            }
+            if (this == CSV) {
+                out.write('"');
+                out.write(value.replace("\"", "\"\""));
+                out.write('"');
+                return;
+            }
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (specialChars.indexOf(c) < 0) {
+                    out.write(c);
+                } else if (this == HTML) {
+                    out.write(c == '&' ? "&amp;" : c == '<' ? "&lt;" : c == '>' ? "&gt;" : "&quot;");
+                } else {
+                    out.write('\\');
+                    out.write(c);
+                }
+            }
+        }
+
+        private boolean needsEscaping(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                if (specialChars.indexOf(value.charAt(i)) >= 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
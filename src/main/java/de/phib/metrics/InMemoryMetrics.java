@@ -0,0 +1,181 @@
+package de.phib.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Collects metrics in memory and reports them as a summary, e.g. at the end of a run.
+ * <p>
+ * Histograms use logarithmic buckets with eight linear sub-buckets each, so percentiles are accurate to about 12 %
+ * while the memory per histogram stays constant.
+ */
+public class InMemoryMetrics implements Metrics {
+
+    private static final Logger LOG = LoggerFactory.getLogger(InMemoryMetrics.class);
+
+    private final Map<String, Histogram> timers = new ConcurrentSkipListMap<>();
+    private final Map<String, Histogram> values = new ConcurrentSkipListMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+    private final Map<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    @Override
+    public void recordTime(String name, long nanos) {
+        timers.computeIfAbsent(name, n -> new Histogram()).record(nanos);
+    }
+
+    @Override
+    public void recordValue(String name, long value) {
+        values.computeIfAbsent(name, n -> new Histogram()).record(value);
+    }
+
+    @Override
+    public void increment(String name) {
+        counters.computeIfAbsent(name, n -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void gauge(String name, LongSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * @param name the name of a histogram recorded with {@link #recordTime(String, long)}
+     * @return the histogram of durations in nanoseconds, or {@code null} if nothing was recorded
+     */
+    public Histogram getTimer(String name) {
+        return timers.get(name);
+    }
+
+    /**
+     * @param name the name of a histogram recorded with {@link #recordValue(String, long)}
+     * @return the histogram, or {@code null} if nothing was recorded
+     */
+    public Histogram getValues(String name) {
+        return values.get(name);
+    }
+
+    /**
+     * @param name the name of a counter or gauge
+     * @return the current value, or 0 if the counter wasn't incremented yet
+     */
+    public long getCount(String name) {
+        LongSupplier gauge = gauges.get(name);
+        if (gauge != null) {
+            return gauge.getAsLong();
+        }
+        LongAdder counter = counters.get(name);
+        return counter != null ? counter.sum() : 0;
+    }
+
+    /**
+     * @return a summary of all metrics, one line per metric
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder();
+        timers.forEach((name, histogram) -> report.append(String.format(
+                "%-32s count=%d total=%.1fms mean=%.1fms p50=%.1fms p95=%.1fms p99=%.1fms max=%.1fms%n",
+                name, histogram.getCount(), millis(histogram.getSum()), millis(histogram.getMean()),
+                millis(histogram.getPercentile(0.5)), millis(histogram.getPercentile(0.95)),
+                millis(histogram.getPercentile(0.99)), millis(histogram.getMax()))));
+        values.forEach((name, histogram) -> report.append(String.format(
+                "%-32s count=%d total=%d mean=%.1f p50=%d p95=%d max=%d%n",
+                name, histogram.getCount(), histogram.getSum(), histogram.getMean(),
+                histogram.getPercentile(0.5), histogram.getPercentile(0.95), histogram.getMax())));
+        counters.forEach((name, counter) -> report.append(String.format("%-32s %d%n", name, counter.sum())));
+        new ConcurrentSkipListMap<>(gauges).forEach((name, gauge) -> report.append(String.format("%-32s %d%n",
+                name, gauge.getAsLong())));
+        return report.toString();
+    }
+
+    /**
+     * Logs the summary of all metrics.
+     */
+    public void logReport() {
+        LOG.info("Metrics:{}{}", System.lineSeparator(), report());
+    }
+
+    private static double millis(double nanos) {
+        return nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * A histogram of non-negative values.
+     */
+    public static class Histogram {
+
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+        private final long[] buckets = new long[64 * SUB_BUCKETS];
+        private long count = 0;
+        private long sum = 0;
+        private long max = 0;
+
+        synchronized void record(long value) {
+            long v = Math.max(0, value);
+            buckets[index(v)]++;
+            count++;
+            sum += v;
+            max = Math.max(max, v);
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        public synchronized long getSum() {
+            return sum;
+        }
+
+        public synchronized long getMax() {
+            return max;
+        }
+
+        public synchronized double getMean() {
+            return count > 0 ? (double) sum / count : 0;
+        }
+
+        /**
+         * @param quantile the quantile, between 0 and 1
+         * @return the middle of the bucket containing the quantile
+         */
+        public synchronized long getPercentile(double quantile) {
+            long rank = (long) Math.ceil(quantile * count);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank && seen > 0) {
+                    long lower = lowerBound(i);
+                    long upper = i + 1 < buckets.length ? lowerBound(i + 1) - 1 : Long.MAX_VALUE;
+                    return Math.min(lower + (upper - lower) / 2, max);
+                }
+            }
+            return max;
+        }
+
+        private static int index(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + subBucket;
+        }
+
+        private static long lowerBound(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int exponent = (index >> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+            long subBucket = index & (SUB_BUCKETS - 1);
+            return (1L << exponent) | (subBucket << (exponent - SUB_BUCKET_BITS));
+        }
+    }
+}
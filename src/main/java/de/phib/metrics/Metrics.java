@@ -0,0 +1,51 @@
+package de.phib.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A small instrumentation surface for the JIRA and git tools, so that the time of a run can be attributed to JIRA
+ * requests, local processing or the git walk.
+ * <p>
+ * Implementations must be thread-safe. Use {@link #noop()} when no metrics are wanted, or {@link InMemoryMetrics}
+ * to collect them for a summary report.
+ */
+public interface Metrics {
+
+    /**
+     * Records a duration in a histogram.
+     *
+     * @param name  the name of the histogram
+     * @param nanos the duration in nanoseconds
+     */
+    void recordTime(String name, long nanos);
+
+    /**
+     * Records a value, e.g. the number of issues of a page, in a histogram.
+     *
+     * @param name  the name of the histogram
+     * @param value the value
+     */
+    void recordValue(String name, long value);
+
+    /**
+     * Increments a counter by one.
+     *
+     * @param name the name of the counter
+     */
+    void increment(String name);
+
+    /**
+     * Registers a value that is read when the metrics are reported, e.g. the hits of a cache.
+     *
+     * @param name  the name of the gauge
+     * @param value the supplier of the current value
+     */
+    void gauge(String name, LongSupplier value);
+
+    /**
+     * @return metrics discarding everything
+     */
+    static Metrics noop() {
+        return NoopMetrics.INSTANCE;
+    }
+}
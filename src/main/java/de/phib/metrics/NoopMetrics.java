@@ -0,0 +1,35 @@
+package de.phib.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Metrics discarding everything.
+ */
+final class NoopMetrics implements Metrics {
+
+    static final NoopMetrics INSTANCE = new NoopMetrics();
+
+    private NoopMetrics() {
+        // singleton
+    }
+
+    @Override
+    public void recordTime(String name, long nanos) {
+        // no op
+    }
+
+    @Override
+    public void recordValue(String name, long value) {
+        // no op
+    }
+
+    @Override
+    public void increment(String name) {
+        // no op
+    }
+
+    @Override
+    public void gauge(String name, LongSupplier value) {
+        // no op
+    }
+}
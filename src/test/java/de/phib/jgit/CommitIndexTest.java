@@ -0,0 +1,148 @@
+package de.phib.jgit;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.util.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Unit tests for the class CommitIndex.
+ */
+public class CommitIndexTest {
+
+    private Path directory;
+    private Git git;
+
+    @BeforeEach
+    void createRepository() throws Exception {
+        directory = Files.createTempDirectory("commit-index-test");
+        git = Git.init().setDirectory(directory.toFile()).call();
+
+        commit("Initial commit");
+        git.tag().setName("1.0").call();
+        commit("BPA-1: first change");
+        git.checkout().setCreateBranch(true).setName("feature").call();
+        commit("BPA-2: feature work, see BPA-1");
+        commit("BREGNEU-3 more feature work");
+        git.checkout().setName("master").call();
+        commit("BPA-4: hotfix");
+        git.merge().include(git.getRepository().resolve("feature")).setMessage("Merge branch 'feature/BPA-2'").call();
+        commit("no key");
+        git.tag().setName("2.0").call();
+    }
+
+    @AfterEach
+    void deleteRepository() throws IOException {
+        git.close();
+        FileUtils.delete(directory.toFile(), FileUtils.RECURSIVE | FileUtils.RETRY);
+    }
+
+    @Test
+    void testRangeMatchesLog() throws Exception {
+        Repository repository = git.getRepository();
+        CommitIndex index = CommitIndex.open(repository);
+
+        Assertions.assertEquals(7, index.update(repository, Collections.emptyList()));
+        Assertions.assertEquals(0, index.update(repository, Collections.emptyList()));
+        Assertions.assertEquals(findWithLog("1.0", "2.0"), getIssues(index, "1.0", "2.0"));
+        Assertions.assertEquals(findWithLog("feature", "2.0"), getIssues(index, "feature", "2.0"));
+        Assertions.assertTrue(getIssues(index, "2.0", "1.0").isEmpty());
+    }
+
+    @Test
+    void testReleasesMatchConsecutiveRanges() throws Exception {
+        Repository repository = git.getRepository();
+        CommitIndex index = CommitIndex.open(repository);
+        index.update(repository, Collections.emptyList());
+
+        List<BitSet> releases = index.releases(Arrays.asList(resolve("1.0"), resolve("feature"), resolve("2.0")));
+
+        Assertions.assertEquals(1, releases.get(0).cardinality());
+        Assertions.assertEquals(index.range(resolve("1.0"), resolve("feature")), releases.get(1));
+        Assertions.assertEquals(index.range(resolve("feature"), resolve("2.0")), releases.get(2));
+    }
+
+    @Test
+    void testUpdatesIncrementallyAfterReload() throws Exception {
+        Repository repository = git.getRepository();
+        CommitIndex.open(repository).update(repository, Collections.emptyList());
+
+        commit("BPA-5: after the release");
+        git.tag().setName("3.0").call();
+        CommitIndex index = CommitIndex.open(repository);
+
+        Assertions.assertEquals(7, index.size());
+        Assertions.assertEquals(1, index.update(repository, Collections.emptyList()));
+        Assertions.assertEquals(findWithLog("1.0", "3.0"), getIssues(index, "1.0", "3.0"));
+        try (RevWalk walk = new RevWalk(repository)) {
+            Assertions.assertEquals(2, index.getCommits("BPA-2", walk).size());
+            Assertions.assertTrue(index.getCommits("BPA-99", walk).isEmpty());
+        }
+    }
+
+    @Test
+    void testDropsTornRecord() throws Exception {
+        Repository repository = git.getRepository();
+        CommitIndex.open(repository).update(repository, Collections.emptyList());
+        Path file = repository.getDirectory().toPath().resolve("jira-tools").resolve("commit-index");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        CommitIndex index = CommitIndex.open(repository);
+
+        Assertions.assertEquals(6, index.size());
+        Assertions.assertEquals(1, index.update(repository, Collections.emptyList()));
+        Assertions.assertEquals(7, CommitIndex.open(repository).size());
+        Assertions.assertEquals(findWithLog("1.0", "2.0"), getIssues(index, "1.0", "2.0"));
+    }
+
+    private void commit(String message) throws Exception {
+        git.commit().setMessage(message).setAllowEmpty(true).call();
+    }
+
+    private Map<String, Set<String>> getIssues(CommitIndex index, String from, String to) throws IOException {
+        Map<String, Set<String>> issues = new TreeMap<>();
+        IssueCommitMap found = index.getIssues(index.range(resolve(from), resolve(to)), directory.toString());
+        for (String key : found.keySet()) {
+            Set<String> names = new HashSet<>();
+            found.getCommitIds(key).forEach(id -> names.add(id.name()));
+            issues.put(key, names);
+        }
+        return issues;
+    }
+
+    private Map<String, Set<String>> findWithLog(String from, String to) throws Exception {
+        Map<String, Set<String>> issues = new TreeMap<>();
+        for (RevCommit commit : git.log().addRange(resolve(from), resolve(to)).call()) {
+            byte[] message = commit.getRawBuffer();
+            IssueKeyScanner.scanCommitMessage(message, (buffer, start, end) ->
+                    issues.computeIfAbsent(IssueKeyScanner.toKey(buffer, start, end), key -> new HashSet<>()).add(commit.name()));
+        }
+        return issues;
+    }
+
+    private ObjectId resolve(String revision) throws IOException {
+        return git.getRepository().resolve(revision + "^{commit}");
+    }
+}
@@ -0,0 +1,109 @@
+package de.phib.jgit;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.util.FileUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Unit tests for the class GitTools, on a local repository with the releases 2019.1, 2019.1.5, 2019.2 and
+ * blueprint-2019.3.
+ */
+public class GitToolsTest {
+
+    private static Path directory;
+    private static GitTools gitTools;
+
+    @BeforeAll
+    static void createRepository() throws Exception {
+        directory = Files.createTempDirectory("git-tools-test");
+        try (Git git = Git.init().setDirectory(directory.toFile()).call()) {
+            commit(git, "Initial commit");
+            git.tag().setName("2019.1").call();
+            commit(git, "BPA-1: hotfix");
+            git.tag().setName("2019.1.5").setAnnotated(true).setMessage("Release 2019.1.5").call();
+            commit(git, "BPA-2: feature");
+            commit(git, "BPA-3: feature, BPA-2 follow up");
+            git.tag().setName("2019.2").setAnnotated(true).setMessage("Release 2019.2").call();
+            commit(git, "BREGNEU-4: feature");
+            git.tag().setName("blueprint-2019.3").call();
+        }
+        gitTools = new GitTools(directory.toString());
+        gitTools.setFetchPolicy(FetchPolicy.never());
+    }
+
+    @AfterAll
+    static void deleteRepository() throws IOException {
+        FileUtils.delete(directory.toFile(), FileUtils.RECURSIVE | FileUtils.RETRY);
+    }
+
+    @Test
+    void testResolvesTagsExactly() {
+        Assertions.assertEquals(Collections.singletonList("BPA-1"), keys(gitTools.getEffectedIssues("2019.1", "2019.1.5")));
+        Assertions.assertEquals(Arrays.asList("BPA-2", "BPA-3"), keys(gitTools.getEffectedIssues("2019.1.5", "2019.2")));
+    }
+
+    @Test
+    void testResolvesUniquePrefix() {
+        Assertions.assertEquals(Collections.singletonList("BREGNEU-4"), keys(gitTools.getEffectedIssues("2019.2", "blueprint")));
+        Assertions.assertTrue(gitTools.getEffectedIssues("2019.2", "2019.3").isEmpty());
+        Assertions.assertTrue(gitTools.getEffectedIssues("201", "2019.2").isEmpty());
+    }
+
+    @Test
+    void testMultipleRanges() {
+        TagRange first = new TagRange("2019.1", "2019.1.5");
+        TagRange second = new TagRange("2019.1.5", "2019.2");
+        TagRange unknown = new TagRange("2019.2", "2020.1");
+
+        Map<TagRange, IssueCommitMap> issues = gitTools.getEffectedIssues(Arrays.asList(first, second, unknown));
+
+        Assertions.assertEquals(Arrays.asList(first, second, unknown), new ArrayList<>(issues.keySet()));
+        Assertions.assertEquals(Collections.singletonList("BPA-1"), keys(issues.get(first)));
+        Assertions.assertEquals(2, issues.get(second).getCommitCount("BPA-2"));
+        Assertions.assertTrue(issues.get(unknown).isEmpty());
+    }
+
+    @Test
+    void testEffectedIssuesByRelease() {
+        List<String> releases = Arrays.asList("2019.1", "2019.1.5", "2019.2", "2019.2.1", "blueprint-2019.3");
+
+        Map<String, IssueCommitMap> issues = gitTools.getEffectedIssuesByRelease(releases);
+
+        Assertions.assertEquals(releases.subList(1, releases.size()), new ArrayList<>(issues.keySet()));
+        Assertions.assertEquals(gitTools.getEffectedIssues("2019.1", "2019.1.5"), issues.get("2019.1.5"));
+        Assertions.assertEquals(gitTools.getEffectedIssues("2019.1.5", "2019.2"), issues.get("2019.2"));
+        Assertions.assertTrue(issues.get("2019.2.1").isEmpty());
+        Assertions.assertEquals(gitTools.getEffectedIssues("2019.2", "blueprint-2019.3"), issues.get("blueprint-2019.3"));
+    }
+
+    @Test
+    void testEffectedIssuesByReleaseWithoutFirstRelease() {
+        List<String> releases = Arrays.asList("2018.4", "2019.1.5", "2019.2");
+
+        Map<String, IssueCommitMap> issues = gitTools.getEffectedIssuesByRelease(releases);
+
+        Assertions.assertEquals(releases.subList(1, releases.size()), new ArrayList<>(issues.keySet()));
+        Assertions.assertEquals(Collections.singletonList("BPA-1"), keys(issues.get("2019.1.5")));
+        Assertions.assertEquals(gitTools.getEffectedIssues("2019.1.5", "2019.2"), issues.get("2019.2"));
+    }
+
+    private static void commit(Git git, String message) throws Exception {
+        git.commit().setMessage(message).setAllowEmpty(true).call();
+    }
+
+    private static List<String> keys(IssueCommitMap issues) {
+        return new ArrayList<>(issues.keySet());
+    }
+}
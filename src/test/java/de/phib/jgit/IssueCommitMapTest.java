@@ -0,0 +1,60 @@
+package de.phib.jgit;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+/**
+ * Unit tests for the class IssueCommitMap.
+ */
+public class IssueCommitMapTest {
+
+    private static final ObjectId[] DXP_COMMITS = {id(1), id(2), id(3)};
+    private static final ObjectId[] ANSIBLE_COMMITS = {id(4), id(5)};
+
+    private static final IssueCommitMap DXP = IssueCommitMap.of("dxp",
+            new String[]{"BPA-1", "BPA-2", "BREGNEU-3"}, new int[][]{{0}, {0, 2}, {1}}, DXP_COMMITS);
+    private static final IssueCommitMap ANSIBLE = IssueCommitMap.of("ansible",
+            new String[]{"BPA-2", "BPA-4"}, new int[][]{{1}, {0}}, ANSIBLE_COMMITS);
+
+    @Test
+    void testIntersectionAndDifference() {
+        IssueCommitMap intersection = DXP.intersection(new HashSet<>(Arrays.asList("BPA-2", "BREGNEU-3", "BPA-99")));
+        IssueCommitMap difference = DXP.difference(Arrays.asList("BPA-2", "BREGNEU-3", "BPA-99"));
+
+        Assertions.assertEquals(Arrays.asList("BPA-2", "BREGNEU-3"), new ArrayList<>(intersection.keySet()));
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(id(1), id(3))), intersection.getCommitIds("BPA-2"));
+        Assertions.assertEquals(Collections.singletonList("BPA-1"), new ArrayList<>(difference.keySet()));
+        Assertions.assertEquals(3, intersection.getCommitCount());
+        Assertions.assertTrue(DXP.intersection(Collections.emptySet()).isEmpty());
+        Assertions.assertSame(DXP, DXP.difference(Collections.emptySet()));
+    }
+
+    @Test
+    void testUnion() {
+        IssueCommitMap union = DXP.union(ANSIBLE);
+
+        Assertions.assertEquals(Arrays.asList("BPA-1", "BPA-2", "BPA-4", "BREGNEU-3"), new ArrayList<>(union.keySet()));
+        Assertions.assertEquals(new HashSet<>(Arrays.asList(id(1), id(3), id(5))), union.getCommitIds("BPA-2"));
+        Assertions.assertEquals(Collections.singleton(id(4)), union.getCommitIds("BPA-4"));
+        Assertions.assertEquals(5, union.getCommitCount());
+        Assertions.assertEquals(union, IssueCommitMap.empty().union(DXP).union(ANSIBLE));
+        Assertions.assertNotEquals(union, ANSIBLE.union(DXP.difference(Collections.singleton("BPA-1"))));
+    }
+
+    @Test
+    void testAbbrCommitList() {
+        Assertions.assertEquals(id(1).abbreviate(10).name() + ", " + id(3).abbreviate(10).name(),
+                DXP.getAbbrCommitList("BPA-2"));
+        Assertions.assertEquals("", DXP.getAbbrCommitList("BPA-99"));
+    }
+
+    private static ObjectId id(int i) {
+        return ObjectId.fromString(String.format("%040x", i * 0x1234567L));
+    }
+}
@@ -0,0 +1,71 @@
+package de.phib.jgit;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Unit tests for the class IssueKeyScanner.
+ */
+public class IssueKeyScannerTest {
+
+    private static final Pattern ISSUE_KEY = Pattern.compile("([A-Z]+-[0-9]+)");
+
+    private static final List<String> MESSAGES = Arrays.asList(
+            "BPA-123: Fix the release checklist",
+            "BPA-1, BREGNEU-22 and BPA-333",
+            "Merge branch 'feature/BPA-42-login' into develop",
+            "no key here, just text - 42",
+            "lowercase bpa-1 and mixed Bpa-2 and aBPA-3",
+            "AB-CD-1 AB-12CD-3 -1 A- -B A-1B-2",
+            "Umlaute \u00e4\u00f6\u00fc BPA-7 \u00c4\u00d6\u00dc-8 \u65e5\u672c-9 \u00dcBPA-10",
+            "trailing key at the end BPA-99",
+            "trailing dash BPA-",
+            "");
+
+    @Test
+    void testFindsSameKeysAsRegex() {
+        for (String message : MESSAGES) {
+            byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+
+            Assertions.assertEquals(findWithRegex(message), IssueKeyScanner.findKeys(bytes, 0, bytes.length), message);
+        }
+    }
+
+    @Test
+    void testScansRange() {
+        byte[] bytes = "BPA-1 BPA-22 BPA-333".getBytes(StandardCharsets.US_ASCII);
+
+        Assertions.assertEquals(Arrays.asList("BPA-22", "BPA-3"), IssueKeyScanner.findKeys(bytes, 6, 18));
+    }
+
+    @Test
+    void testScansOnlyCommitMessage() {
+        String rawCommit = "tree 4b825dc642cb6eb9a060e54bf8d69288fbee4904\n"
+                + "author ABC-1 <abc@example.com> 1546300800 +0100\n"
+                + "committer ABC-1 <abc@example.com> 1546300800 +0100\n"
+                + "\n"
+                + "BPA-5: Subject\n\nBody mentioning BREGNEU-6\n";
+        List<String> keys = new ArrayList<>();
+
+        IssueKeyScanner.scanCommitMessage(rawCommit.getBytes(StandardCharsets.UTF_8),
+                (buffer, start, end) -> keys.add(IssueKeyScanner.toKey(buffer, start, end)));
+
+        Assertions.assertEquals(Arrays.asList("BPA-5", "BREGNEU-6"), keys);
+    }
+
+    private static List<String> findWithRegex(String message) {
+        List<String> keys = new ArrayList<>();
+        Matcher matcher = ISSUE_KEY.matcher(message);
+        while (matcher.find()) {
+            keys.add(matcher.group());
+        }
+        return keys;
+    }
+}
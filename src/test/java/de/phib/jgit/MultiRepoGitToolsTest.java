@@ -0,0 +1,95 @@
+package de.phib.jgit;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.util.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Unit tests for the classes MultiRepoGitTools and FetchPolicy.
+ */
+public class MultiRepoGitToolsTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("multi-repo-test");
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        FileUtils.delete(directory.toFile(), FileUtils.RECURSIVE | FileUtils.RETRY);
+    }
+
+    @Test
+    void testMergesIssuesOfAllRepositories() throws Exception {
+        File first = createRepository("first", "BPA-1: first", "BPA-2: second");
+        File second = createRepository("second", "BPA-2: ansible change", "BREGNEU-3: ansible change");
+
+        IssueCommitMap issues = new MultiRepoGitTools()
+                .add(new GitTools(first.getPath()), "1.0", "2.0")
+                .add(new GitTools(second.getPath()), "1.0", "2.0")
+                .setFetchPolicy(FetchPolicy.never())
+                .getEffectedIssues();
+
+        Assertions.assertEquals(Arrays.asList("BPA-1", "BPA-2", "BREGNEU-3"), Arrays.asList(issues.keySet().toArray()));
+        Assertions.assertEquals(2, issues.getCommitCount("BPA-2"));
+        Assertions.assertEquals(Arrays.asList("BPA-2: second", "BPA-2: ansible change"),
+                issues.parseCommits("BPA-2").stream().map(RevCommit::getFullMessage).collect(Collectors.toList()));
+    }
+
+    @Test
+    void testFetchPolicy() throws Exception {
+        File origin = createRepository("origin", "BPA-1: first");
+        try (Git clone = Git.cloneRepository().setURI(origin.toURI().toString())
+                .setDirectory(directory.resolve("clone").toFile()).call()) {
+            Repository repository = clone.getRepository();
+            Path fetchHead = repository.getDirectory().toPath().resolve("FETCH_HEAD");
+            Files.deleteIfExists(fetchHead);
+            FetchPolicy policy = FetchPolicy.ifOlderThan(Duration.ofMinutes(10));
+
+            Assertions.assertTrue(FetchPolicy.always().shouldFetch(repository));
+            Assertions.assertFalse(FetchPolicy.never().shouldFetch(repository));
+            Assertions.assertTrue(policy.shouldFetch(repository));
+
+            GitTools gitTools = new GitTools(repository.getDirectory().getPath());
+            gitTools.setFetchPolicy(policy);
+            Assertions.assertEquals(1, gitTools.getEffectedIssues("1.0", "2.0").size());
+            Assertions.assertFalse(policy.shouldFetch(repository));
+
+            FileTime hourAgo = FileTime.fromMillis(System.currentTimeMillis() - Duration.ofHours(1).toMillis());
+            Files.setLastModifiedTime(FetchPolicy.getFetchMarker(repository), hourAgo);
+            if (Files.exists(fetchHead)) {
+                Files.setLastModifiedTime(fetchHead, hourAgo);
+            }
+            Assertions.assertTrue(policy.shouldFetch(repository));
+        }
+    }
+
+    private File createRepository(String name, String... messages) throws Exception {
+        File repository = directory.resolve(name).toFile();
+        try (Git git = Git.init().setDirectory(repository).call()) {
+            git.commit().setMessage("Initial commit").setAllowEmpty(true).call();
+            git.tag().setName("1.0").call();
+            for (String message : messages) {
+                git.commit().setMessage(message).setAllowEmpty(true).call();
+            }
+            git.tag().setName("2.0").setAnnotated(true).setMessage("Release 2.0").call();
+        }
+        return repository;
+    }
+}
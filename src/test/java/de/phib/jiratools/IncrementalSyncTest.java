@@ -0,0 +1,142 @@
+package de.phib.jiratools;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import org.eclipse.jgit.util.FileUtils;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Tests IncrementalSync against the embedded {@link JiraSimulator}.
+ */
+public class IncrementalSyncTest {
+
+    private static final String JQL = "project = BPA AND status = Open ORDER BY key ASC";
+
+    private Path directory;
+    private JiraSimulator simulator;
+    private IssueStore issueStore;
+    private JiraApiConnector connector;
+    private IncrementalSync sync;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("incremental-sync-test");
+        simulator = new JiraSimulator(200);
+        issueStore = new IssueStore(directory);
+        connector = new JiraApiConnector(simulator.getUri().toString(), "user", "password");
+        connector.setIssueStore(issueStore, null);
+        sync = new IncrementalSync(connector, issueStore);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        issueStore.close();
+        simulator.close();
+        FileUtils.delete(directory.toFile(), FileUtils.RECURSIVE | FileUtils.RETRY);
+    }
+
+    @Test
+    void testSearchMergesChangedIssues() {
+        Assertions.assertEquals(expectedKeys(), keys(sync.search(JQL, null)));
+
+        simulator.setStatus("BPA-2", "Open");
+        simulator.setStatus("BPA-6", "Done");
+
+        List<Issue> issues = sync.search(JQL, null);
+        Assertions.assertEquals(expectedKeys(), keys(issues));
+        Assertions.assertTrue(keys(issues).contains("BPA-2"));
+        Assertions.assertFalse(keys(issues).contains("BPA-6"));
+        Assertions.assertEquals("Open", issues.stream()
+                .filter(issue -> issue.getKey().equals("BPA-2")).findFirst().get().getStatus().getName());
+    }
+
+    @Test
+    void testSearchAdvancesWatermark() {
+        sync.search(JQL, null);
+        DateTime first = sync.getWatermark(JQL);
+        DateTime latest = issueStore.getAll(expectedKeys()).stream()
+                .map(Issue::getUpdateDate)
+                .max(DateTime::compareTo).get();
+        Assertions.assertTrue(latest.isEqual(first));
+
+        sync.search(JQL, null);
+        Assertions.assertTrue(first.isEqual(sync.getWatermark(JQL)));
+
+        DateTime before = DateTime.now().minusSeconds(1);
+        simulator.setStatus("BPA-2", "Open");
+        sync.search(JQL, null);
+        Assertions.assertFalse(sync.getWatermark(JQL).isBefore(before));
+    }
+
+    @Test
+    void testSearchIgnoresStateInOldFormat() throws IOException {
+        sync.search(JQL, null);
+        Path state = stateFile();
+        List<String> lines = Files.readAllLines(state, StandardCharsets.UTF_8);
+        lines.set(1, "2019/01/01 00:00");
+        Files.write(state, lines, StandardCharsets.UTF_8);
+
+        Assertions.assertNull(sync.getWatermark(JQL));
+        Assertions.assertEquals(expectedKeys(), keys(sync.search(JQL, null)));
+        Assertions.assertNotNull(sync.getWatermark(JQL));
+    }
+
+    @Test
+    void testSearchIgnoresTruncatedState() throws IOException {
+        sync.search(JQL, null);
+        Path state = stateFile();
+        List<String> lines = Files.readAllLines(state, StandardCharsets.UTF_8);
+        Files.write(state, lines.subList(0, lines.size() - 1), StandardCharsets.UTF_8);
+
+        Assertions.assertNull(sync.getWatermark(JQL));
+        Assertions.assertEquals(expectedKeys(), keys(sync.search(JQL, null)));
+        Assertions.assertNotNull(sync.getWatermark(JQL));
+    }
+
+    @Test
+    void testSearchLeavesNoTemporaryFiles() throws IOException {
+        sync.search(JQL, null);
+        sync.search(JQL, null);
+
+        try (Stream<Path> files = Files.list(directory)) {
+            Assertions.assertFalse(files.anyMatch(file -> file.getFileName().toString().endsWith(".tmp")));
+        }
+    }
+
+    private Path stateFile() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith("sync-")).findFirst().get();
+        }
+    }
+
+    @Test
+    void testFormatJqlDateTimeNeverLater() {
+        DateTime time = new DateTime(2019, 6, 1, 12, 30, 45, DateTimeZone.UTC);
+
+        Assertions.assertEquals("2019/06/01 00:30", connector.formatJqlDateTime(time));
+        connector.setTimeZone(DateTimeZone.forID("Europe/Berlin"));
+        Assertions.assertEquals("2019/06/01 14:30", connector.formatJqlDateTime(time));
+    }
+
+    private Set<String> expectedKeys() {
+        return new TreeSet<>(simulator.getMatchingKeys(JQL));
+    }
+
+    private static Set<String> keys(List<Issue> issues) {
+        return issues.stream().map(Issue::getKey).collect(Collectors.toCollection(TreeSet::new));
+    }
+}
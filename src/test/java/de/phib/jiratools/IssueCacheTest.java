@@ -0,0 +1,176 @@
+package de.phib.jiratools;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for the class IssueCache.
+ */
+public class IssueCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private Issue load(String key) {
+        loads.incrementAndGet();
+        return key.startsWith("UNKNOWN-") ? null : TestIssueBuilder.issue(key).build();
+    }
+
+    @Test
+    void testGetCachesIssues() {
+        IssueCache cache = new IssueCache(this::load, 30, 100);
+
+        Assertions.assertEquals("BPA-1", cache.get("BPA-1").getKey());
+        Assertions.assertEquals("BPA-1", cache.get("BPA-1").getKey());
+
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals(1, cache.stats().getHitCount());
+        Assertions.assertEquals(1, cache.stats().getMissCount());
+    }
+
+    @Test
+    void testGetCachesMissingIssues() {
+        IssueCache cache = new IssueCache(this::load, 30, 100);
+
+        Assertions.assertNull(cache.get("UNKNOWN-1"));
+        Assertions.assertNull(cache.get("UNKNOWN-1"));
+        Assertions.assertNull(cache.getIfPresent("UNKNOWN-1"));
+
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testGetDoesNotCacheFailures() {
+        AtomicInteger attempts = new AtomicInteger();
+        IssueCache cache = new IssueCache(key -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new JiraSearchException("Couldn't fetch " + key, null);
+            }
+            return TestIssueBuilder.issue(key).build();
+        }, 30, 100);
+
+        Assertions.assertThrows(JiraSearchException.class, () -> cache.get("BPA-1"));
+        Assertions.assertEquals("BPA-1", cache.get("BPA-1").getKey());
+        Assertions.assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void testGetFetchesExpiredIssuesAgain() {
+        FakeTicker ticker = new FakeTicker();
+        IssueCache cache = new IssueCache(key -> CompletableFuture.completedFuture(load(key)), 30, 100, ticker);
+
+        cache.get("BPA-1");
+        ticker.advance(Duration.ofMinutes(29));
+        cache.get("BPA-1");
+        Assertions.assertEquals(1, loads.get());
+
+        ticker.advance(Duration.ofMinutes(2));
+        Assertions.assertNull(cache.getIfPresent("BPA-1"));
+        cache.get("BPA-1");
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testPutEvictsIssuesBeyondMaxSize() {
+        IssueCache cache = new IssueCache(this::load, 30, 10);
+
+        for (int i = 1; i <= 25; i++) {
+            cache.put(TestIssueBuilder.issue("BPA-" + i).build());
+        }
+
+        Assertions.assertTrue(cache.size() <= 10, "size " + cache.size());
+        Assertions.assertTrue(cache.stats().getEvictionCount() >= 15);
+        Assertions.assertNotNull(cache.getIfPresent("BPA-25"));
+        Assertions.assertEquals(0, loads.get());
+    }
+
+    @Test
+    void testGetCoalescesConcurrentLoads() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IssueCache cache = new IssueCache(key -> {
+            loading.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return load(key);
+        }, 30, 100);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Issue>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cache.get("BPA-1")));
+            Assertions.assertTrue(loading.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 7; i++) {
+                results.add(executor.submit(() -> cache.get("BPA-1")));
+            }
+            // every lookup counts a miss before it joins the lookup in progress
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (cache.stats().getMissCount() < 8 && System.nanoTime() < deadline) {
+                Thread.yield();
+            }
+            Assertions.assertEquals(8, cache.stats().getMissCount());
+            release.countDown();
+
+            for (Future<Issue> result : results) {
+                Assertions.assertEquals("BPA-1", result.get(5, TimeUnit.SECONDS).getKey());
+            }
+            Assertions.assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testGetAsyncDoesNotBlock() {
+        CompletableFuture<Issue> response = new CompletableFuture<>();
+        IssueCache cache = IssueCache.withAsyncLoader(key -> {
+            loads.incrementAndGet();
+            return response;
+        }, 30, 100);
+
+        CompletableFuture<Issue> first = cache.getAsync("BPA-1");
+        CompletableFuture<Issue> second = cache.getAsync("BPA-1");
+        Assertions.assertFalse(first.isDone());
+        Assertions.assertFalse(second.isDone());
+        Assertions.assertEquals(1, loads.get());
+
+        response.complete(TestIssueBuilder.issue("BPA-1").build());
+        Assertions.assertEquals("BPA-1", first.join().getKey());
+        Assertions.assertEquals("BPA-1", second.join().getKey());
+        Assertions.assertEquals("BPA-1", cache.get("BPA-1").getKey());
+        Assertions.assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testGetAsyncDoesNotCacheFailures() {
+        IssueCache cache = IssueCache.withAsyncLoader(key -> {
+            CompletableFuture<Issue> response = new CompletableFuture<>();
+            if (loads.incrementAndGet() == 1) {
+                response.completeExceptionally(new JiraSearchException("Couldn't fetch " + key, null));
+            } else {
+                response.complete(null);
+            }
+            return response;
+        }, 30, 100);
+
+        Assertions.assertTrue(cache.getAsync("UNKNOWN-1").isCompletedExceptionally());
+        Assertions.assertNull(cache.getAsync("UNKNOWN-1").join());
+        Assertions.assertNull(cache.get("UNKNOWN-1"));
+        Assertions.assertEquals(2, loads.get());
+    }
+}
@@ -0,0 +1,101 @@
+package de.phib.jiratools;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import org.eclipse.jgit.util.FileUtils;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeSet;
+
+/**
+ * Unit tests for the classes IssueStore and IssueJsonCodec.
+ */
+public class IssueStoreTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("issue-store-test");
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        FileUtils.delete(directory.toFile(), FileUtils.RECURSIVE | FileUtils.RETRY);
+    }
+
+    @Test
+    void testJsonRoundTrip() throws Exception {
+        Issue issue = TestIssueBuilder.issue("BPA-1").summary("Fix \"quotes\"\tand tabs").status("Done")
+                .assignee("user1").version("1.0").labels("fixed-in-1.0", "backend").build();
+
+        Issue read = IssueJsonCodec.fromJson(IssueJsonCodec.toJson(issue));
+
+        Assertions.assertEquals("BPA-1", read.getKey());
+        Assertions.assertEquals(issue.getId(), read.getId());
+        Assertions.assertEquals("Fix \"quotes\"\tand tabs", read.getSummary());
+        Assertions.assertEquals("Done", read.getStatus().getName());
+        Assertions.assertEquals("BPA", read.getProject().getKey());
+        Assertions.assertEquals("user1", read.getAssignee().getName());
+        Assertions.assertEquals("1.0", read.getFixVersions().iterator().next().getName());
+        Assertions.assertEquals(new TreeSet<>(Arrays.asList("fixed-in-1.0", "backend")), new TreeSet<>(read.getLabels()));
+        Assertions.assertTrue(issue.getUpdateDate().isEqual(read.getUpdateDate()));
+        Assertions.assertNotNull(read.getField("security"));
+        Assertions.assertEquals(IssueJsonCodec.toJson(issue), IssueJsonCodec.toJson(read));
+    }
+
+    @Test
+    void testReopenReadsStoredIssues() throws Exception {
+        try (IssueStore store = new IssueStore(directory)) {
+            store.putAll(Arrays.asList(TestIssueBuilder.issue("BPA-1").build(), TestIssueBuilder.issue("BPA-2").build()));
+            store.put(TestIssueBuilder.issue("BPA-1").status("Done").build());
+        }
+
+        try (IssueStore store = new IssueStore(directory)) {
+            Assertions.assertEquals(new TreeSet<>(Arrays.asList("BPA-1", "BPA-2")), store.keys());
+            Assertions.assertEquals("Done", store.get("BPA-1").getStatus().getName());
+            Assertions.assertEquals("Open", store.get("BPA-2").getStatus().getName());
+            Assertions.assertNull(store.get("BPA-3"));
+            Assertions.assertEquals(1, store.getAll(Arrays.asList("BPA-2", "BPA-3")).size());
+        }
+    }
+
+    @Test
+    void testPutSkipsUnchangedIssues() throws Exception {
+        try (IssueStore store = new IssueStore(directory)) {
+            store.put(TestIssueBuilder.issue("BPA-1").build());
+            store.put(TestIssueBuilder.issue("BPA-1").build());
+            store.putAll(Collections.singletonList(store.get("BPA-1")));
+
+            Assertions.assertEquals(1, store.getLineCount());
+            Assertions.assertEquals(1, Files.readAllLines(directory.resolve("issues.log")).size());
+        }
+    }
+
+    @Test
+    void testPutCompactsOutdatedVersions() throws Exception {
+        try (IssueStore store = new IssueStore(directory)) {
+            store.put(TestIssueBuilder.issue("BPA-2").build());
+            for (int minute = 0; minute < 10; minute++) {
+                store.put(TestIssueBuilder.issue("BPA-1").updated(new DateTime(2019, 1, 2, 0, minute)).build());
+                Assertions.assertTrue(store.getLineCount() <= 4, "lines " + store.getLineCount());
+            }
+
+            Assertions.assertTrue(store.get("BPA-1").getUpdateDate().isEqual(new DateTime(2019, 1, 2, 0, 9)));
+        }
+
+        Assertions.assertTrue(Files.readAllLines(directory.resolve("issues.log")).size() <= 4);
+        try (IssueStore store = new IssueStore(directory)) {
+            Assertions.assertEquals(2, store.keys().size());
+            Assertions.assertTrue(store.get("BPA-1").getUpdateDate().isEqual(new DateTime(2019, 1, 2, 0, 9)));
+        }
+    }
+}
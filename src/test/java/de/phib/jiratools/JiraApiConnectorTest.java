@@ -0,0 +1,457 @@
+package de.phib.jiratools;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import de.phib.jiratools.tools.EstimateAggregator;
+import de.phib.jiratools.tools.EstimateAggregator.Dimension;
+import org.eclipse.jgit.util.FileUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Tests JiraApiConnector and JiraTools against the embedded {@link JiraSimulator}.
+ */
+public class JiraApiConnectorTest {
+
+    private static final int ISSUE_COUNT = 2500;
+
+    private static JiraSimulator simulator;
+
+    @BeforeAll
+    static void startSimulator() throws IOException {
+        simulator = new JiraSimulator(ISSUE_COUNT);
+    }
+
+    @AfterAll
+    static void stopSimulator() {
+        simulator.close();
+    }
+
+    private static JiraApiConnector newConnector() {
+        return newConnector(simulator);
+    }
+
+    private static JiraApiConnector newConnector(JiraSimulator server) {
+        JiraApiConnector connector = new JiraApiConnector(server.getUri().toString(), "user", "password");
+        connector.setRequestScheduler(newRequestScheduler());
+        return connector;
+    }
+
+    private static JiraApiConnector newConnector(int pageSize) {
+        JiraApiConnector connector = new JiraApiConnector(simulator.getUri().toString(), "user", "password", pageSize,
+                JiraApiConnector.DEFAULT_PARALLELISM);
+        connector.setRequestScheduler(newRequestScheduler());
+        return connector;
+    }
+
+    private static JiraTools newJiraTools(JiraSimulator server) {
+        JiraTools jiraTools = new JiraTools(server.getUri().toString(), "user", "password");
+        jiraTools.getJiraApiConnector().setRequestScheduler(newRequestScheduler());
+        return jiraTools;
+    }
+
+    /**
+     * A scheduler with a high rate limit, so that the tests aren't throttled.
+     */
+    private static RequestScheduler newRequestScheduler() {
+        return new RequestScheduler(JiraApiConnector.DEFAULT_PARALLELISM, 1000, 5);
+    }
+
+    /**
+     * Waits until the simulator received the given number of requests, failing after five seconds.
+     */
+    private static void awaitRequestCount(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (simulator.getRequestCount() < count) {
+            if (System.nanoTime() > deadline) {
+                Assertions.fail("Expected " + count + " requests, but got " + simulator.getRequestCount());
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * The server grants less than the requested page size; all pages must still be fetched in order.
+     */
+    @Test
+    void testSearchIssuesWithServerPageCap() {
+        simulator.setMaxPageSize(70);
+        try {
+            String jql = "project = BPA ORDER BY key ASC";
+            List<String> keys = new ArrayList<>();
+            newConnector().searchIssues(jql).forEach(issue -> keys.add(issue.getKey()));
+
+            Assertions.assertEquals(simulator.getMatchingKeys(jql), keys);
+        } finally {
+            simulator.setMaxPageSize(JiraSimulator.DEFAULT_MAX_PAGE_SIZE);
+        }
+    }
+
+    /**
+     * The pages after the first one are fetched concurrently and reassembled in the order given by the query.
+     */
+    @Test
+    void testSearchIssuesInConcurrentPages() {
+        simulator.setLatencyMillis(20);
+        try {
+            JiraApiConnector connector = newConnector(50);
+            String jql = "project = BREGNEU ORDER BY key ASC";
+            int requests = simulator.getRequestCount();
+
+            List<String> keys = new ArrayList<>();
+            connector.searchIssues(jql).forEach(issue -> keys.add(issue.getKey()));
+
+            Assertions.assertEquals(simulator.getMatchingKeys(jql), keys);
+            Assertions.assertEquals(ISSUE_COUNT / JiraSimulator.PROJECTS.size() / 50, simulator.getRequestCount() - requests);
+            Assertions.assertTrue(simulator.getMaxConcurrentRequests() > 1);
+        } finally {
+            simulator.setLatencyMillis(0);
+        }
+    }
+
+    /**
+     * The iterator only fetches ahead as many pages as it may buffer, and yields all issues in the order of the query.
+     */
+    @Test
+    void testIterateIssuesWithBoundedPrefetch() throws InterruptedException {
+        JiraApiConnector connector = newConnector(50);
+        connector.setMaxBufferedPages(2);
+        String jql = "project = BPA ORDER BY key ASC";
+        int requests = simulator.getRequestCount();
+
+        Iterator<Issue> issues = connector.iterateIssues(jql);
+        List<String> keys = new ArrayList<>();
+        keys.add(issues.next().getKey());
+        awaitRequestCount(requests + 2);
+        // a prefetch beyond the buffer would be sent right after the second page, give it the chance to show
+        Thread.sleep(50);
+        Assertions.assertEquals(2, simulator.getRequestCount() - requests);
+
+        issues.forEachRemaining(issue -> keys.add(issue.getKey()));
+        Assertions.assertEquals(simulator.getMatchingKeys(jql), keys);
+        Assertions.assertEquals(ISSUE_COUNT / JiraSimulator.PROJECTS.size() / 50, simulator.getRequestCount() - requests);
+        Assertions.assertThrows(NoSuchElementException.class, issues::next);
+    }
+
+    @Test
+    void testIterateIssuesFailsForInvalidQuery() {
+        Iterator<Issue> issues = newConnector().iterateIssues("unknownField = 1");
+
+        Assertions.assertThrows(JiraSearchException.class, issues::hasNext);
+    }
+
+    @Test
+    void testStreamIssuesWithRequestedFields() {
+        List<Issue> issues = newConnector().streamIssues("project IN (BPA, BREGNEU) AND status = Done",
+                EnumSet.of(SearchField.TIME_ESTIMATE)).collect(Collectors.toList());
+
+        Assertions.assertEquals(ISSUE_COUNT / JiraSimulator.STATUSES.size(), issues.size());
+        for (Issue issue : issues) {
+            int index = simulator.getIndex(issue.getKey());
+            Assertions.assertEquals(JiraSimulator.getTimeEstimate(index), issue.getField("timeestimate").getValue());
+        }
+    }
+
+    /**
+     * Fields that weren't requested are left out of the response, all fields are returned if none are requested.
+     */
+    @Test
+    void testSearchIssuesWithoutUnrequestedFields() {
+        String jql = "key = BPA-3";
+
+        Issue restricted = newConnector().fetchIssues(jql, EnumSet.of(SearchField.LABELS)).get(0);
+        Assertions.assertNotNull(restricted.getLabels());
+        Assertions.assertNull(restricted.getField("security"));
+        Assertions.assertNull(restricted.getField("timeestimate"));
+
+        Issue complete = newConnector().fetchIssues(jql, null).get(0);
+        Assertions.assertNotNull(complete.getField("security"));
+        Assertions.assertNotNull(complete.getField("timeestimate"));
+    }
+
+    /**
+     * Requests exceeding the rate limit of the server are retried until the search is complete.
+     */
+    @Test
+    void testSearchIssuesRetriesThrottledRequests() {
+        simulator.setMaxPageSize(50);
+        simulator.setRateLimit(10);
+        try {
+            JiraApiConnector connector = newConnector();
+            int throttledBefore = simulator.getThrottledCount();
+
+            Set<String> keys = new HashSet<>();
+            connector.searchIssues("project = BREGNEU").forEach(issue -> keys.add(issue.getKey()));
+
+            Assertions.assertEquals(ISSUE_COUNT / JiraSimulator.PROJECTS.size(), keys.size());
+            Assertions.assertTrue(simulator.getThrottledCount() > throttledBefore);
+            Assertions.assertTrue(connector.getRequestScheduler().getRetryCount() > 0);
+        } finally {
+            simulator.setRateLimit(0);
+            simulator.setMaxPageSize(JiraSimulator.DEFAULT_MAX_PAGE_SIZE);
+        }
+    }
+
+    @Test
+    void testSearchIssuesFailsForInvalidQuery() {
+        JiraSearchException e = Assertions.assertThrows(JiraSearchException.class,
+                () -> newConnector().searchIssues("unknownField = 1"));
+
+        Assertions.assertTrue(e.isInvalidQuery());
+    }
+
+    @Test
+    void testFetchIssue() {
+        JiraApiConnector connector = newConnector();
+
+        Assertions.assertEquals("BPA-3", connector.fetchIssue("BPA-3", null).getKey());
+        Assertions.assertNull(connector.fetchIssue("BPA-99999", null));
+    }
+
+    @Test
+    void testGetIssueByKeyWithAllFields() {
+        JiraTools jiraTools = newJiraTools(simulator);
+
+        Assertions.assertEquals("Description of BREGNEU-3", jiraTools.getIssueByKey("BREGNEU-3").getDescription());
+        Assertions.assertEquals("Description of BREGNEU-3", jiraTools.getIssueByKeyAsync("BREGNEU-3").join().getDescription());
+        Assertions.assertEquals(0, jiraTools.getIssueCache().size());
+
+        Assertions.assertNull(jiraTools.getCachedIssue("BREGNEU-3").getDescription());
+        Assertions.assertEquals(1, jiraTools.getIssueCache().size());
+    }
+
+    @Test
+    void testFetchIssueRevalidatesStoredIssue() throws Exception {
+        Path directory = Files.createTempDirectory("issue-store-test");
+        try (JiraSimulator changing = new JiraSimulator(200); IssueStore store = new IssueStore(directory)) {
+            JiraApiConnector connector = newConnector(changing);
+            connector.setIssueStore(store, null);
+
+            Issue fetched = connector.fetchIssue("BPA-5", null);
+            int lines = store.getLineCount();
+            int requests = changing.getRequestCount();
+            Assertions.assertSame(fetched, connector.fetchIssue("BPA-5", null));
+            Assertions.assertEquals(1, changing.getRequestCount() - requests);
+            Assertions.assertEquals(lines, store.getLineCount());
+
+            changing.setStatus("BPA-5", "Reopened");
+            requests = changing.getRequestCount();
+            Assertions.assertEquals("Reopened", connector.fetchIssue("BPA-5", null).getStatus().getName());
+            Assertions.assertEquals(2, changing.getRequestCount() - requests);
+            Assertions.assertEquals("Reopened", store.get("BPA-5").getStatus().getName());
+        } finally {
+            FileUtils.delete(directory.toFile(), FileUtils.RECURSIVE | FileUtils.RETRY);
+        }
+    }
+
+    @Test
+    void testCountAndSearchKeys() {
+        JiraApiConnector connector = newConnector();
+        String jql = "project = BREGNEU AND status = Done ORDER BY key ASC";
+        int requests = simulator.getRequestCount();
+
+        Assertions.assertEquals(simulator.getMatchingKeys(jql).size(), connector.countIssues(jql));
+        Assertions.assertEquals(1, simulator.getRequestCount() - requests);
+        Assertions.assertEquals(simulator.getMatchingKeys(jql), connector.searchKeys(jql));
+        Assertions.assertTrue(connector.existsIssue("BPA-3"));
+        Assertions.assertFalse(connector.existsIssue("BPA-99999"));
+
+        JiraTools jiraTools = newJiraTools(simulator);
+        Assertions.assertEquals("BPA-3", jiraTools.getCurrentKey("BPA-3"));
+        Assertions.assertEquals("BPA-99999", jiraTools.getCurrentKey("BPA-99999"));
+        Assertions.assertEquals(0, jiraTools.getIssueCache().size());
+    }
+
+    @Test
+    void testGetIssuesForVersion() {
+        List<String> versions = Arrays.asList("2019.2");
+        List<String> statuses = Arrays.asList("QA Stage", "Ready To Deploy", "Done");
+
+        JiraTools jiraTools = newJiraTools(simulator);
+        Map<String, Issue> issues = jiraTools.getIssuesForVersion(versions, JiraSimulator.PROJECTS, statuses);
+
+        Set<String> expected = IntStream.range(0, ISSUE_COUNT)
+                .filter(i -> versions.contains(JiraSimulator.getFixVersion(i)))
+                .filter(i -> !JiraSimulator.getLabels(i).contains(JiraSimulator.IGNORE_LABEL))
+                .filter(i -> statuses.contains(JiraSimulator.getStatus(i)))
+                .filter(i -> "public".equals(JiraSimulator.getLevel(i)))
+                .mapToObj(JiraSimulator::getKey)
+                .collect(Collectors.toCollection(TreeSet::new));
+        Assertions.assertFalse(expected.isEmpty());
+        Assertions.assertEquals(expected, new TreeSet<>(issues.keySet()));
+        Assertions.assertTrue(issues.values().stream().allMatch(jiraTools::isPublicIssue));
+    }
+
+    @Test
+    void testGetIssuesForVersionPerProjectOrCombined() throws IOException {
+        List<String> versions = Arrays.asList("2019.1", "2019.2");
+
+        try (JiraSimulator slow = new JiraSimulator(200)) {
+            slow.setLatencyMillis(100);
+            JiraTools jiraTools = newJiraTools(slow);
+
+            int requests = slow.getRequestCount();
+            Map<String, Issue> perProject = jiraTools.getIssuesForVersion(versions, JiraSimulator.PROJECTS);
+            Assertions.assertEquals(JiraSimulator.PROJECTS.size(), slow.getRequestCount() - requests);
+            Assertions.assertEquals(JiraSimulator.PROJECTS.size(), slow.getMaxConcurrentRequests());
+
+            jiraTools.setCombineProjectQueries(true);
+            requests = slow.getRequestCount();
+            Map<String, Issue> combined = jiraTools.getIssuesForVersion(versions, JiraSimulator.PROJECTS);
+            Assertions.assertEquals(1, slow.getRequestCount() - requests);
+
+            Assertions.assertFalse(perProject.isEmpty());
+            Assertions.assertEquals(new TreeSet<>(perProject.keySet()), new TreeSet<>(combined.keySet()));
+            Assertions.assertTrue(perProject.keySet().stream().anyMatch(key -> key.startsWith("BPA-")));
+            Assertions.assertTrue(perProject.keySet().stream().anyMatch(key -> key.startsWith("BREGNEU-")));
+
+            requests = slow.getRequestCount();
+            Assertions.assertTrue(jiraTools.getIssuesForVersion(versions, new ArrayList<>()).isEmpty());
+            jiraTools.setCombineProjectQueries(false);
+            Assertions.assertTrue(jiraTools.getIssuesForVersion(versions, new ArrayList<>()).isEmpty());
+            Assertions.assertEquals(0, slow.getRequestCount() - requests);
+        }
+    }
+
+    @Test
+    void testLocalQueries() {
+        List<String> versions = Arrays.asList("2019.2", "2019.3");
+        List<String> statuses = Arrays.asList("QA Stage", "Ready To Deploy", "Done");
+
+        JiraTools remote = newJiraTools(simulator);
+        JiraTools local = newJiraTools(simulator);
+        local.setLocalQueries(Duration.ofMinutes(10));
+
+        Assertions.assertEquals(remote.getIssuesForVersion(versions, JiraSimulator.PROJECTS).keySet(),
+                local.getIssuesForVersion(versions, JiraSimulator.PROJECTS).keySet());
+
+        Map<String, Issue> expected = remote.getIssuesForVersion(versions, JiraSimulator.PROJECTS, statuses);
+        Map<String, Issue> expectedSubset = remote.getIssuesForVersion(
+                versions.subList(0, 1), JiraSimulator.PROJECTS.subList(0, 1), statuses);
+
+        int requests = simulator.getRequestCount();
+        Assertions.assertEquals(expected.keySet(),
+                local.getIssuesForVersion(versions, JiraSimulator.PROJECTS, statuses).keySet());
+        Assertions.assertEquals(expectedSubset.keySet(), local.getIssuesForVersion(
+                versions.subList(0, 1), JiraSimulator.PROJECTS.subList(0, 1), statuses).keySet());
+        Assertions.assertEquals(0, simulator.getRequestCount() - requests);
+    }
+
+    @Test
+    void testLocalQueriesAfterExpiry() {
+        List<String> versions = Arrays.asList("2019.3");
+        FakeTicker ticker = new FakeTicker();
+        JiraTools local = newJiraTools(simulator);
+        local.setLocalQueries(Duration.ofMinutes(10), ticker);
+
+        Set<String> expected = local.getIssuesForVersion(versions, JiraSimulator.PROJECTS).keySet();
+        int requests = simulator.getRequestCount();
+        ticker.advance(Duration.ofMinutes(5));
+        Assertions.assertEquals(expected, local.getIssuesForVersion(versions, JiraSimulator.PROJECTS).keySet());
+        Assertions.assertEquals(requests, simulator.getRequestCount());
+        ticker.advance(Duration.ofMinutes(6));
+
+        requests = simulator.getRequestCount();
+        Assertions.assertEquals(expected, local.getIssuesForVersion(versions, JiraSimulator.PROJECTS).keySet());
+        Assertions.assertTrue(simulator.getRequestCount() > requests);
+    }
+
+    @Test
+    void testAggregateEstimates() {
+        JiraTools jiraTools = newJiraTools(simulator);
+
+        SortedMap<List<String>, EstimateAggregator.Estimates> estimates = jiraTools.aggregateEstimates(
+                "project IN (BPA, BREGNEU)", EstimateAggregator.groupBy(Dimension.PROJECT, Dimension.FIX_VERSION));
+
+        Map<List<String>, Long> expected = new TreeMap<>(estimates.comparator());
+        IntStream.range(0, ISSUE_COUNT).forEach(i -> expected.merge(
+                Arrays.asList(JiraSimulator.getKey(i).split("-")[0], JiraSimulator.getFixVersion(i)),
+                (long) JiraSimulator.getTimeEstimate(i), Long::sum));
+        Assertions.assertEquals(expected, estimates.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().getRemaining(), (a, b) -> a,
+                        () -> new TreeMap<>(estimates.comparator()))));
+        Assertions.assertEquals(ISSUE_COUNT, EstimateAggregator.total(estimates).getIssueCount());
+        Assertions.assertEquals(jiraTools.calculateRemainingEstimates("project IN (BPA, BREGNEU)"),
+                EstimateAggregator.total(estimates).getRemaining());
+    }
+
+    /**
+     * Unknown keys make JIRA reject the whole {@code key in (...)} query; they must not prevent resolving the others.
+     */
+    @Test
+    void testFindAliasesWithUnknownKeys() {
+        JiraTools jiraTools = newJiraTools(simulator);
+
+        Set<String> keys = IntStream.range(0, 120).mapToObj(JiraSimulator::getKey).collect(Collectors.toSet());
+        keys.add("BPA-99999");
+        keys.add("UNKNOWN-1");
+
+        Map<String, String> aliases = jiraTools.findAliases(keys);
+
+        Assertions.assertEquals(keys, aliases.keySet());
+        aliases.forEach((key, alias) -> Assertions.assertEquals(key, alias));
+    }
+
+    /**
+     * Moved issues are returned under their new key; each requested key must still be mapped to its issue.
+     */
+    @Test
+    void testFindAliasesOfMovedIssues() throws IOException {
+        try (JiraSimulator moving = new JiraSimulator(200)) {
+            String moved = moving.moveIssue("BPA-5", "BREGNEU");
+            String otherMoved = moving.moveIssue("BPA-6", "BREGNEU");
+            JiraTools jiraTools = newJiraTools(moving);
+
+            Set<String> keys = IntStream.range(0, 40).mapToObj(JiraSimulator::getKey).collect(Collectors.toSet());
+            Map<String, String> aliases = jiraTools.findAliases(keys);
+
+            Assertions.assertEquals(keys, aliases.keySet());
+            Assertions.assertEquals(moved, aliases.get("BPA-5"));
+            Assertions.assertEquals(otherMoved, aliases.get("BPA-6"));
+            Assertions.assertEquals("BPA-7", aliases.get("BPA-7"));
+
+            // requested by both keys, the issue is returned once: one more search for the old key, no bisection
+            int requests = moving.getRequestCount();
+            Map<String, String> bothKeys = jiraTools.findAliases(new HashSet<>(Arrays.asList("BPA-5", moved, "BPA-7")));
+
+            Assertions.assertEquals(moved, bothKeys.get("BPA-5"));
+            Assertions.assertEquals(moved, bothKeys.get(moved));
+            Assertions.assertEquals("BPA-7", bothKeys.get("BPA-7"));
+            Assertions.assertEquals(2, moving.getRequestCount() - requests);
+        }
+    }
+
+    @Test
+    void testSimulatedJql() {
+        Assertions.assertEquals(Arrays.asList("BPA-1", "BREGNEU-1"), simulator.getMatchingKeys("key in (BPA-1, BREGNEU-1)"));
+        Assertions.assertEquals(ISSUE_COUNT, simulator.getMatchingKeys("").size());
+        Assertions.assertEquals(0, simulator.getMatchingKeys("updated >= \"2030/01/01 00:00\"").size());
+        Assertions.assertEquals(IntStream.range(0, ISSUE_COUNT).filter(i -> JiraSimulator.getLabels(i).isEmpty()).count(),
+                simulator.getMatchingKeys("labels IS EMPTY").size());
+        Assertions.assertEquals(
+                simulator.getMatchingKeys("project = BPA").size() - simulator.getMatchingKeys("project = BPA AND status = Open").size(),
+                simulator.getMatchingKeys("project = BPA AND NOT (status = Open)").size());
+        Assertions.assertThrows(SimulatedJql.InvalidJqlException.class, () -> simulator.getMatchingKeys("key = FOO-1"));
+    }
+}
@@ -0,0 +1,668 @@
+package de.phib.jiratools;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * An embedded stand-in for the parts of the JIRA REST API used by the tools: the search endpoint and the issue
+ * endpoint, serving a synthetic, deterministic set of issues.
+ * <p>
+ * Issue {@code i} belongs to project {@code PROJECTS[i % PROJECTS.size()]} and is numbered consecutively within its
+ * project; its other fields are derived from {@code i} as well (see the static getters). The issues are generated on
+ * request, so even data sets of 100,000 issues don't need much memory. Searches support the JQL subset described in
+ * {@link SimulatedJql}.
+ * <p>
+ * Latency, a request rate limit (answered with HTTP 429 and {@code Retry-After}) and the server-side page size cap
+ * can be configured to load-test clients.
+ */
+public class JiraSimulator implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JiraSimulator.class);
+
+    public static final List<String> PROJECTS = Collections.unmodifiableList(Arrays.asList("BPA", "BREGNEU"));
+    public static final List<String> VERSIONS = Collections.unmodifiableList(Arrays.asList(
+            "2019.1", "2019.1.5", "2019.2", "2019.3"));
+    public static final List<String> STATUSES = Collections.unmodifiableList(Arrays.asList(
+            "Open", "In Progress", "QA Stage", "Ready To Deploy", "Done"));
+    public static final List<String> LABELS = Collections.unmodifiableList(Arrays.asList(
+            "backend", "frontend", "infrastructure"));
+    public static final String IGNORE_LABEL = "ignore-in-release-checklist";
+
+    /**
+     * Maximum page size granted by default, like the {@code jira.search.views.default.max} setting of JIRA.
+     */
+    public static final int DEFAULT_MAX_PAGE_SIZE = 1000;
+
+    private static final DateTimeFormatter JIRA_DATE_TIME = DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+    private static final DateTime CREATED = new DateTime(2019, 1, 1, 0, 0, DateTimeZone.getDefault());
+
+    private static final Pattern ISSUE_KEY = Pattern.compile("([A-Za-z]+)-(\\d+)");
+    private static final Pattern ISSUE_PATH = Pattern.compile(".*/issue/([^/]+)/?$");
+    private static final int MAX_CACHED_QUERIES = 16;
+    private static final int MOVED_ISSUE_NUMBER = 1_000_000;
+
+    private final int issueCount;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Dataset dataset = new Dataset();
+
+    private final Map<Integer, String> changedStatuses = new ConcurrentHashMap<>();
+    private final Map<Integer, DateTime> changedUpdates = new ConcurrentHashMap<>();
+    private final Map<Integer, String> movedKeys = new ConcurrentHashMap<>();
+    private final Map<String, Integer> movedIndexes = new ConcurrentHashMap<>();
+    private final Map<String, int[]> queryCache = new LinkedHashMap<String, int[]>(MAX_CACHED_QUERIES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, int[]> eldest) {
+            return size() > MAX_CACHED_QUERIES;
+        }
+    };
+
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicInteger throttledCount = new AtomicInteger();
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicInteger maxActiveRequests = new AtomicInteger();
+
+    private volatile long latencyMillis = 0;
+    private volatile long latencyJitterMillis = 0;
+    private volatile int maxPageSize = DEFAULT_MAX_PAGE_SIZE;
+    private volatile int rateLimit = 0;
+    private long rateWindowStart = System.nanoTime();
+    private int rateWindowCount = 0;
+
+    /**
+     * Starts a simulator on a free local port.
+     *
+     * @param issueCount the number of issues in the simulated JIRA
+     * @throws IOException if the server can't be started
+     */
+    public JiraSimulator(int issueCount) throws IOException {
+        this.issueCount = issueCount;
+        this.executor = Executors.newCachedThreadPool(new JiraApiConnector.DaemonThreadFactory("jira-simulator"));
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        this.server.createContext("/rest/api/", this::handle);
+        this.server.setExecutor(executor);
+        this.server.start();
+        LOG.debug("JIRA simulator with {} issues listening on {}", issueCount, getUri());
+    }
+
+    /**
+     * @return the base URI to pass to {@link JiraApiConnector} or {@link JiraTools}
+     */
+    public URI getUri() {
+        return URI.create("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort());
+    }
+
+    /**
+     * @return the number of issues in the simulated JIRA
+     */
+    public int getIssueCount() {
+        return issueCount;
+    }
+
+    /**
+     * @return the number of requests received so far, including throttled ones
+     */
+    public int getRequestCount() {
+        return requestCount.get();
+    }
+
+    /**
+     * @return the number of requests rejected because of the rate limit
+     */
+    public int getThrottledCount() {
+        return throttledCount.get();
+    }
+
+    /**
+     * @return the maximum number of requests that were handled at the same time
+     */
+    public int getMaxConcurrentRequests() {
+        return maxActiveRequests.get();
+    }
+
+    /**
+     * Sets the time each response is delayed by, to simulate the network and server latency.
+     *
+     * @param latencyMillis the latency in milliseconds
+     */
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * Sets a random delay added to the latency of each response.
+     *
+     * @param latencyJitterMillis the maximum additional latency in milliseconds
+     */
+    public void setLatencyJitterMillis(long latencyJitterMillis) {
+        this.latencyJitterMillis = latencyJitterMillis;
+    }
+
+    /**
+     * Sets the maximum page size granted to searches, regardless of the requested page size.
+     *
+     * @param maxPageSize the maximum number of issues per page
+     */
+    public void setMaxPageSize(int maxPageSize) {
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * Limits the number of requests per second. Requests exceeding the limit are answered with HTTP 429.
+     *
+     * @param requestsPerSecond the maximum number of requests per second, or 0 for no limit
+     */
+    public void setRateLimit(int requestsPerSecond) {
+        this.rateLimit = requestsPerSecond;
+    }
+
+    /**
+     * Changes the status of an issue and marks it as updated now, e.g. to test incremental syncs.
+     *
+     * @param key    the issue key
+     * @param status the new status
+     */
+    public void setStatus(String key, String status) {
+        int index = getIndex(key);
+        if (index < 0) {
+            throw new IllegalArgumentException("No issue " + key);
+        }
+        changedStatuses.put(index, status);
+        changedUpdates.put(index, DateTime.now());
+        synchronized (queryCache) {
+            queryCache.clear();
+        }
+    }
+
+    /**
+     * Moves an issue to another project, like JIRA does: the issue gets a new key, and queries for its old key match
+     * the issue under the new key.
+     *
+     * @param key     the issue key
+     * @param project the project to move the issue to
+     * @return the new key of the issue
+     */
+    public String moveIssue(String key, String project) {
+        int index = getIndex(key);
+        if (index < 0) {
+            throw new IllegalArgumentException("No issue " + key);
+        }
+        String newKey = project + "-" + (MOVED_ISSUE_NUMBER + movedIndexes.size() + 1);
+        movedKeys.put(index, newKey);
+        movedIndexes.put(newKey, index);
+        changedUpdates.put(index, DateTime.now());
+        synchronized (queryCache) {
+            queryCache.clear();
+        }
+        return newKey;
+    }
+
+    /**
+     * @param index the index of an issue, from 0 to {@code issueCount - 1}
+     * @return the initial key of the issue, before it was moved (see {@link #moveIssue(String, String)})
+     */
+    public static String getKey(int index) {
+        return PROJECTS.get(index % PROJECTS.size()) + "-" + (index / PROJECTS.size() + 1);
+    }
+
+    /**
+     * @return the fix version of the issue with the given index
+     */
+    public static String getFixVersion(int index) {
+        return VERSIONS.get(index / 7 % VERSIONS.size());
+    }
+
+    /**
+     * @return the initial status of the issue with the given index
+     */
+    public static String getStatus(int index) {
+        return STATUSES.get(index % STATUSES.size());
+    }
+
+    /**
+     * @return the labels of the issue with the given index
+     */
+    public static List<String> getLabels(int index) {
+        List<String> labels = new ArrayList<>(2);
+        if (index % 4 != 3) {
+            labels.add(LABELS.get(index % LABELS.size()));
+        }
+        if (index % 17 == 0) {
+            labels.add(IGNORE_LABEL);
+        }
+        return labels;
+    }
+
+    /**
+     * @return the security level of the issue with the given index
+     */
+    public static String getLevel(int index) {
+        return index % 3 == 0 ? "public" : "internal";
+    }
+
+    /**
+     * @return the remaining estimate in seconds of the issue with the given index
+     */
+    public static int getTimeEstimate(int index) {
+        return index % 16 * 1800;
+    }
+
+    /**
+     * @param key an issue key
+     * @return the index of the issue, or -1 if the key doesn't belong to an issue of the simulator
+     */
+    public int getIndex(String key) {
+        Integer moved = movedIndexes.get(key.trim().toUpperCase());
+        if (moved != null) {
+            return moved;
+        }
+        Matcher matcher = ISSUE_KEY.matcher(key.trim());
+        if (!matcher.matches()) {
+            return -1;
+        }
+        int project = PROJECTS.indexOf(matcher.group(1).toUpperCase());
+        long number = Long.parseLong(matcher.group(2));
+        long index = (number - 1) * PROJECTS.size() + project;
+        return project < 0 || number < 1 || index >= issueCount ? -1 : (int) index;
+    }
+
+    /**
+     * Evaluates a query locally, e.g. to compute the expected result of a search.
+     *
+     * @param jql the query
+     * @return the keys of the matching issues
+     */
+    public List<String> getMatchingKeys(String jql) {
+        List<String> keys = new ArrayList<>();
+        for (int index : select(jql)) {
+            keys.add(dataset.getKey(index));
+        }
+        return keys;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        int active = activeRequests.incrementAndGet();
+        maxActiveRequests.accumulateAndGet(active, Math::max);
+        try {
+            if (!acquireRate()) {
+                throttledCount.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 429, error("Rate limit exceeded."));
+                return;
+            }
+            long latency = latencyMillis
+                    + (latencyJitterMillis > 0 ? ThreadLocalRandom.current().nextLong(latencyJitterMillis + 1) : 0);
+            if (latency > 0) {
+                TimeUnit.MILLISECONDS.sleep(latency);
+            }
+
+            String path = exchange.getRequestURI().getPath();
+            Matcher issuePath = ISSUE_PATH.matcher(path);
+            if (path.endsWith("/search")) {
+                respond(exchange, 200, search(readSearchRequest(exchange)));
+            } else if (issuePath.matches() && "GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                int index = getIndexByKeyOrId(issuePath.group(1));
+                if (index < 0) {
+                    respond(exchange, 404, error("Issue Does Not Exist"));
+                } else {
+                    Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+                    respond(exchange, 200, withNamesAndSchema(toJson(index, toFieldSet(parameters.get("fields")))));
+                }
+            } else {
+                respond(exchange, 404, error("Not found"));
+            }
+        } catch (SimulatedJql.InvalidJqlException e) {
+            respondQuietly(exchange, 400, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.close();
+        } catch (JSONException | RuntimeException e) {
+            LOG.warn("Couldn't handle request {}", exchange.getRequestURI(), e);
+            respondQuietly(exchange, 500, String.valueOf(e));
+        } finally {
+            activeRequests.decrementAndGet();
+        }
+    }
+
+    private synchronized boolean acquireRate() {
+        if (rateLimit <= 0) {
+            return true;
+        }
+        long now = System.nanoTime();
+        if (now - rateWindowStart >= TimeUnit.SECONDS.toNanos(1)) {
+            rateWindowStart = now;
+            rateWindowCount = 0;
+        }
+        return ++rateWindowCount <= rateLimit;
+    }
+
+    private JSONObject search(SearchRequest request) throws JSONException {
+        int[] matches = select(request.jql);
+        int maxResults = Math.max(0, Math.min(request.maxResults, maxPageSize));
+        int from = Math.min(request.startAt, matches.length);
+        int to = Math.min(from + maxResults, matches.length);
+
+        JSONArray issues = new JSONArray();
+        for (int i = from; i < to; i++) {
+            issues.put(toJson(matches[i], request.fields));
+        }
+
+        return withNamesAndSchema(new JSONObject()
+                .put("expand", "schema,names")
+                .put("startAt", request.startAt)
+                .put("maxResults", maxResults)
+                .put("total", matches.length)
+                .put("issues", issues));
+    }
+
+    /**
+     * @return the indexes of the issues matching the query
+     */
+    private int[] select(String jql) {
+        String query = jql == null ? "" : jql;
+        synchronized (queryCache) {
+            int[] cached = queryCache.get(query);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        IntPredicate predicate = SimulatedJql.compile(query, dataset);
+        int[] matches = IntStream.range(0, issueCount).filter(predicate).toArray();
+        synchronized (queryCache) {
+            queryCache.put(query, matches);
+        }
+        return matches;
+    }
+
+    private int getIndexByKeyOrId(String keyOrId) {
+        if (keyOrId.chars().allMatch(Character::isDigit)) {
+            long index = Long.parseLong(keyOrId) - 10000;
+            return index >= 0 && index < issueCount ? (int) index : -1;
+        }
+        return getIndex(keyOrId);
+    }
+
+    private JSONObject toJson(int index, Set<String> fields) throws JSONException {
+        String key = dataset.getKey(index);
+        String project = dataset.getProject(index);
+        String status = dataset.getStatus(index);
+        String version = getFixVersion(index);
+        String base = getUri().toString();
+
+        Map<String, Object> values = new HashMap<>();
+        values.put("summary", "Synthetic issue " + key);
+        values.put("description", index % 2 == 0 ? JSONObject.NULL : "Description of " + key);
+        values.put("issuetype", new JSONObject()
+                .put("self", base + "/rest/api/2/issuetype/" + (index % 4 == 0 ? 1 : 2))
+                .put("id", String.valueOf(index % 4 == 0 ? 1 : 2))
+                .put("name", index % 4 == 0 ? "Bug" : "Story")
+                .put("subtask", false));
+        values.put("status", new JSONObject()
+                .put("self", base + "/rest/api/2/status/" + Math.max(0, STATUSES.indexOf(status)))
+                .put("id", String.valueOf(Math.max(0, STATUSES.indexOf(status))))
+                .put("name", status));
+        values.put("project", new JSONObject()
+                .put("self", base + "/rest/api/2/project/" + project)
+                .put("key", project)
+                .put("name", project));
+        values.put("created", JIRA_DATE_TIME.print(dataset.getCreated(index)));
+        values.put("updated", JIRA_DATE_TIME.print(dataset.getUpdated(index)));
+        values.put("assignee", index % 5 == 0 ? JSONObject.NULL : toUserJson(base, "user" + index % 10));
+        values.put("reporter", toUserJson(base, "reporter"));
+        values.put("fixVersions", new JSONArray().put(new JSONObject()
+                .put("self", base + "/rest/api/2/version/" + VERSIONS.indexOf(version))
+                .put("id", String.valueOf(VERSIONS.indexOf(version)))
+                .put("name", version)
+                .put("archived", false)
+                .put("released", false)));
+        values.put("labels", new JSONArray(getLabels(index)));
+        values.put("components", new JSONArray());
+        values.put("security", new JSONObject()
+                .put("self", base + "/rest/api/2/securitylevel/" + index % 3)
+                .put("id", String.valueOf(index % 3))
+                .put("name", getLevel(index)));
+        values.put("timeestimate", getTimeEstimate(index));
+
+        JSONObject fieldsJson = new JSONObject();
+        for (Map.Entry<String, Object> value : values.entrySet()) {
+            if (fields == null || fields.contains(value.getKey())) {
+                fieldsJson.put(value.getKey(), value.getValue());
+            }
+        }
+
+        return new JSONObject()
+                .put("self", base + "/rest/api/2/issue/" + (10000 + index))
+                .put("id", String.valueOf(10000 + index))
+                .put("key", key)
+                .put("fields", fieldsJson);
+    }
+
+    private static JSONObject withNamesAndSchema(JSONObject json) throws JSONException {
+        return json
+                .put("names", new JSONObject()
+                        .put("security", "Security Level")
+                        .put("timeestimate", "Remaining Estimate"))
+                .put("schema", new JSONObject()
+                        .put("security", new JSONObject().put("type", "securitylevel"))
+                        .put("timeestimate", new JSONObject().put("type", "number")));
+    }
+
+    private static JSONObject toUserJson(String base, String name) throws JSONException {
+        return new JSONObject()
+                .put("self", base + "/rest/api/2/user?username=" + name)
+                .put("name", name)
+                .put("displayName", name)
+                .put("avatarUrls", new JSONObject());
+    }
+
+    private static JSONObject error(String message) throws JSONException {
+        return new JSONObject()
+                .put("errorMessages", new JSONArray().put(message))
+                .put("errors", new JSONObject());
+    }
+
+    /**
+     * Reads the parameters of a search, sent either as query parameters (GET) or as JSON body (POST).
+     */
+    private static SearchRequest readSearchRequest(HttpExchange exchange) throws IOException, JSONException {
+        SearchRequest request = new SearchRequest();
+        if ("POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+            JSONObject body = new JSONObject(new String(readAll(exchange.getRequestBody()), StandardCharsets.UTF_8));
+            request.jql = body.optString("jql", "");
+            request.startAt = body.optInt("startAt", 0);
+            request.maxResults = body.optInt("maxResults", 50);
+            Object fields = body.opt("fields");
+            if (fields instanceof JSONArray) {
+                List<String> fieldList = new ArrayList<>();
+                for (int i = 0; i < ((JSONArray) fields).length(); i++) {
+                    fieldList.add(((JSONArray) fields).getString(i));
+                }
+                request.fields = toFieldSet(String.join(",", fieldList));
+            } else if (fields != null) {
+                request.fields = toFieldSet(fields.toString());
+            }
+            return request;
+        }
+
+        Map<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+        request.jql = parameters.getOrDefault("jql", "");
+        request.startAt = Integer.parseInt(parameters.getOrDefault("startAt", "0"));
+        request.maxResults = Integer.parseInt(parameters.getOrDefault("maxResults", "50"));
+        request.fields = toFieldSet(parameters.get("fields"));
+        return request;
+    }
+
+    /**
+     * @return the requested fields, or {@code null} for all fields
+     */
+    private static Set<String> toFieldSet(String fields) {
+        if (fields == null || fields.isEmpty() || fields.contains("*all") || fields.contains("*navigable")) {
+            return null;
+        }
+        return new HashSet<>(Arrays.asList(fields.split(",")));
+    }
+
+    private static Map<String, String> parseQuery(String query) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String parameter : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(parameter.substring(0, separator), "UTF-8"),
+                        URLDecoder.decode(parameter.substring(separator + 1), "UTF-8"));
+            }
+        }
+        return parameters;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private static void respond(HttpExchange exchange, int status, JSONObject json) throws IOException {
+        byte[] body = json.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static void respondQuietly(HttpExchange exchange, int status, String message) throws IOException {
+        try {
+            respond(exchange, status, error(message));
+        } catch (JSONException e) {
+            exchange.close();
+        }
+    }
+
+    /**
+     * The issues as seen by queries, including changes made with {@link #setStatus(String, String)} and
+     * {@link #moveIssue(String, String)}.
+     */
+    private class Dataset implements SimulatedJql.Dataset {
+        @Override
+        public int size() {
+            return issueCount;
+        }
+
+        @Override
+        public boolean exists(String key) {
+            return getIndex(key) >= 0;
+        }
+
+        @Override
+        public String getKey(int index) {
+            String moved = movedKeys.get(index);
+            return moved != null ? moved : JiraSimulator.getKey(index);
+        }
+
+        @Override
+        public List<String> getKeys(int index) {
+            String moved = movedKeys.get(index);
+            return moved != null
+                    ? Arrays.asList(moved, JiraSimulator.getKey(index))
+                    : Collections.singletonList(JiraSimulator.getKey(index));
+        }
+
+        @Override
+        public String getProject(int index) {
+            String key = getKey(index);
+            return key.substring(0, key.lastIndexOf('-'));
+        }
+
+        @Override
+        public List<String> getFixVersions(int index) {
+            return Collections.singletonList(getFixVersion(index));
+        }
+
+        @Override
+        public List<String> getLabels(int index) {
+            return JiraSimulator.getLabels(index);
+        }
+
+        @Override
+        public String getStatus(int index) {
+            String changed = changedStatuses.get(index);
+            return changed != null ? changed : JiraSimulator.getStatus(index);
+        }
+
+        @Override
+        public String getLevel(int index) {
+            return JiraSimulator.getLevel(index);
+        }
+
+        @Override
+        public DateTime getCreated(int index) {
+            return CREATED;
+        }
+
+        @Override
+        public DateTime getUpdated(int index) {
+            DateTime changed = changedUpdates.get(index);
+            return changed != null ? changed : CREATED.plusMinutes(index);
+        }
+    }
+
+    private static class SearchRequest {
+        String jql;
+        int startAt;
+        int maxResults;
+        Set<String> fields;
+    }
+}
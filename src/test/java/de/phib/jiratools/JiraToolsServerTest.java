@@ -0,0 +1,116 @@
+package de.phib.jiratools;
+
+import org.codehaus.jettison.json.JSONObject;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.stream.IntStream;
+
+/**
+ * Tests JiraToolsServer against the embedded {@link JiraSimulator}.
+ */
+public class JiraToolsServerTest {
+
+    private static final int ISSUE_COUNT = 500;
+
+    private static JiraSimulator simulator;
+    private static JiraToolsServer server;
+
+    @BeforeAll
+    static void start() throws IOException {
+        simulator = new JiraSimulator(ISSUE_COUNT);
+        JiraTools jiraTools = new JiraTools(simulator.getUri().toString(), "user", "password");
+        jiraTools.getJiraApiConnector().setRequestScheduler(new RequestScheduler(4, 1000, 5));
+        server = new JiraToolsServer(jiraTools, Collections.emptyMap(),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 4).start();
+    }
+
+    @AfterAll
+    static void stop() {
+        server.close();
+        simulator.close();
+    }
+
+    @Test
+    void testEstimates() throws Exception {
+        Response response = get("/estimates?jql=" + URLEncoder.encode("project = BPA", "UTF-8") + "&groupBy=status");
+
+        Assertions.assertEquals(200, response.status);
+        JSONObject json = new JSONObject(response.body);
+        long expected = IntStream.range(0, ISSUE_COUNT)
+                .filter(i -> JiraSimulator.getKey(i).startsWith("BPA-"))
+                .mapToLong(JiraSimulator::getTimeEstimate)
+                .sum();
+        Assertions.assertEquals(expected, json.getJSONObject("total").getLong("remaining"));
+        Assertions.assertEquals(JiraSimulator.STATUSES.size(), json.getJSONArray("groups").length());
+    }
+
+    @Test
+    void testAliases() throws Exception {
+        Response response = get("/aliases?key=BPA-1&key=BPA-99999");
+
+        Assertions.assertEquals(200, response.status);
+        JSONObject json = new JSONObject(response.body);
+        Assertions.assertEquals("BPA-1", json.getString("BPA-1"));
+        Assertions.assertEquals("BPA-99999", json.getString("BPA-99999"));
+    }
+
+    @Test
+    void testReleaseNotes() throws Exception {
+        Response response = get("/release-notes?version=2019.2&project=BPA&project=BREGNEU&format=csv");
+
+        Assertions.assertEquals(200, response.status);
+        Assertions.assertTrue(response.body.startsWith("Key,Summary,Issue Type,Assignee,Status\r\n"));
+    }
+
+    @Test
+    void testErrors() throws Exception {
+        Assertions.assertEquals(200, get("/health").status);
+        Assertions.assertEquals(400, get("/estimates").status);
+        Assertions.assertEquals(400, get("/release-notes?version=2019.2&project=BPA&format=pdf").status);
+        Assertions.assertEquals(400, get("/reconcile?version=2019.2&project=BPA&repo=unknown:1.0..2.0").status);
+        Assertions.assertEquals(404, get("/health/more").status);
+    }
+
+    private static Response get(String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(server.getUri() + path).openConnection();
+        try {
+            int status = connection.getResponseCode();
+            InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            if (in != null) {
+                try (InputStream stream = in) {
+                    byte[] buffer = new byte[8192];
+                    for (int n = stream.read(buffer); n >= 0; n = stream.read(buffer)) {
+                        body.write(buffer, 0, n);
+                    }
+                }
+            }
+            return new Response(status, new String(body.toByteArray(), StandardCharsets.UTF_8));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static class Response {
+        private final int status;
+        private final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
@@ -1,19 +1,20 @@
 package de.phib.jiratools;
 
-import com.atlassian.jira.rest.client.api.domain.BasicIssue;
 import com.atlassian.jira.rest.client.api.domain.Issue;
-import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
+import de.phib.jgit.FetchPolicy;
 import de.phib.jgit.GitTools;
-import org.eclipse.jgit.revwalk.RevCommit;
+import de.phib.jgit.IssueCommitMap;
+import de.phib.jgit.MultiRepoGitTools;
+import de.phib.metrics.InMemoryMetrics;
+import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.util.*;
-import java.util.stream.Collectors;
 
 import static de.phib.ToolDataConstants.*;
 
@@ -26,6 +27,8 @@ public class JiraToolsTest {
     private static JiraTools jiraTools;
     private static GitTools dxpGitTools;
     private static GitTools ansibleGitTools;
+    private static MultiRepoGitTools gitTools;
+    private static final InMemoryMetrics METRICS = new InMemoryMetrics();
 
     private static final List<String> JIRA_PROJECTS = Arrays.asList("BPA", "BREGNEU");
     private static final List<String> JIRA_VERSIONS = Arrays.asList("2019.2");
@@ -41,6 +44,27 @@ public class JiraToolsTest {
         jiraTools = new JiraTools(JIRA_URL, JIRA_USERNAME, JIRA_PASSWORD);
         dxpGitTools = new GitTools(GIT_DXP_REPO_PATH);
         ansibleGitTools = new GitTools(GIT_ANSIBLE_REPO_PATH);
+
+        jiraTools.setMetrics(METRICS);
+        dxpGitTools.setMetrics(METRICS);
+        ansibleGitTools.setMetrics(METRICS);
+
+        // the release is queried with and without status filter, one search per project is enough
+        jiraTools.setLocalQueries(Duration.ofMinutes(10));
+
+        // the repositories are analyzed several times per run, fetching once is enough
+        gitTools = new MultiRepoGitTools()
+                .add(dxpGitTools, DXP_PREVIOUS_VERSION_TAG, DXP_CURRENT_VERSION_TAG)
+                .add(ansibleGitTools, ANSIBLE_PREVIOUS_VERSION_TAG, ANSIBLE_CURRENT_VERSION_TAG)
+                .setFetchPolicy(FetchPolicy.ifOlderThan(Duration.ofMinutes(10)));
+    }
+
+    /**
+     * Logs where the time of the test run was spent.
+     */
+    @AfterAll
+    static void reportMetrics() {
+        METRICS.logReport();
     }
 
     /**
@@ -48,20 +72,17 @@ public class JiraToolsTest {
      */
     @Test
     void testCalculateRemainingEstimates() {
-        int estimates = jiraTools.calculateRemainingEstimates(JIRA_REMAINING_ESTIMATES_QUERY);
+        long estimates = jiraTools.calculateRemainingEstimates(JIRA_REMAINING_ESTIMATES_QUERY);
 
         Assertions.assertTrue(estimates > -1);
     }
 
     @Test
-    Map<String, Set<RevCommit>> getEffectedIssuesFromGit() {
-        Map<String, Set<RevCommit>> effectedIssues = dxpGitTools.getEffectedIssues(DXP_PREVIOUS_VERSION_TAG, DXP_CURRENT_VERSION_TAG);
-        Map<String, Set<RevCommit>> effectedAnsibleIssues = ansibleGitTools.getEffectedIssues(ANSIBLE_PREVIOUS_VERSION_TAG, ANSIBLE_CURRENT_VERSION_TAG);
-
-        effectedAnsibleIssues.forEach((key, value) -> effectedIssues.merge(key, value, Sets::union));
+    IssueCommitMap getEffectedIssuesFromGit() {
+        IssueCommitMap effectedIssues = gitTools.getEffectedIssues();
         LOG.info("");
         LOG.info("Git changed issues");
-        effectedIssues.forEach((key, value) -> LOG.info("{} mentioned in commits {}", key, GitTools.getAbbrCommitList(value)));
+        effectedIssues.keySet().forEach(key -> LOG.info("{} mentioned in commits {}", key, effectedIssues.getAbbrCommitList(key)));
         return effectedIssues;
     }
 
@@ -73,65 +94,35 @@ public class JiraToolsTest {
 
     @Test
     void findPublicReleaseIssues() {
-        Map<String, Set<RevCommit>> effectedIssuesFromGit = getEffectedIssuesFromGit();
-        Map<String, Issue> changedIssuesFromJira = jiraTools.getIssuesForVersion(JIRA_VERSIONS, JIRA_PROJECTS);
-
-        Map<String, Issue> publicIssues = changedIssuesFromJira.values()
-                .stream()
-                .filter(jiraTools::isPublicIssue)
-                .collect(Collectors.toMap(BasicIssue::getKey, i -> i));
-
-        Set<String> jiraKeys = publicIssues.keySet();
-        LOG.info("");
-        LOG.info("**Public Issues**");
-        jiraKeys.forEach(i -> LOG.info("{}", i));
-
-        Set<String> gitIssues = effectedIssuesFromGit.keySet();
-
-        Sets.SetView<String> intersection = Sets.intersection(gitIssues, jiraKeys);
-        ArrayList<String> publicIssuesWithCodeChanges = Lists.newArrayList(intersection);
-        publicIssuesWithCodeChanges.sort(Comparator.naturalOrder());
+        ReleaseReport report = new ReleaseReconciler(jiraTools, gitTools).reconcile(JIRA_VERSIONS, JIRA_PROJECTS, Collections.emptyList());
 
         LOG.info("");
         LOG.info("**Public Issues**");
-        for (String i : publicIssuesWithCodeChanges) {
-            Issue issue = publicIssues.get(i);
+        for (ReleaseReport.Change change : report.getPublicIssuesWithCodeChanges()) {
+            Issue issue = change.getIssue();
             String status = issue.getStatus().getName();
             String summary = issue.getSummary();
             String assignee = issue.getAssignee() != null ? issue.getAssignee().getDisplayName() : "Nicht zugewiesen";
             String issueType = issue.getIssueType().getName();
             String level = jiraTools.getIssueLevel(issue);
-            LOG.info("{};\"{}\";{};{};{};{}", i, summary, issueType, level, status, assignee);
+            LOG.info("{};\"{}\";{};{};{};{}", issue.getKey(), summary, issueType, level, status, assignee);
         }
     }
 
     @Test
     void findDiff() {
-        Map<String, Set<RevCommit>> effectedIssues = getEffectedIssuesFromGit();
-        Map<String, Issue> issueMap = findChangedIssueKeysFromJira();
-        Set<String> jiraIssueKeys = issueMap.keySet();
-
-        Set<String> gitIssueKeys = effectedIssues.keySet();
-
-        Map<String, String> aliases = jiraTools.findAliases(gitIssueKeys);
-
-        List<String> commitsNoTicketList = Sets.difference(gitIssueKeys, jiraIssueKeys)
-                .stream()
-                .filter(issue -> !aliases.containsKey(issue) || !jiraIssueKeys.contains(aliases.get(issue)))
-                .sorted(Comparator.naturalOrder())
-                .collect(Collectors.toList());
-        commitsNoTicketList.forEach(s -> LOG.warn("{}: mentioned in commit(s) {} but not tagged as fixed in version(s) {} in JIRA. Set FixVersions: {}. Status: {}",
-                s,
-                GitTools.getAbbrCommitList(effectedIssues.get(s)),
+        ReleaseReport report = new ReleaseReconciler(jiraTools, gitTools).reconcile(JIRA_VERSIONS, JIRA_PROJECTS, Collections.emptyList());
+
+        report.getCommitsWithoutTicket().forEach(change -> LOG.warn("{}: mentioned in commit(s) {} but not tagged as fixed in version(s) {} in JIRA. Set FixVersions: {}. Status: {}",
+                change.getKey(),
+                change.getCommits(),
                 String.join(",", JIRA_VERSIONS),
-                jiraTools.getFixVersionsAsString(issueMap, s),
-                jiraTools.getIssue(issueMap, s) != null ? jiraTools.getIssue(issueMap, s).getStatus().getName() : "doesn't exist"));
-
-        ArrayList<String> jiraNoCommitList = Lists.newArrayList(Sets.difference(jiraIssueKeys, gitIssueKeys));
-        jiraNoCommitList.sort(Comparator.naturalOrder());
-        jiraNoCommitList.stream()
-                .filter(issue -> !aliases.containsValue(issue))
-                .forEach(s -> LOG.warn("{} mentioned as fixed in JIRA but no commits found", s));
+                change.getFixVersions(),
+                change.getIssue() != null ? change.getIssue().getStatus().getName() : "doesn't exist"));
+
+        report.getTicketsWithoutCommits()
+                .forEach(issue -> LOG.warn("{} mentioned as fixed in JIRA but no commits found", issue.getKey()));
+        report.getPhaseTimes().forEach((phase, time) -> LOG.info("{}: {} ms", phase, time.toMillis()));
     }
 
 
@@ -0,0 +1,79 @@
+package de.phib.jiratools;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Unit tests for the class LocalIssueIndex.
+ */
+public class LocalIssueIndexTest {
+
+    private static final List<String> VERSIONS = Arrays.asList("2019.1", "2019.2");
+    private static final List<String> BPA = Collections.singletonList("BPA");
+
+    private static final List<Issue> ISSUES = Arrays.asList(
+            TestIssueBuilder.issue("BPA-1").version("2019.1").status("Done").build(),
+            TestIssueBuilder.issue("BPA-2").version("2019.2").status("Open").build(),
+            TestIssueBuilder.issue("BPA-3").labels("fixed-in-2019.2").status("Done").build(),
+            TestIssueBuilder.issue("BPA-4").version("2019.1").level("internal").build(),
+            TestIssueBuilder.issue("BPA-5").version("2019.1").labels(JiraTools.IGNORE_LABEL).build());
+
+    private static LocalIssueIndex newIndex(Duration maxAge) {
+        return new LocalIssueIndex(maxAge, issue -> issue.getKey().equals("BPA-4") ? "internal" : "public");
+    }
+
+    @Test
+    void testQuery() {
+        LocalIssueIndex index = newIndex(Duration.ofMinutes(10));
+        Assertions.assertEquals(Collections.singletonMap("BPA", VERSIONS), index.getMissingScopes(VERSIONS, BPA));
+        index.add("BPA", VERSIONS, ISSUES);
+
+        Assertions.assertTrue(index.getMissingScopes(VERSIONS.subList(1, 2), BPA).isEmpty());
+        Assertions.assertEquals(new TreeSet<>(Arrays.asList("BPA-1", "BPA-2", "BPA-3")),
+                new TreeSet<>(index.query(VERSIONS, BPA, Collections.emptyList()).keySet()));
+        Assertions.assertEquals(new TreeSet<>(Arrays.asList("BPA-2", "BPA-3")),
+                new TreeSet<>(index.query(VERSIONS.subList(1, 2), BPA, Collections.emptyList()).keySet()));
+        Assertions.assertEquals(new TreeSet<>(Arrays.asList("BPA-1", "BPA-3")),
+                new TreeSet<>(index.query(VERSIONS, Collections.singletonList("bpa"), Collections.singletonList("done")).keySet()));
+        Assertions.assertTrue(index.query(VERSIONS, Collections.singletonList("Blueprint"), Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    void testAddReplacesReloadedIssues() {
+        LocalIssueIndex index = newIndex(Duration.ofMinutes(10));
+        index.add("BPA", VERSIONS, ISSUES);
+        index.add("BPA", VERSIONS, Collections.singletonList(
+                TestIssueBuilder.issue("BPA-1").version("2019.1").status("Open").build()));
+
+        Assertions.assertEquals(ISSUES.size(), index.size());
+        Assertions.assertEquals("Open", index.query(VERSIONS, BPA, Collections.emptyList()).get("BPA-1").getStatus().getName());
+        Assertions.assertFalse(index.query(VERSIONS, BPA, Collections.singletonList("Done")).containsKey("BPA-1"));
+    }
+
+    @Test
+    void testExpiredIndexKeepsItsScopes() {
+        FakeTicker ticker = new FakeTicker();
+        LocalIssueIndex index = new LocalIssueIndex(Duration.ofMinutes(10), issue -> "public", ticker);
+        Assertions.assertFalse(index.isExpired());
+        index.add("BPA", VERSIONS, ISSUES);
+        ticker.advance(Duration.ofMinutes(10));
+        Assertions.assertFalse(index.isExpired());
+        ticker.advance(Duration.ofSeconds(1));
+
+        Assertions.assertTrue(index.isExpired());
+        Assertions.assertTrue(index.getMissingScopes(VERSIONS, BPA).isEmpty());
+        Assertions.assertEquals(4, index.query(VERSIONS, BPA, Collections.emptyList()).size());
+
+        LocalIssueIndex fresh = index.emptyCopy();
+        Assertions.assertFalse(fresh.isExpired());
+        Assertions.assertEquals(0, fresh.size());
+        Assertions.assertEquals(Collections.singletonMap("BPA", VERSIONS), fresh.getMissingScopes(VERSIONS, BPA));
+    }
+}
@@ -0,0 +1,91 @@
+package de.phib.jiratools;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import de.phib.jgit.FetchPolicy;
+import de.phib.jgit.GitTools;
+import de.phib.jgit.MultiRepoGitTools;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.util.FileUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Tests ReleaseReconciler against the embedded {@link JiraSimulator} and a local repository.
+ */
+public class ReleaseReconcilerTest {
+
+    private static final int ISSUE_COUNT = 300;
+    private static final List<String> VERSIONS = Collections.singletonList("2019.2");
+    private static final String UNKNOWN_KEY = "BPA-99999";
+
+    private static JiraSimulator simulator;
+    private static Path directory;
+    private static JiraTools jiraTools;
+    private static List<String> releaseKeys;
+    private static String otherVersionKey;
+
+    @BeforeAll
+    static void setup() throws Exception {
+        simulator = new JiraSimulator(ISSUE_COUNT);
+        jiraTools = new JiraTools(simulator.getUri().toString(), "user", "password");
+        jiraTools.getJiraApiConnector().setRequestScheduler(new RequestScheduler(JiraApiConnector.DEFAULT_PARALLELISM, 1000, 5));
+        releaseKeys = new ArrayList<>(new TreeSet<>(jiraTools.getIssuesForVersion(VERSIONS, JiraSimulator.PROJECTS).keySet()));
+        otherVersionKey = JiraSimulator.getKey(0);
+        Assertions.assertNotEquals(VERSIONS.get(0), JiraSimulator.getFixVersion(0));
+
+        directory = Files.createTempDirectory("release-reconciler-test");
+        try (Git git = Git.init().setDirectory(directory.toFile()).call()) {
+            git.commit().setMessage("Initial commit").setAllowEmpty(true).call();
+            git.tag().setName("2019.1.5").call();
+            git.commit().setMessage(releaseKeys.get(0) + ": feature").setAllowEmpty(true).call();
+            git.commit().setMessage(releaseKeys.get(1) + ", " + otherVersionKey + ": fixes").setAllowEmpty(true).call();
+            git.commit().setMessage(UNKNOWN_KEY + ": typo in key").setAllowEmpty(true).call();
+            git.tag().setName("2019.2").call();
+        }
+    }
+
+    @AfterAll
+    static void cleanup() throws IOException {
+        simulator.close();
+        FileUtils.delete(directory.toFile(), FileUtils.RECURSIVE | FileUtils.RETRY);
+    }
+
+    @Test
+    void testReconcile() {
+        MultiRepoGitTools gitTools = new MultiRepoGitTools()
+                .add(new GitTools(directory.toString()), "2019.1.5", "2019.2")
+                .setFetchPolicy(FetchPolicy.never());
+
+        ReleaseReport report = new ReleaseReconciler(jiraTools, gitTools)
+                .reconcile(VERSIONS, JiraSimulator.PROJECTS, Collections.emptyList());
+
+        List<ReleaseReport.Change> commitsWithoutTicket = report.getCommitsWithoutTicket();
+        Assertions.assertEquals(Arrays.asList(UNKNOWN_KEY, otherVersionKey).stream().sorted().collect(Collectors.toList()),
+                commitsWithoutTicket.stream().map(ReleaseReport.Change::getKey).collect(Collectors.toList()));
+        for (ReleaseReport.Change change : commitsWithoutTicket) {
+            Assertions.assertEquals(change.getKey().equals(UNKNOWN_KEY), change.getIssue() == null);
+        }
+        Assertions.assertEquals(JiraSimulator.getFixVersion(0),
+                commitsWithoutTicket.stream().filter(c -> c.getIssue() != null).findFirst().get().getFixVersions());
+
+        Assertions.assertEquals(releaseKeys.subList(2, releaseKeys.size()),
+                report.getTicketsWithoutCommits().stream().map(Issue::getKey).collect(Collectors.toList()));
+        Assertions.assertEquals(releaseKeys.subList(0, 2),
+                report.getPublicIssuesWithCodeChanges().stream().map(ReleaseReport.Change::getKey).collect(Collectors.toList()));
+
+        Assertions.assertEquals(Arrays.asList("git", "jira", "aliases", "total"), new ArrayList<>(report.getPhaseTimes().keySet()));
+        Assertions.assertTrue(report.format().contains(UNKNOWN_KEY + ": mentioned in commit(s)"));
+    }
+}
@@ -0,0 +1,155 @@
+package de.phib.jiratools;
+
+import com.atlassian.jira.rest.client.api.RestClientException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for the class RequestScheduler.
+ */
+public class RequestSchedulerTest {
+
+    @Test
+    void testExecuteLimitsRate() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(4, 20, 0);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 30; i++) {
+            scheduler.execute(() -> null);
+        }
+
+        // the first 20 requests pass at once, the other 10 at 20 per second
+        Assertions.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(400));
+        Assertions.assertEquals(30, scheduler.getRequestCount());
+    }
+
+    @Test
+    void testExecuteLimitsConcurrency() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(3, 1000, 0);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(10);
+        try {
+            List<Future<Object>> results = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                results.add(executor.submit(() -> scheduler.execute(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(20);
+                    running.decrementAndGet();
+                    return null;
+                })));
+            }
+            for (Future<Object> result : results) {
+                result.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Assertions.assertTrue(maxRunning.get() <= 3, "max running " + maxRunning.get());
+    }
+
+    @Test
+    void testExecuteRetriesTransientFailures() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(4, 1000, 5);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = scheduler.execute(() -> {
+            if (attempts.incrementAndGet() <= 2) {
+                throw new IOException("Connection reset");
+            }
+            return "done";
+        });
+
+        Assertions.assertEquals("done", result);
+        Assertions.assertEquals(3, scheduler.getRequestCount());
+        Assertions.assertEquals(2, scheduler.getRetryCount());
+        Assertions.assertEquals(0, scheduler.getThrottledCount());
+    }
+
+    @Test
+    void testExecuteGivesUpAfterMaxRetries() {
+        RequestScheduler scheduler = new RequestScheduler(4, 1000, 1);
+
+        Assertions.assertThrows(IOException.class, () -> scheduler.execute(() -> {
+            throw new IOException("Connection reset");
+        }));
+        Assertions.assertEquals(2, scheduler.getRequestCount());
+    }
+
+    @Test
+    void testExecuteDoesNotRetryOtherFailures() {
+        RequestScheduler scheduler = new RequestScheduler(4, 1000, 5);
+
+        Assertions.assertThrows(RestClientException.class, () -> scheduler.execute(() -> {
+            throw new RestClientException(new IllegalArgumentException("Invalid query"), 400);
+        }));
+        Assertions.assertThrows(IllegalStateException.class, () -> scheduler.execute(() -> {
+            throw new IllegalStateException("Bug");
+        }));
+        Assertions.assertEquals(2, scheduler.getRequestCount());
+        Assertions.assertEquals(0, scheduler.getRetryCount());
+    }
+
+    @Test
+    void testExecuteBacksOffWhenThrottled() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(4, 100, 5);
+        AtomicInteger attempts = new AtomicInteger();
+
+        long start = System.nanoTime();
+        scheduler.execute(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new RestClientException(new IOException("Too many requests"), 429);
+            }
+            return null;
+        });
+
+        Assertions.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(250));
+        Assertions.assertEquals(1, scheduler.getThrottledCount());
+        Assertions.assertEquals(1, scheduler.getRetryCount());
+        Assertions.assertTrue(scheduler.getRequestsPerSecond() < 100);
+    }
+
+    @Test
+    void testSlowerResponsesLowerConcurrency() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(4, 1000, 0);
+
+        for (int i = 0; i < 10; i++) {
+            scheduler.execute(() -> sleep(5), 100);
+        }
+        Assertions.assertEquals(4, scheduler.getConcurrencyLimit());
+        for (int i = 0; i < 5; i++) {
+            scheduler.execute(() -> sleep(60), 100);
+        }
+        Assertions.assertTrue(scheduler.getConcurrencyLimit() < 4);
+    }
+
+    @Test
+    void testSmallRequestsDontLowerConcurrency() throws Exception {
+        RequestScheduler scheduler = new RequestScheduler(4, 1000, 0);
+
+        for (int i = 0; i < 10; i++) {
+            scheduler.execute(() -> null, 0);
+            scheduler.execute(() -> null, 1);
+        }
+        for (int i = 0; i < 10; i++) {
+            scheduler.execute(() -> sleep(30), 100);
+            Assertions.assertEquals(4, scheduler.getConcurrencyLimit());
+        }
+    }
+
+    private static Object sleep(long millis) throws InterruptedException {
+        Thread.sleep(millis);
+        return null;
+    }
+}
@@ -0,0 +1,28 @@
+package de.phib.jiratools;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+
+/**
+ * Unit tests for the enum SearchField.
+ */
+public class SearchFieldTest {
+
+    @Test
+    void testToFieldIdsAddsRequiredFields() {
+        Assertions.assertEquals(
+                new LinkedHashSet<>(Arrays.asList("summary", "issuetype", "status", "project", "created", "updated",
+                        "security", "timeestimate")),
+                SearchField.toFieldIds(EnumSet.of(SearchField.SECURITY, SearchField.TIME_ESTIMATE)));
+        Assertions.assertEquals(6, SearchField.toFieldIds(EnumSet.of(SearchField.STATUS)).size());
+    }
+
+    @Test
+    void testToFieldIdsForAllFields() {
+        Assertions.assertNull(SearchField.toFieldIds(null));
+    }
+}
@@ -0,0 +1,347 @@
+package de.phib.jiratools;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntPredicate;
+
+/**
+ * Compiles the subset of JQL used by the tools into a predicate over the issues of the {@link JiraSimulator}.
+ * <p>
+ * Supported are {@code AND}, {@code OR}, {@code NOT} and parentheses over clauses on the fields {@code key},
+ * {@code project}, {@code fixVersion}, {@code labels}, {@code status}, {@code level}, {@code created} and
+ * {@code updated}, with the operators {@code =}, {@code !=}, {@code IN}, {@code NOT IN}, {@code IS [NOT] EMPTY} and,
+ * for dates, {@code >=}, {@code >}, {@code <=} and {@code <}. {@code ORDER BY} is accepted and ignored. Like JIRA, a
+ * query referencing an unknown field or a nonexistent issue key is rejected.
+ */
+final class SimulatedJql {
+
+    private static final DateTimeFormatter[] DATE_FORMATS = {
+            DateTimeFormat.forPattern("yyyy/MM/dd HH:mm"),
+            DateTimeFormat.forPattern("yyyy-MM-dd HH:mm"),
+            DateTimeFormat.forPattern("yyyy/MM/dd"),
+            DateTimeFormat.forPattern("yyyy-MM-dd")
+    };
+
+    /**
+     * Read access to the fields of the simulated issues.
+     */
+    interface Dataset {
+        int size();
+
+        boolean exists(String key);
+
+        String getKey(int index);
+
+        /**
+         * @return the current key of the issue, followed by its keys before it was moved
+         */
+        List<String> getKeys(int index);
+
+        String getProject(int index);
+
+        List<String> getFixVersions(int index);
+
+        List<String> getLabels(int index);
+
+        String getStatus(int index);
+
+        String getLevel(int index);
+
+        DateTime getCreated(int index);
+
+        DateTime getUpdated(int index);
+    }
+
+    /**
+     * Signals a query JIRA would reject with HTTP 400.
+     */
+    static class InvalidJqlException extends RuntimeException {
+        InvalidJqlException(String message) {
+            super(message);
+        }
+    }
+
+    private final List<String> tokens;
+    private final Dataset dataset;
+    private int position = 0;
+
+    private SimulatedJql(List<String> tokens, Dataset dataset) {
+        this.tokens = tokens;
+        this.dataset = dataset;
+    }
+
+    /**
+     * Compiles a query.
+     *
+     * @param jql     the query
+     * @param dataset the issues the query is evaluated on
+     * @return a predicate over the issue indexes
+     * @throws InvalidJqlException if the query is invalid
+     */
+    static IntPredicate compile(String jql, Dataset dataset) {
+        SimulatedJql parser = new SimulatedJql(tokenize(jql == null ? "" : jql), dataset);
+        if (parser.atEnd() || parser.peekKeyword("ORDER")) {
+            return index -> true;
+        }
+        IntPredicate predicate = parser.parseOr();
+        if (!parser.atEnd() && !parser.peekKeyword("ORDER")) {
+            throw new InvalidJqlException("Unexpected '" + parser.peek() + "' in query: " + jql);
+        }
+        return predicate;
+    }
+
+    private IntPredicate parseOr() {
+        IntPredicate predicate = parseAnd();
+        while (acceptKeyword("OR")) {
+            predicate = predicate.or(parseAnd());
+        }
+        return predicate;
+    }
+
+    private IntPredicate parseAnd() {
+        IntPredicate predicate = parseNot();
+        while (acceptKeyword("AND")) {
+            predicate = predicate.and(parseNot());
+        }
+        return predicate;
+    }
+
+    private IntPredicate parseNot() {
+        if (acceptKeyword("NOT")) {
+            return parseNot().negate();
+        }
+        if (accept("(")) {
+            IntPredicate predicate = parseOr();
+            expect(")");
+            return predicate;
+        }
+        return parseClause();
+    }
+
+    private IntPredicate parseClause() {
+        String field = next().toLowerCase(Locale.ROOT);
+        FieldAccessor accessor = accessor(field);
+
+        if (acceptKeyword("IS")) {
+            boolean not = acceptKeyword("NOT");
+            if (!acceptKeyword("EMPTY") && !acceptKeyword("NULL")) {
+                throw new InvalidJqlException("Expected EMPTY after IS");
+            }
+            IntPredicate empty = index -> accessor.values(index).isEmpty();
+            return not ? empty.negate() : empty;
+        }
+        if (acceptKeyword("NOT")) {
+            expectKeyword("IN");
+            return matchesAny(field, accessor, parseList()).negate();
+        }
+        if (acceptKeyword("IN")) {
+            return matchesAny(field, accessor, parseList());
+        }
+
+        String operator = next();
+        switch (operator) {
+            case "=":
+                return matchesAny(field, accessor, single(next()));
+            case "!=":
+                return matchesAny(field, accessor, single(next())).negate();
+            case ">=":
+            case ">":
+            case "<=":
+            case "<":
+                return compareDate(field, operator, parseDate(next()));
+            default:
+                throw new InvalidJqlException("Unsupported operator '" + operator + "'");
+        }
+    }
+
+    private IntPredicate matchesAny(String field, FieldAccessor accessor, List<String> values) {
+        if ("key".equals(field)) {
+            for (String key : values) {
+                if (!dataset.exists(key)) {
+                    throw new InvalidJqlException("An issue with key '" + key + "' does not exist for field 'key'.");
+                }
+            }
+        }
+        return index -> {
+            for (String actual : accessor.values(index)) {
+                for (String value : values) {
+                    if (actual.equalsIgnoreCase(value)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        };
+    }
+
+    private IntPredicate compareDate(String field, String operator, DateTime value) {
+        final boolean updated;
+        if ("updated".equals(field)) {
+            updated = true;
+        } else if ("created".equals(field)) {
+            updated = false;
+        } else {
+            throw new InvalidJqlException("Operator '" + operator + "' isn't supported for field '" + field + "'");
+        }
+        return index -> {
+            int comparison = (updated ? dataset.getUpdated(index) : dataset.getCreated(index)).compareTo(value);
+            switch (operator) {
+                case ">=":
+                    return comparison >= 0;
+                case ">":
+                    return comparison > 0;
+                case "<=":
+                    return comparison <= 0;
+                default:
+                    return comparison < 0;
+            }
+        };
+    }
+
+    private FieldAccessor accessor(String field) {
+        switch (field) {
+            case "key":
+            case "issuekey":
+                return dataset::getKeys;
+            case "project":
+                return index -> single(dataset.getProject(index));
+            case "fixversion":
+                return dataset::getFixVersions;
+            case "labels":
+                return dataset::getLabels;
+            case "status":
+                return index -> single(dataset.getStatus(index));
+            case "level":
+                return index -> single(dataset.getLevel(index));
+            case "created":
+                return index -> single(dataset.getCreated(index).toString());
+            case "updated":
+                return index -> single(dataset.getUpdated(index).toString());
+            default:
+                throw new InvalidJqlException("Field '" + field + "' does not exist or you do not have permission to view it.");
+        }
+    }
+
+    private List<String> parseList() {
+        expect("(");
+        List<String> values = new ArrayList<>();
+        if (accept(")")) {
+            return values;
+        }
+        do {
+            values.add(next());
+        } while (accept(","));
+        expect(")");
+        return values;
+    }
+
+    private static DateTime parseDate(String value) {
+        for (DateTimeFormatter format : DATE_FORMATS) {
+            try {
+                return format.withZone(DateTimeZone.getDefault()).parseDateTime(value);
+            } catch (IllegalArgumentException e) {
+                // try the next format
+            }
+        }
+        throw new InvalidJqlException("Date value '" + value + "' is invalid.");
+    }
+
+    private static List<String> single(String value) {
+        List<String> values = new ArrayList<>(1);
+        values.add(value);
+        return values;
+    }
+
+    private boolean atEnd() {
+        return position >= tokens.size();
+    }
+
+    private String peek() {
+        return atEnd() ? "<end>" : tokens.get(position);
+    }
+
+    private boolean peekKeyword(String keyword) {
+        return !atEnd() && tokens.get(position).equalsIgnoreCase(keyword);
+    }
+
+    private String next() {
+        if (atEnd()) {
+            throw new InvalidJqlException("Unexpected end of query");
+        }
+        return tokens.get(position++);
+    }
+
+    private boolean accept(String token) {
+        if (!atEnd() && tokens.get(position).equals(token)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean acceptKeyword(String keyword) {
+        if (peekKeyword(keyword)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String token) {
+        if (!accept(token)) {
+            throw new InvalidJqlException("Expected '" + token + "' but found '" + peek() + "'");
+        }
+    }
+
+    private void expectKeyword(String keyword) {
+        if (!acceptKeyword(keyword)) {
+            throw new InvalidJqlException("Expected " + keyword + " but found '" + peek() + "'");
+        }
+    }
+
+    /**
+     * Splits a query into parentheses, commas, operators, quoted strings (without quotes) and words.
+     */
+    private static List<String> tokenize(String jql) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < jql.length()) {
+            char c = jql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(' || c == ')' || c == ',') {
+                tokens.add(String.valueOf(c));
+                i++;
+            } else if (c == '"' || c == '\'') {
+                int end = jql.indexOf(c, i + 1);
+                if (end < 0) {
+                    throw new InvalidJqlException("Unterminated string in query: " + jql);
+                }
+                tokens.add(jql.substring(i + 1, end));
+                i = end + 1;
+            } else if (c == '=' || c == '!' || c == '<' || c == '>') {
+                boolean twoChars = i + 1 < jql.length() && jql.charAt(i + 1) == '=';
+                tokens.add(jql.substring(i, twoChars ? i + 2 : i + 1));
+                i += twoChars ? 2 : 1;
+            } else {
+                int start = i;
+                while (i < jql.length() && !Character.isWhitespace(jql.charAt(i)) && "(),=!<>\"'".indexOf(jql.charAt(i)) < 0) {
+                    i++;
+                }
+                tokens.add(jql.substring(start, i));
+            }
+        }
+        return tokens;
+    }
+
+    private interface FieldAccessor {
+        Collection<String> values(int index);
+    }
+}
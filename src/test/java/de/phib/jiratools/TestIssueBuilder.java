@@ -0,0 +1,141 @@
+package de.phib.jiratools;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormat;
+import org.joda.time.format.DateTimeFormatter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds issues for tests from the JSON representation of the JIRA REST API, like {@link JiraSimulator} returns them.
+ */
+public final class TestIssueBuilder {
+
+    private static final DateTimeFormatter JIRA_DATE_TIME = DateTimeFormat.forPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+    private static final String BASE = "http://localhost/rest/api/2/";
+
+    private final String key;
+    private String summary;
+    private String type = "Story";
+    private String status = "Open";
+    private String assignee;
+    private String version;
+    private String level = JiraTools.SECURITY_LEVEL_PUBLIC;
+    private final List<String> labels = new ArrayList<>();
+    private DateTime updated = new DateTime(2019, 1, 1, 0, 0);
+
+    private TestIssueBuilder(String key) {
+        this.key = key;
+        this.summary = "Summary of " + key;
+    }
+
+    /**
+     * @param key the key of the issue, e.g. "BPA-1"; the project is the part before the dash
+     */
+    public static TestIssueBuilder issue(String key) {
+        return new TestIssueBuilder(key);
+    }
+
+    public TestIssueBuilder summary(String summary) {
+        this.summary = summary;
+        return this;
+    }
+
+    public TestIssueBuilder type(String type) {
+        this.type = type;
+        return this;
+    }
+
+    public TestIssueBuilder status(String status) {
+        this.status = status;
+        return this;
+    }
+
+    public TestIssueBuilder assignee(String assignee) {
+        this.assignee = assignee;
+        return this;
+    }
+
+    public TestIssueBuilder version(String version) {
+        this.version = version;
+        return this;
+    }
+
+    public TestIssueBuilder level(String level) {
+        this.level = level;
+        return this;
+    }
+
+    public TestIssueBuilder labels(String... labels) {
+        this.labels.addAll(Arrays.asList(labels));
+        return this;
+    }
+
+    public TestIssueBuilder updated(DateTime updated) {
+        this.updated = updated;
+        return this;
+    }
+
+    public Issue build() {
+        try {
+            return IssueJsonCodec.fromJson(toJson().toString());
+        } catch (JSONException e) {
+            throw new IllegalStateException("Couldn't build issue " + key, e);
+        }
+    }
+
+    private JSONObject toJson() throws JSONException {
+        String project = key.substring(0, key.lastIndexOf('-'));
+        int id = 10000 + Math.abs(key.hashCode() % 10000);
+
+        JSONObject fields = new JSONObject()
+                .put("summary", summary != null ? summary : JSONObject.NULL)
+                .put("issuetype", new JSONObject()
+                        .put("self", BASE + "issuetype/1")
+                        .put("id", "1")
+                        .put("name", type)
+                        .put("subtask", false))
+                .put("status", new JSONObject()
+                        .put("self", BASE + "status/1")
+                        .put("id", "1")
+                        .put("name", status))
+                .put("project", new JSONObject()
+                        .put("self", BASE + "project/" + project)
+                        .put("key", project)
+                        .put("name", project))
+                .put("created", JIRA_DATE_TIME.print(new DateTime(2019, 1, 1, 0, 0)))
+                .put("updated", JIRA_DATE_TIME.print(updated))
+                .put("assignee", assignee == null ? JSONObject.NULL : new JSONObject()
+                        .put("self", BASE + "user?username=" + assignee)
+                        .put("name", assignee)
+                        .put("displayName", assignee)
+                        .put("avatarUrls", new JSONObject()))
+                .put("labels", new JSONArray(labels))
+                .put("security", new JSONObject()
+                        .put("self", BASE + "securitylevel/1")
+                        .put("id", "1")
+                        .put("name", level));
+        if (version != null) {
+            fields.put("fixVersions", new JSONArray().put(new JSONObject()
+                    .put("self", BASE + "version/1")
+                    .put("id", "1")
+                    .put("name", version)
+                    .put("archived", false)
+                    .put("released", false)));
+        }
+
+        return new JSONObject()
+                .put("self", BASE + "issue/" + id)
+                .put("id", String.valueOf(id))
+                .put("key", key)
+                .put("fields", fields)
+                .put("names", new JSONObject().put("security", "Security Level"))
+                .put("schema", new JSONObject().put("security", new JSONObject().put("type", "securitylevel")));
+    }
+}
@@ -0,0 +1,103 @@
+package de.phib.jiratools.tools;
+
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import de.phib.jiratools.TestIssueBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Unit tests for the enum ReleaseNotesFormat.
+ */
+public class ReleaseNotesFormatTest {
+
+    private static final String SPECIAL_SUMMARY = "Fix <b>&\"quotes\", *bold* | [link] {code}\\ #1`_";
+
+    private static final List<Issue> ISSUES = Arrays.asList(
+            TestIssueBuilder.issue("BPA-10").type("Story").summary("Second story").assignee("Bob").status("Done").build(),
+            TestIssueBuilder.issue("BPA-2").type("Bug").summary(SPECIAL_SUMMARY).status("Open").build(),
+            TestIssueBuilder.issue("BPA-9").type("Story").summary("First story").assignee("Alice").status("QA Stage").build());
+
+    @Test
+    void testPlainKeepsFormerLayout() throws IOException {
+        String n = System.lineSeparator();
+        Assertions.assertEquals(
+                n + "*Bug*" + n + n
+                        + "BPA-2: " + SPECIAL_SUMMARY + "; Bug; Unassigned; Open\n"
+                        + n + "*Story*" + n + n
+                        + "BPA-9: First story; Story; Alice; QA Stage\n"
+                        + "BPA-10: Second story; Story; Bob; Done\n",
+                write(ISSUES, ReleaseNotesFormat.PLAIN));
+        Assertions.assertEquals(write(ISSUES, ReleaseNotesFormat.PLAIN), GenerateReleaseNotes.getReleaseNotes(ISSUES));
+    }
+
+    @Test
+    void testMarkdown() throws IOException {
+        Assertions.assertEquals(
+                "\n## Bug\n\n"
+                        + "- **BPA-2**: Fix \\<b\\>&\"quotes\", \\*bold\\* \\| \\[link\\] {code}\\\\ \\#1\\`\\_ (Unassigned, Open)\n"
+                        + "\n## Story\n\n"
+                        + "- **BPA-9**: First story (Alice, QA Stage)\n"
+                        + "- **BPA-10**: Second story (Bob, Done)\n",
+                write(ISSUES, ReleaseNotesFormat.MARKDOWN));
+    }
+
+    @Test
+    void testJiraWiki() throws IOException {
+        Assertions.assertEquals(
+                "\nh3. Bug\n||Key||Summary||Assignee||Status||\n"
+                        + "|BPA-2|Fix <b>&\"quotes\", \\*bold\\* \\| \\[link\\] \\{code\\}\\\\ #1`_|Unassigned|Open|\n"
+                        + "\nh3. Story\n||Key||Summary||Assignee||Status||\n"
+                        + "|BPA-9|First story|Alice|QA Stage|\n"
+                        + "|BPA-10|Second story|Bob|Done|\n",
+                write(ISSUES, ReleaseNotesFormat.JIRA_WIKI));
+    }
+
+    @Test
+    void testHtml() throws IOException {
+        Assertions.assertEquals(
+                "<div class=\"release-notes\">\n"
+                        + "<h3>Bug</h3>\n<ul>\n"
+                        + "<li><strong>BPA-2</strong>: Fix &lt;b&gt;&amp;&quot;quotes&quot;, *bold* | [link] {code}\\ #1`_"
+                        + " (Unassigned, Open)</li>\n"
+                        + "</ul>\n"
+                        + "<h3>Story</h3>\n<ul>\n"
+                        + "<li><strong>BPA-9</strong>: First story (Alice, QA Stage)</li>\n"
+                        + "<li><strong>BPA-10</strong>: Second story (Bob, Done)</li>\n"
+                        + "</ul>\n"
+                        + "</div>\n",
+                write(ISSUES, ReleaseNotesFormat.HTML));
+    }
+
+    @Test
+    void testCsv() throws IOException {
+        Issue multiline = TestIssueBuilder.issue("BPA-3").type("Bug").summary("First line\r\nsecond line").build();
+
+        Assertions.assertEquals(
+                "Key,Summary,Issue Type,Assignee,Status\r\n"
+                        + "BPA-2,\"Fix <b>&\"\"quotes\"\", *bold* | [link] {code}\\ #1`_\",Bug,Unassigned,Open\r\n"
+                        + "BPA-9,First story,Story,Alice,QA Stage\r\n"
+                        + "BPA-10,Second story,Story,Bob,Done\r\n",
+                write(ISSUES, ReleaseNotesFormat.CSV));
+        Assertions.assertTrue(write(Arrays.asList(multiline), ReleaseNotesFormat.CSV)
+                .contains("BPA-3,\"First line\r\nsecond line\",Bug,"));
+    }
+
+    @Test
+    void testEmptyNotes() throws IOException {
+        Assertions.assertEquals("", write(Arrays.asList(), ReleaseNotesFormat.PLAIN));
+        Assertions.assertEquals("<div class=\"release-notes\">\n</div>\n", write(Arrays.asList(), ReleaseNotesFormat.HTML));
+        Assertions.assertEquals("Key,Summary,Issue Type,Assignee,Status\r\n", write(Arrays.asList(), ReleaseNotesFormat.CSV));
+    }
+
+    private static String write(Collection<Issue> issues, ReleaseNotesFormat format) throws IOException {
+        StringWriter out = new StringWriter();
+        GenerateReleaseNotes.writeReleaseNotes(issues, format, out);
+        return out.toString();
+    }
+}
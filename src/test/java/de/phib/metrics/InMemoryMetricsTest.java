@@ -0,0 +1,94 @@
+package de.phib.metrics;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Unit tests for the class InMemoryMetrics.
+ */
+public class InMemoryMetricsTest {
+
+    @Test
+    void testHistogramSmallValuesAreExact() {
+        InMemoryMetrics.Histogram histogram = new InMemoryMetrics.Histogram();
+        for (long value = 0; value < 8; value++) {
+            histogram.record(value);
+        }
+        histogram.record(-5);
+
+        Assertions.assertEquals(9, histogram.getCount());
+        Assertions.assertEquals(28, histogram.getSum());
+        Assertions.assertEquals(7, histogram.getMax());
+        Assertions.assertEquals(0, histogram.getPercentile(0.1));
+        Assertions.assertEquals(3, histogram.getPercentile(0.5));
+        Assertions.assertEquals(7, histogram.getPercentile(1));
+    }
+
+    @Test
+    void testHistogramPercentilesWithinBucketPrecision() {
+        InMemoryMetrics.Histogram histogram = new InMemoryMetrics.Histogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+
+        Assertions.assertEquals(100_000, histogram.getCount());
+        Assertions.assertEquals(50_000.5, histogram.getMean(), 0.001);
+        Assertions.assertEquals(100_000, histogram.getMax());
+        assertWithin(50_000, histogram.getPercentile(0.5), 0.125);
+        assertWithin(95_000, histogram.getPercentile(0.95), 0.125);
+        assertWithin(99_000, histogram.getPercentile(0.99), 0.125);
+        Assertions.assertTrue(histogram.getPercentile(0.99) <= histogram.getMax());
+    }
+
+    @Test
+    void testHistogramLargeValues() {
+        InMemoryMetrics.Histogram histogram = new InMemoryMetrics.Histogram();
+        histogram.record(Long.MAX_VALUE);
+        histogram.record(1L << 40);
+
+        Assertions.assertEquals(Long.MAX_VALUE, histogram.getMax());
+        assertWithin(1L << 40, histogram.getPercentile(0.5), 0.125);
+        assertWithin(Long.MAX_VALUE, histogram.getPercentile(1), 0.125);
+    }
+
+    @Test
+    void testCountersAndGauges() {
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        AtomicLong hits = new AtomicLong(3);
+
+        metrics.increment("jira.search.failures");
+        metrics.increment("jira.search.failures");
+        metrics.gauge("issueCache.hits", hits::get);
+        hits.incrementAndGet();
+
+        Assertions.assertEquals(2, metrics.getCount("jira.search.failures"));
+        Assertions.assertEquals(4, metrics.getCount("issueCache.hits"));
+        Assertions.assertEquals(0, metrics.getCount("unknown"));
+    }
+
+    @Test
+    void testReport() {
+        InMemoryMetrics metrics = new InMemoryMetrics();
+        metrics.recordTime("jira.request.time", TimeUnit.MILLISECONDS.toNanos(20));
+        metrics.recordValue("jira.page.issues", 100);
+        metrics.increment("jira.search.failures");
+        metrics.gauge("jira.requests", () -> 7);
+
+        String report = metrics.report();
+
+        Assertions.assertTrue(report.contains("jira.request.time"), report);
+        Assertions.assertTrue(report.matches("(?s).*jira\\.page\\.issues\\s+count=1 total=100 .*"), report);
+        Assertions.assertTrue(report.matches("(?s).*jira\\.search\\.failures\\s+1\\R.*"), report);
+        Assertions.assertTrue(report.matches("(?s).*jira\\.requests\\s+7\\R.*"), report);
+        Assertions.assertEquals(1, metrics.getTimer("jira.request.time").getCount());
+        Assertions.assertNull(metrics.getValues("jira.request.time"));
+    }
+
+    private static void assertWithin(long expected, long actual, double tolerance) {
+        Assertions.assertTrue(Math.abs(actual - expected) <= expected * tolerance,
+                String.format("expected %d, but was %d", expected, actual));
+    }
+}